@@ -0,0 +1,110 @@
+package org.example.fitnessclubmanagement.benchmark;
+
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.SchedulePage;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.example.fitnessclubmanagement.service.UserService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of the ScheduleService read and write paths.
+ *
+ * Run with e.g. {@code java -jar target/benchmarks.jar ScheduleServiceBenchmark -p users=100000 -p sessions=1000000}.
+ * Leaving out -p runs every combination of the sizes below.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ScheduleServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    @Param({"10000", "1000000"})
+    private int sessions;
+
+    @Param({"20"})
+    private int participantsPerSession;
+
+    @Param({"50"})
+    private int pageSize;
+
+    private SeededDatabase database;
+
+    private ScheduleService scheduleService;
+
+    private User admin;
+
+    private User member;
+
+    private LocalDate weekStart;
+
+    private LocalDate weekEnd;
+
+    private final AtomicLong newSessions = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SeededDatabase(users, sessions, participantsPerSession);
+        scheduleService = database.getBean(ScheduleService.class);
+        UserService userService = database.getBean(UserService.class);
+        admin = userService.getUserByUsername("admin");
+        member = userService.getUserByUsername(database.memberUsername(1));
+        weekStart = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        weekEnd = weekStart.plusDays(6);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * First page of this week's schedule as an admin, the default /schedule/view request.
+     */
+    @Benchmark
+    public SchedulePage getSchedulesForUserAdmin() {
+        return scheduleService.getSchedulesForUser(admin, weekStart, weekEnd, null, pageSize);
+    }
+
+    /**
+     * First page of this week's schedule as a member, through the participant and trainer queries.
+     */
+    @Benchmark
+    public SchedulePage getSchedulesForUserMember() {
+        return scheduleService.getSchedulesForUser(member, weekStart, weekEnd, null, pageSize);
+    }
+
+    /**
+     * Marks attendance of a random session, with about half of its participants present.
+     */
+    @Benchmark
+    public void markAttendance() {
+        int session = ThreadLocalRandom.current().nextInt(database.getSessions());
+        List<Long> participants = database.participantIds(session);
+        scheduleService.markAttendance(database.scheduleId(session), new ArrayList<>(participants.subList(0, participants.size() / 2)));
+    }
+
+    /**
+     * Creates a new session with a full class of participants, each on its own day so the trainer is never double-booked.
+     */
+    @Benchmark
+    public void scheduleSession() {
+        int session = ThreadLocalRandom.current().nextInt(database.getSessions());
+        scheduleService.scheduleSession(database.trainerId(session), database.participantIds(session),
+                weekEnd.plusYears(1).plusDays(newSessions.getAndIncrement()), LocalTime.of(18, 0), LocalTime.of(19, 0));
+    }
+}
@@ -0,0 +1,216 @@
+package org.example.fitnessclubmanagement.benchmark;
+
+import org.springframework.boot.system.JavaVersion;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load test of {@code GET /schedule/view}, run once with platform threads and once with virtual threads.
+ * Every client sends its next request as soon as the previous one is answered, against a database made slow by
+ * {@link SlowDatabaseConfig}, and the throughput and p99 latency of both modes are printed side by side.
+ *
+ * Run it from the module classpath, not the shaded jar, whose merged manifest hides the Spring version Thymeleaf's
+ * Spring Security dialect reads: {@code mvn -f benchmarks/pom.xml compile exec:java
+ * -Dexec.mainClass=org.example.fitnessclubmanagement.benchmark.ScheduleViewLoadTest
+ * -Dexec.args="--clients=400 --seconds=30 --db-latency-ms=50 --pool-size=100"}, as in the README.
+ * Virtual threads need a Java 21+ runtime, on older JVMs only the platform run is measured rather than printing a
+ * second platform run as if it were the comparison.
+ */
+public class ScheduleViewLoadTest {
+
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "10000"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "400"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "10"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        String latencyMs = options.getOrDefault("db-latency-ms", "50");
+        String poolSize = options.getOrDefault("pool-size", "100");
+
+        boolean virtualSupported = JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+        List<Result> results = new ArrayList<>();
+        for (boolean virtual : virtualSupported ? new boolean[]{false, true} : new boolean[]{false}) {
+            List<String> appArgs = List.of("--spring.threads.virtual.enabled=" + virtual,
+                    "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                    "--benchmark.db-latency-ms=" + latencyMs);
+            try (SeededDatabase database = new SeededDatabase(users, sessions, 20, List.of(SlowDatabaseConfig.class), appArgs)) {
+                String mode = database.isVirtualThreads() ? "virtual" : "platform";
+                URI base = URI.create("http://localhost:" + database.getPort());
+                HttpClient client = login(base, database.memberUsername(1));
+                run(client, base, clients, Duration.ofSeconds(warmupSeconds));
+                results.add(new Result(mode, run(client, base, clients, Duration.ofSeconds(seconds)), seconds));
+            }
+        }
+
+        System.out.printf("%n/schedule/view, %d clients, %s ms per connection, pool of %s%n", clients, latencyMs, poolSize);
+        System.out.printf("%-45s %10s %8s %12s %8s %8s%n", "threads", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        for (Result result : results) {
+            System.out.printf("%-45s %10d %8d %12.1f %8.1f %8.1f%n", result.mode, result.latencies.length, result.errors,
+                    result.latencies.length / (double) result.seconds, result.percentile(0.50), result.percentile(0.99));
+        }
+        if (!virtualSupported) {
+            System.out.printf("virtual threads skipped, they need Java 21+ and this is Java %s%n", JavaVersion.getJavaVersion());
+        }
+    }
+
+    /**
+     * Logs in through the login form, the session cookie is kept by the returned client.
+     *
+     * @param base the base URI of the application
+     * @param username the username of a seeded member
+     * @return a client with a logged in session
+     */
+    private static HttpClient login(URI base, String username) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String loginPage = client.send(HttpRequest.newBuilder(base.resolve("/login")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher csrf = CSRF_TOKEN.matcher(loginPage);
+        if (!csrf.find()) {
+            throw new IllegalStateException("No CSRF token on the login page");
+        }
+        String form = "username=" + encode(username) + "&password=" + encode(SeededDatabase.PASSWORD) + "&_csrf=" + encode(csrf.group(1));
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(base.resolve("/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.headers().firstValue("Location").orElse("").contains("error")) {
+            throw new IllegalStateException("Login failed for " + username);
+        }
+        return client;
+    }
+
+    /**
+     * Sends requests from a fixed number of clients until the time is up.
+     *
+     * @param client the logged in client
+     * @param base the base URI of the application
+     * @param clients the number of concurrent clients
+     * @param duration how long to send requests for
+     * @return the latencies of the successful requests and the number of failed ones
+     */
+    private static Samples run(HttpClient client, URI base, int clients, Duration duration) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/schedule/view")).timeout(Duration.ofSeconds(60)).build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Samples>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    Samples samples = new Samples();
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() == 200) {
+                            samples.add(System.nanoTime() - start);
+                        } else {
+                            samples.errors++;
+                        }
+                    }
+                    return samples;
+                }));
+            }
+            Samples all = new Samples();
+            for (Future<Samples> future : futures) {
+                all.addAll(future.get());
+            }
+            return all;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options look like --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Latencies in nanoseconds of one client, or of all of them once merged.
+     */
+    private static class Samples {
+
+        private long[] latencies = new long[1024];
+
+        private int size;
+
+        private long errors;
+
+        void add(long latency) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+    }
+
+    /**
+     * The measured run of one thread mode.
+     */
+    private static class Result {
+
+        private final String mode;
+
+        private final long[] latencies;
+
+        private final long errors;
+
+        private final int seconds;
+
+        Result(String mode, Samples samples, int seconds) {
+            this.mode = mode;
+            this.latencies = Arrays.copyOf(samples.latencies, samples.size);
+            Arrays.sort(this.latencies);
+            this.errors = samples.errors;
+            this.seconds = seconds;
+        }
+
+        double percentile(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.example.fitnessclubmanagement.benchmark;
+
+import org.example.fitnessclubmanagement.ResponsiveUserRegistrationApplication;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.service.AttendanceStatsService;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Boots the application against an in-memory H2 database and seeds it with JDBC batches.
+ * Seeding is deterministic, so the participants of any session can be recomputed without a query.
+ */
+public class SeededDatabase implements AutoCloseable {
+
+    public static final String PASSWORD = "benchmark-password";
+
+    static final int SESSIONS_PER_DAY = 200;
+
+    static final int TRAINER_EVERY = 100; // every 100th member is a trainer
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final AtomicInteger DATABASES = new AtomicInteger(); // H2 keeps closed in-memory databases, so each boot gets its own
+
+    private final ConfigurableApplicationContext context;
+
+    private final int users;
+
+    private final int sessions;
+
+    private final int participantsPerSession;
+
+    private final LocalDate firstDate;
+
+    /**
+     * Boots the application and seeds the database.
+     *
+     * @param users the number of members to create
+     * @param sessions the number of sessions to create
+     * @param participantsPerSession the number of participants in each session
+     */
+    public SeededDatabase(int users, int sessions, int participantsPerSession) {
+        this(users, sessions, participantsPerSession, List.of(), List.of());
+    }
+
+    /**
+     * Boots the application with extra configuration and seeds the database.
+     *
+     * @param users the number of members to create
+     * @param sessions the number of sessions to create
+     * @param participantsPerSession the number of participants in each session
+     * @param extraSources extra configuration classes to boot with the application
+     * @param extraArgs extra command line arguments, e.g. {@code --spring.threads.virtual.enabled=true}
+     */
+    public SeededDatabase(int users, int sessions, int participantsPerSession, List<Class<?>> extraSources, List<String> extraArgs) {
+        this.users = users;
+        this.sessions = sessions;
+        this.participantsPerSession = Math.min(participantsPerSession, users - 1);
+        // history ends a week from now, so the current week always has sessions in it
+        this.firstDate = LocalDate.now().plusDays(7).minusDays(sessions / SESSIONS_PER_DAY);
+
+        List<String> args = new ArrayList<>(List.of("--server.port=0", // a random free port, only the load test sends requests to it
+                "--spring.datasource.url=jdbc:h2:mem:benchmark" + DATABASES.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.open-in-view=false",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"));
+        args.addAll(extraArgs);
+        List<Class<?>> sources = new ArrayList<>(List.of(ResponsiveUserRegistrationApplication.class));
+        sources.addAll(extraSources);
+        this.context = new SpringApplicationBuilder(sources.toArray(new Class<?>[0]))
+                .run(args.toArray(new String[0]));
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(AttendanceStatsService.class).rebuild(); // every seeded session has its attendance taken
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Returns the port the application is listening on.
+     *
+     * @return the local server port
+     */
+    public int getPort() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    /**
+     * Checks if the application serves requests on virtual threads.
+     *
+     * @return true if virtual threads were requested and the JVM supports them
+     */
+    public boolean isVirtualThreads() {
+        return Threading.VIRTUAL.isActive(context.getEnvironment());
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Returns the user ID of the n-th seeded member, the default admin takes ID 1.
+     *
+     * @param member the member number, from 0
+     * @return the user ID
+     */
+    public long memberId(int member) {
+        return member + 2L;
+    }
+
+    /**
+     * Returns the username of the n-th seeded member.
+     *
+     * @param member the member number, from 0
+     * @return the username
+     */
+    public String memberUsername(int member) {
+        return "member" + member;
+    }
+
+    /**
+     * Returns the user ID of the trainer of a seeded session.
+     *
+     * @param session the session number, from 0
+     * @return the user ID of the trainer
+     */
+    public long trainerId(int session) {
+        int trainers = Math.max(1, users / TRAINER_EVERY);
+        return memberId((session % trainers) * TRAINER_EVERY);
+    }
+
+    /**
+     * Recomputes the participants of a seeded session.
+     *
+     * @param session the session number, from 0
+     * @return the user IDs of the participants
+     */
+    public List<Long> participantIds(int session) {
+        Random random = new Random(session);
+        long trainerId = trainerId(session);
+        Set<Long> participants = new LinkedHashSet<>();
+        while (participants.size() < participantsPerSession) {
+            long userId = memberId(random.nextInt(users));
+            if (userId != trainerId) {
+                participants.add(userId);
+            }
+        }
+        return new ArrayList<>(participants);
+    }
+
+    /**
+     * Returns the date of a seeded session.
+     *
+     * @param session the session number, from 0
+     * @return the date
+     */
+    public LocalDate date(int session) {
+        return firstDate.plusDays(session / SESSIONS_PER_DAY);
+    }
+
+    /**
+     * Returns the ID of a seeded session.
+     *
+     * @param session the session number, from 0
+     * @return the schedule ID
+     */
+    public long scheduleId(int session) {
+        return session + 1L;
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD); // hashing a million passwords would take hours
+
+        List<Object[]> userRows = new ArrayList<>(BATCH_SIZE);
+        int memberMask = Role.toMask(Set.of(Role.USER));
+        int trainerMask = Role.toMask(Set.of(Role.USER, Role.TRAINER));
+        for (int member = 0; member < users; member++) {
+            int roleMask = member % TRAINER_EVERY == 0 ? trainerMask : memberMask;
+            userRows.add(new Object[]{memberId(member), memberUsername(member), memberUsername(member) + "@example.com", hash, roleMask});
+            if (userRows.size() >= BATCH_SIZE) {
+                flushUsers(jdbc, userRows);
+            }
+        }
+        flushUsers(jdbc, userRows);
+
+        List<Object[]> scheduleRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> participantRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> absentRows = new ArrayList<>(BATCH_SIZE);
+        for (int session = 0; session < sessions; session++) {
+            LocalTime start = LocalTime.of(6, 0).plusMinutes((session % SESSIONS_PER_DAY) * 4L);
+            scheduleRows.add(new Object[]{scheduleId(session), Date.valueOf(date(session)), Time.valueOf(start),
+                    Time.valueOf(start.plusHours(1)), trainerId(session)});
+            List<Long> participants = participantIds(session);
+            for (int i = 0; i < participants.size(); i++) {
+                participantRows.add(new Object[]{scheduleId(session), participants.get(i)});
+                if (i < 2) {
+                    absentRows.add(new Object[]{scheduleId(session), participants.get(i)}); // a couple of no-shows per class
+                }
+            }
+            if (participantRows.size() >= BATCH_SIZE) {
+                flushSchedules(jdbc, scheduleRows, participantRows, absentRows);
+            }
+        }
+        flushSchedules(jdbc, scheduleRows, participantRows, absentRows);
+
+        // explicit IDs don't move the identity columns, so the app's own inserts would collide
+        jdbc.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (memberId(users) + 1));
+        jdbc.execute("ALTER TABLE schedule ALTER COLUMN schedule_id RESTART WITH " + (scheduleId(sessions) + 1));
+        jdbc.execute("ANALYZE");
+    }
+
+    private void flushUsers(JdbcTemplate jdbc, List<Object[]> userRows) {
+        jdbc.batchUpdate("INSERT INTO users (user_id, username, email, password, role_mask) VALUES (?, ?, ?, ?, ?)", userRows);
+        userRows.clear();
+    }
+
+    private void flushSchedules(JdbcTemplate jdbc, List<Object[]> scheduleRows, List<Object[]> participantRows, List<Object[]> absentRows) {
+        jdbc.batchUpdate("INSERT INTO schedule (schedule_id, date, start_time, end_time, trainer_id, attendance_marked) VALUES (?, ?, ?, ?, ?, TRUE)", scheduleRows);
+        jdbc.batchUpdate("INSERT INTO schedule_participants (schedule_schedule_id, participants_user_id) VALUES (?, ?)", participantRows);
+        jdbc.batchUpdate("INSERT INTO schedule_absent_users (schedule_schedule_id, absent_users_user_id) VALUES (?, ?)", absentRows);
+        scheduleRows.clear();
+        participantRows.clear();
+        absentRows.clear();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
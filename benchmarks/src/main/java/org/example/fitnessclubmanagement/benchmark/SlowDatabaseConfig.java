@@ -0,0 +1,43 @@
+package org.example.fitnessclubmanagement.benchmark;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Makes the in-memory database behave like a slow MySQL: every connection taken from the pool is held for
+ * {@code benchmark.db-latency-ms} before it is used, so requests block on JDBC the way they do under load.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SlowDatabaseConfig {
+
+    @Bean
+    public static BeanPostProcessor slowDataSource(@Value("${benchmark.db-latency-ms:0}") long latencyMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || latencyMs <= 0) {
+                    return bean;
+                }
+                return new DelegatingDataSource(dataSource) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        Connection connection = super.getConnection();
+                        try {
+                            Thread.sleep(latencyMs); // holding the connection, like a slow round trip would
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return connection;
+                    }
+                };
+            }
+        };
+    }
+}
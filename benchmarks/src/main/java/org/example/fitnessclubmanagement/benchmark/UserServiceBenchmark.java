@@ -0,0 +1,65 @@
+package org.example.fitnessclubmanagement.benchmark;
+
+import org.example.fitnessclubmanagement.service.UserDetailsCache;
+import org.example.fitnessclubmanagement.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of UserService.loadUserByUsername, the lookup behind every login.
+ *
+ * Run with e.g. {@code java -jar target/benchmarks.jar UserServiceBenchmark -p users=1000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class UserServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int users;
+
+    @Param({"10000"})
+    private int sessions;
+
+    private SeededDatabase database;
+
+    private UserService userService;
+
+    private UserDetailsCache userDetailsCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new SeededDatabase(users, sessions, 20);
+        userService = database.getBean(UserService.class);
+        userDetailsCache = database.getBean(UserDetailsCache.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * Login lookups spread over every member, so the cache hit rate depends on its size.
+     */
+    @Benchmark
+    public UserDetails loadUserByUsername() {
+        return userService.loadUserByUsername(database.memberUsername(ThreadLocalRandom.current().nextInt(users)));
+    }
+
+    /**
+     * Login lookups that always miss the cache and go to the database.
+     */
+    @Benchmark
+    public UserDetails loadUserByUsernameUncached() {
+        String username = database.memberUsername(ThreadLocalRandom.current().nextInt(users));
+        userDetailsCache.invalidate(username);
+        return userService.loadUserByUsername(username);
+    }
+}
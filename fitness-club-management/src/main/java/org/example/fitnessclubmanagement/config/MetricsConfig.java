@@ -0,0 +1,26 @@
+package org.example.fitnessclubmanagement.config;
+
+import org.example.fitnessclubmanagement.metrics.SqlStatementCounter;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wires the per-request SQL statement counting into the data source, so JdbcTemplate statements are counted too.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor sqlStatementCounterPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof SqlStatementCounter)
+                        ? new SqlStatementCounter(dataSource) : bean;
+            }
+        };
+    }
+}
@@ -1,44 +1,148 @@
 package org.example.fitnessclubmanagement.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.fitnessclubmanagement.security.BasicAuthThrottleFilter;
+import org.example.fitnessclubmanagement.security.BoundedPasswordEncoder;
+import org.example.fitnessclubmanagement.security.HashingAwareFailureHandler;
+import org.example.fitnessclubmanagement.security.JdbcLoginSessionStore;
+import org.example.fitnessclubmanagement.security.LoginSessionStore;
+import org.example.fitnessclubmanagement.security.LoginThrottle;
+import org.example.fitnessclubmanagement.security.LoginThrottleFilter;
+import org.example.fitnessclubmanagement.security.StoredSecurityContextRepository;
+import org.example.fitnessclubmanagement.security.TokenBucketTable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    /**
+     * Actuator endpoints (metrics, Prometheus scrape) take HTTP Basic so scrapers don't need a login form.
+     * Failed Basic logins count against the same limits as the login form.
+     */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http, LoginThrottle loginThrottle) throws Exception {
         http
+            .securityMatcher("/actuator/**")
+            .addFilterBefore(new BasicAuthThrottleFilter(loginThrottle), BasicAuthenticationFilter.class)
+            .authorizeHttpRequests(authorize -> authorize
+                .anyRequest().hasRole("ADMIN")
+            )
+            .httpBasic(Customizer.withDefaults())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .csrf(csrf -> csrf.disable()); // no browser session, so nothing to forge
+
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, StoredSecurityContextRepository loginRepository,
+                                                   LoginThrottle loginThrottle) throws Exception {
+        http
+            // over the limit attempts are turned away before the user is loaded or a password hashed
+            .addFilterBefore(new LoginThrottleFilter(loginThrottle, "/login", "username"), UsernamePasswordAuthenticationFilter.class)
+            // nothing about a login lives in the node's HttpSession, so any node can serve any request
+            .securityContext(context -> context.securityContextRepository(new DelegatingSecurityContextRepository(
+                new RequestAttributeSecurityContextRepository(), loginRepository)))
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.NEVER))
+            .csrf(csrf -> csrf.csrfTokenRepository(new CookieCsrfTokenRepository()))
+            .requestCache(cache -> cache.requestCache(new NullRequestCache())) // logins always land on /, nothing to resume
             .authorizeRequests(authorizeRequests -> authorizeRequests
                 .requestMatchers("/", "/login" ).permitAll()
-                .requestMatchers("/users/**", "/schedule/edit/**", "/register").hasRole("ADMIN")
+                .requestMatchers("/users/**", "/api/v1/users/**", "/schedule/edit/**", "/register", "/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             .formLogin(form -> form
                 .loginPage("/login")
                 .loginProcessingUrl("/login")
                 .defaultSuccessUrl("/", true)
-                .failureUrl("/login?error=true")
+                .failureHandler(new HashingAwareFailureHandler("/login?error=true"))
                 .permitAll()
             )
             .logout(logout -> logout
                 .logoutUrl("/logout")
                 .invalidateHttpSession(true)
-                .deleteCookies("JSESSIONID")
                 .logoutSuccessUrl("/")
+            )
+            // the JSON API shares the login session, but answers 401 instead of redirecting to the login page
+            .exceptionHandling(exceptions -> exceptions
+                .defaultAuthenticationEntryPointFor(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED), new AntPathRequestMatcher("/api/**"))
             );
 
         return http.build();
     }
 
+    /**
+     * BCrypt encoder whose hashing runs on its own bounded executor, off the request threads.
+     */
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${auth.hashing.threads:0}") int threads,
+                                           @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${auth.hashing.max-wait:PT5S}") Duration maxWait,
+                                           @Value("${auth.hashing.retry-after:PT2S}") Duration retryAfter) {
+        if (threads < 1) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2); // leave half the cores for everything else
+        }
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity,
+                maxWait.toMillis(), retryAfter.toSeconds(), meterRegistry);
+    }
+
+    /**
+     * Where logins are kept, every node of the application must be given the same store.
+     */
+    @Bean
+    public LoginSessionStore loginSessionStore(JdbcTemplate jdbcTemplate) {
+        return new JdbcLoginSessionStore(jdbcTemplate);
+    }
+
+    /**
+     * Security context repository on the login session store, with a small cache of recently used logins per node.
+     */
+    @Bean
+    public StoredSecurityContextRepository loginRepository(LoginSessionStore loginSessionStore,
+                                                           @Value("${auth.session.timeout:PT30M}") Duration timeout,
+                                                           @Value("${auth.session.cache-size:10000}") int cacheSize,
+                                                           @Value("${auth.session.cache-ttl:PT10S}") Duration cacheTtl,
+                                                           @Value("${auth.session.cleanup-interval:PT5M}") Duration cleanupInterval) {
+        return new StoredSecurityContextRepository(loginSessionStore, timeout, cacheSize, cacheTtl, cleanupInterval);
+    }
+
+    /**
+     * Login attempt limits per client address and per username, held on this node.
+     * Not a filter bean itself, which Spring Boot would also register for every request outside the security chain.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public LoginThrottle loginThrottle(@Value("${auth.throttle.address.capacity:30}") int addressCapacity,
+                                       @Value("${auth.throttle.address.refill-interval:PT2S}") Duration addressRefill,
+                                       @Value("${auth.throttle.username.capacity:5}") int usernameCapacity,
+                                       @Value("${auth.throttle.username.refill-interval:PT30S}") Duration usernameRefill,
+                                       @Value("${auth.throttle.max-keys:65536}") int maxKeys) {
+        return new LoginThrottle(new TokenBucketTable(addressCapacity, addressRefill, maxKeys),
+                new TokenBucketTable(usernameCapacity, usernameRefill, maxKeys));
     }
 }
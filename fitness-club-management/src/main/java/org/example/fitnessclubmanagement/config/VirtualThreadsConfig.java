@@ -0,0 +1,30 @@
+package org.example.fitnessclubmanagement.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Refuses to start with virtual threads turned on under a JVM that has none, rather than quietly serving requests
+ * from the platform thread pool as Spring Boot would.
+ */
+@Configuration
+public class VirtualThreadsConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    /**
+     * Checks the JVM can run the requested threads.
+     *
+     * @throws IllegalStateException if virtual threads are enabled on a JVM older than 21
+     */
+    @PostConstruct
+    public void checkJavaVersion() {
+        if (virtualThreadsEnabled && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true needs Java 21 or newer, this is Java "
+                    + JavaVersion.getJavaVersion() + ". Turn it off or run on a newer JVM");
+        }
+    }
+}
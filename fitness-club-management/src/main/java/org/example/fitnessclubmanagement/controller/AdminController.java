@@ -0,0 +1,134 @@
+package org.example.fitnessclubmanagement.controller;
+
+import org.example.fitnessclubmanagement.payload.AttendanceStatsCheck;
+import org.example.fitnessclubmanagement.payload.CacheStats;
+import org.example.fitnessclubmanagement.payload.ExportFormat;
+import org.example.fitnessclubmanagement.payload.ImportReport;
+import org.example.fitnessclubmanagement.service.AttendanceExportService;
+import org.example.fitnessclubmanagement.service.AttendanceStatsService;
+import org.example.fitnessclubmanagement.service.MemberImportService;
+import org.example.fitnessclubmanagement.service.UserDetailsCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
+
+/**
+ * Controller for admin-only operational endpoints.
+ */
+@RestController
+public class AdminController {
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private MemberImportService memberImportService;
+
+    @Autowired
+    private AttendanceExportService attendanceExportService;
+
+    @Autowired
+    private AttendanceStatsService attendanceStatsService;
+
+    // long exports are streamed asynchronously, this replaces the default async timeout for them only
+    @Value("${attendance.export.timeout:PT30M}")
+    private Duration exportTimeout;
+
+    /**
+     * Returns the counters of the login cache, used to size it.
+     *
+     * @return the cache stats
+     */
+    @GetMapping("/admin/auth-cache")
+    public CacheStats authCacheStats() {
+        return userDetailsCache.getStats();
+    }
+
+    /**
+     * Imports members in bulk from an uploaded CSV file with username, email and password columns.
+     *
+     * @param file the CSV file
+     * @return the import report with the per-row errors
+     * @throws IOException if the file can't be read
+     */
+    @PostMapping("/admin/users/import")
+    public ImportReport importMembers(@RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream csv = file.getInputStream()) { // uploads are spooled to disk, this streams from there
+            return memberImportService.importMembers(csv);
+        }
+    }
+
+    /**
+     * Downloads the attendance history for a date range, streamed row by row as it is read.
+     *
+     * @param from the first date to export
+     * @param to the last date to export
+     * @param trainerId the ID of the trainer to export for, or every trainer if absent
+     * @param format the file format, CSV by default
+     * @param request the current request, whose async timeout is set to the export timeout
+     * @return the streamed export
+     * @throws IllegalArgumentException if the date range is invalid
+     */
+    @GetMapping("/admin/attendance/export")
+    public ResponseEntity<StreamingResponseBody> exportAttendance(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                  @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                  @RequestParam(value = "trainerId", required = false) Long trainerId,
+                                                                  @RequestParam(value = "format", defaultValue = "CSV") ExportFormat format,
+                                                                  WebRequest request) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date"); // fail before the response is committed
+        }
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(AdminController.class, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                // called with the async request before it starts, the only point its timeout can still be changed
+                ((AsyncWebRequest) asyncRequest).setTimeout(exportTimeout.toMillis());
+            }
+        });
+        String filename = "attendance-" + from + "-" + to + "." + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(output -> attendanceExportService.export(from, to, trainerId, format, output));
+    }
+
+    /**
+     * Checks the attendance stats against the raw attendance data.
+     *
+     * @return the number of expected rows and of rows that don't match
+     */
+    @GetMapping("/admin/attendance/stats/verify")
+    public AttendanceStatsCheck verifyAttendanceStats() {
+        return attendanceStatsService.verify();
+    }
+
+    /**
+     * Recomputes the attendance stats from scratch, e.g. after restoring a backup.
+     *
+     * @return the mismatches found before the rebuild and the number of rows written
+     */
+    @PostMapping("/admin/attendance/stats/rebuild")
+    public AttendanceStatsCheck rebuildAttendanceStats() {
+        return attendanceStatsService.rebuild();
+    }
+}
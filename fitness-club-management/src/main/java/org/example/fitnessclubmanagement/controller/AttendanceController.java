@@ -0,0 +1,47 @@
+package org.example.fitnessclubmanagement.controller;
+
+import org.example.fitnessclubmanagement.service.AttendanceStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.time.LocalDate;
+
+/**
+ * Controller for the attendance dashboard.
+ */
+@Controller
+public class AttendanceController {
+
+    @Autowired
+    private AttendanceStatsService attendanceStatsService;
+
+    /**
+     * Displays the attendance rates per member, trainer and week, and per trainer and weekly time slot.
+     *
+     * @param from the first date, defaults to four weeks ago
+     * @param to the last date, defaults to today
+     * @param model the model to hold attributes for the view
+     * @return the name of the view to render
+     */
+    @GetMapping("/admin/attendance")
+    public String showAttendanceDashboard(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          Model model) {
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusWeeks(4);
+        }
+        model.addAttribute("summaries", attendanceStatsService.getSummaries(from, to));
+        model.addAttribute("slots", attendanceStatsService.getSlotSummaries(from, to));
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("maxRows", AttendanceStatsService.MAX_DASHBOARD_ROWS);
+        return "admin/attendance";
+    }
+}
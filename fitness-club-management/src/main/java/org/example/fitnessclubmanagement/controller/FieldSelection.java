@@ -0,0 +1,60 @@
+package org.example.fitnessclubmanagement.controller;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The {@code ?fields=} parameter of the JSON API, which picks the properties of each item to send.
+ * Items opt in with {@code @JsonFilter("fields")}, the envelope around them is always sent in full.
+ */
+final class FieldSelection {
+
+    static final String FILTER = "fields";
+
+    private FieldSelection() {
+    }
+
+    /**
+     * Wraps a response body so only the selected properties of its items are serialized.
+     *
+     * @param body the response body
+     * @param fields the comma separated property names, null or blank for all of them
+     * @param itemType the type of the items
+     * @return the body with its filter
+     * @throws IllegalArgumentException if a property doesn't exist on the items
+     */
+    static MappingJacksonValue select(Object body, String fields, Class<?> itemType) {
+        SimpleBeanPropertyFilter filter = SimpleBeanPropertyFilter.serializeAll();
+        if (fields != null && !fields.isBlank()) {
+            Set<String> selected = Arrays.stream(fields.split(","))
+                    .map(String::trim)
+                    .filter(field -> !field.isEmpty())
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            Set<String> known = propertyNames(itemType);
+            List<String> unknown = selected.stream().filter(field -> !known.contains(field)).toList();
+            if (!unknown.isEmpty()) {
+                throw new IllegalArgumentException("Unknown fields " + unknown + ", pick from " + known);
+            }
+            filter = SimpleBeanPropertyFilter.filterOutAllExcept(selected);
+        }
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(new SimpleFilterProvider().addFilter(FILTER, filter));
+        return value;
+    }
+
+    private static Set<String> propertyNames(Class<?> itemType) {
+        return Arrays.stream(itemType.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()))
+                .map(Field::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.util.WebUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Conditional GET support for the rendered pages and the JSON API.
+ * Besides the data a page is built from, its ETag covers the browser's CSRF token, because pages embed it,
+ * and the deployment, because a new release may render the same data differently.
+ * The deployment is a configured ID rather than anything random per instance, so every node of a deployment
+ * sends the same ETag for the same page and a restarted node still answers the ETags it sent before.
+ */
+@Component
+class PageETags {
+
+    private static final String CSRF_COOKIE = "XSRF-TOKEN"; // CookieCsrfTokenRepository's, see SecurityConfig
+
+    @Value("${app.deployment-id:dev}")
+    private String deploymentId;
+
+    /**
+     * Answers the request with 304 if the browser already has the page for the given data.
+     * Pages that go through here are kept by the browser but revalidated on every visit.
+     *
+     * @param request the current request
+     * @param response the current response
+     * @param parts everything the page is built from, e.g. the viewer, the query parameters and a data fingerprint
+     * @return true if the response is a 304 and the page must not be rendered, false otherwise
+     */
+    boolean checkNotModified(WebRequest request, HttpServletResponse response, Object... parts) {
+        StringBuilder key = new StringBuilder(deploymentId).append('|').append(csrfTokenOf(request));
+        for (Object part : parts) {
+            key.append('|').append(part);
+        }
+        // set before Spring Security's default no-store is written, which would keep browsers from ever revalidating
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        // weak, since the same data may go out gzipped or not, and Tomcat never compresses a response with a strong ETag
+        return request.checkNotModified("W/\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"");
+    }
+
+    /**
+     * Returns the CSRF token the page will embed, read from its cookie rather than the session, which may not exist.
+     *
+     * @param request the current request
+     * @return the token, or a random value if the browser has none yet and the page will carry a new one
+     */
+    private static String csrfTokenOf(WebRequest request) {
+        if (request instanceof NativeWebRequest nativeRequest) {
+            Cookie cookie = WebUtils.getCookie(nativeRequest.getNativeRequest(HttpServletRequest.class), CSRF_COOKIE);
+            if (cookie != null) {
+                return cookie.getValue();
+            }
+        }
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.*;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.example.fitnessclubmanagement.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Versioned JSON API over the schedules, for the mobile app. Responses are flat DTOs, never entities.
+ */
+@RestController
+@RequestMapping("/api/v1/schedules")
+public class ScheduleApiController {
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PageETags pageETags;
+
+    @Value("${schedule.page-size:50}")
+    private int schedulePageSize;
+
+    /**
+     * Retrieves a page of the authenticated user's schedules within a date window, the same sessions /schedule/view shows.
+     *
+     * @param userDetails the authenticated user's details
+     * @param from the first date of the window, defaults to the start of this week
+     * @param to the last date of the window, defaults to the end of the week of from
+     * @param after the cursor of the previous page, if any
+     * @param fields the properties of each schedule to send, all of them by default
+     * @param webRequest the request, to answer If-None-Match
+     * @param response the response
+     * @return the page of schedules, or null if it is not modified
+     */
+    @GetMapping
+    public MappingJacksonValue getSchedules(@AuthenticationPrincipal UserDetails userDetails,
+                                            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(value = "after", required = false) String after,
+                                            @RequestParam(value = "fields", required = false) String fields,
+                                            WebRequest webRequest, HttpServletResponse response) {
+        if (from == null) {
+            from = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        if (to == null) {
+            to = from.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+        }
+        ScheduleCursor cursor = after == null || after.isBlank() ? null : ScheduleCursor.decode(after);
+
+        User user = userService.getUserByUsername(userDetails.getUsername());
+        if (pageETags.checkNotModified(webRequest, response, "api", user.getUserId(), user.getVersion(), from, to, cursor,
+                schedulePageSize, fields, scheduleService.getScheduleFingerprint(user, from, to, cursor))) {
+            return null;
+        }
+        SchedulePage page = scheduleService.getSchedulesForUser(user, from, to, cursor, schedulePageSize);
+        List<ScheduleSummary> schedules = page.getSchedules().stream().map(ScheduleSummary::from).toList();
+        return FieldSelection.select(new ApiPage<>(schedules, page.hasNext() ? page.getNextCursor().encode() : null),
+                fields, ScheduleSummary.class);
+    }
+
+    /**
+     * Retrieves a single schedule, e.g. after a change event named it.
+     *
+     * @param userDetails the authenticated user's details
+     * @param scheduleId the ID of the schedule
+     * @param fields the properties to send, all of them by default
+     * @return the schedule
+     * @throws AccessDeniedException if the user is neither an admin nor the trainer or a participant of the session
+     */
+    @GetMapping("/{scheduleId}")
+    public MappingJacksonValue getSchedule(@AuthenticationPrincipal UserDetails userDetails,
+                                           @PathVariable Long scheduleId,
+                                           @RequestParam(value = "fields", required = false) String fields) {
+        Schedule schedule = findVisibleSchedule(userDetails, scheduleId);
+        return FieldSelection.select(ScheduleSummary.from(schedule), fields, ScheduleSummary.class);
+    }
+
+    /**
+     * Retrieves the participants of a schedule with their usernames and attendance.
+     *
+     * @param userDetails the authenticated user's details
+     * @param scheduleId the ID of the schedule
+     * @return the participants, ordered by username
+     * @throws AccessDeniedException if the user is neither an admin nor the trainer or a participant of the session
+     */
+    @GetMapping("/{scheduleId}/roster")
+    public List<RosterMember> getRoster(@AuthenticationPrincipal UserDetails userDetails, @PathVariable Long scheduleId) {
+        Schedule schedule = findVisibleSchedule(userDetails, scheduleId);
+        Set<Long> absentIds = schedule.getAbsentRoster().stream().map(RosterEntry::getUserId).collect(Collectors.toSet());
+        return schedule.getParticipantRoster().stream()
+                .map(entry -> new RosterMember(entry.getUserId(), entry.getUsername(), absentIds.contains(entry.getUserId())))
+                .toList();
+    }
+
+    /**
+     * Loads a schedule with its rosters, if the user may see it.
+     *
+     * @param userDetails the authenticated user's details
+     * @param scheduleId the ID of the schedule
+     * @return the schedule
+     * @throws AccessDeniedException if the user is neither an admin nor the trainer or a participant of the session
+     */
+    private Schedule findVisibleSchedule(UserDetails userDetails, Long scheduleId) {
+        User user = userService.getUserByUsername(userDetails.getUsername());
+        Schedule schedule = scheduleService.findById(scheduleId);
+        boolean visible = user.hasRole(Role.ADMIN)
+                || schedule.getTrainerId().equals(user.getUserId())
+                || schedule.getParticipantRoster().stream().anyMatch(entry -> entry.getUserId().equals(user.getUserId()));
+        if (!visible) {
+            throw new AccessDeniedException("Not one of your sessions");
+        }
+        return schedule;
+    }
+}
@@ -1,24 +1,40 @@
 package org.example.fitnessclubmanagement.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.example.fitnessclubmanagement.exceptions.ScheduleConflictException;
+import org.example.fitnessclubmanagement.exceptions.StaleScheduleException;
+import org.example.fitnessclubmanagement.model.Role;
 import org.example.fitnessclubmanagement.model.Schedule;
 import org.example.fitnessclubmanagement.model.User;
 import org.example.fitnessclubmanagement.payload.*;
+import org.example.fitnessclubmanagement.service.ScheduleEventBroadcaster;
 import org.example.fitnessclubmanagement.service.ScheduleService;
 import org.example.fitnessclubmanagement.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Controller for managing schedules.
@@ -32,37 +48,210 @@ public class ScheduleController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ScheduleEventBroadcaster scheduleEventBroadcaster;
+
+    @Autowired
+    private ScheduleRowCache scheduleRowCache;
+
+    @Autowired
+    private PageETags pageETags;
+
+    @Value("${schedule.page-size:50}")
+    private int schedulePageSize;
+
+    @Value("${users.page-size:100}")
+    private int userPageSize;
+
     /**
      * Displays the schedule editing page.
      *
+     * @param after the username cursor of the previous page of users, if any
      * @param model the model to hold attributes for the view
      * @return the name of the view to render
      */
     @GetMapping("/schedule/edit")
-    public String showSchedulePage(Model model) {
-        List<User> trainers = userService.getUsersByRole("TRAINER");
-        List<User> users = userService.getAllUsers();
+    public String showSchedulePage(@RequestParam(value = "after", required = false) String after, Model model) {
+        List<User> trainers = userService.getUsersByRole(Role.TRAINER);
         model.addAttribute("trainers", trainers);
-        model.addAttribute("users", users);
+        addUserPicker(after, List.of(), model);
         model.addAttribute("trainerId", null); // God I hate thymeleaf
         return "schedule/newsession";
     }
 
     /**
-     * Displays the schedule viewing page.
+     * Shows another page of users on the new session form, keeping what was entered and picked so far.
      *
-     * @param userDetails the authenticated user's details
+     * @param after the username cursor of the page to show, empty for the first one
+     * @param date the date entered, if any
+     * @param trainerId the ID of the trainer picked, if any
+     * @param userIds the IDs of the participants picked so far, on any page
+     * @param startTime the start time entered, if any
+     * @param endTime the end time entered, if any
+     * @param model the model to hold attributes for the view
+     * @return the name of the view to render
+     */
+    @PostMapping(value = "/schedule", params = "after")
+    public String showMoreSessionUsers(@RequestParam("after") String after,
+                                       @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                       @RequestParam(value = "trainerId", required = false) Long trainerId,
+                                       @RequestParam(value = "userIds", required = false) List<Long> userIds,
+                                       @RequestParam(value = "startTime", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime startTime,
+                                       @RequestParam(value = "endTime", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime,
+                                       Model model) {
+        return showNewSessionForm(after, date, trainerId, userIds, startTime, endTime, model);
+    }
+
+    /**
+     * Displays the new session form with what was entered, e.g. after a clash.
+     *
+     * @param after the username cursor of the page of users to show, null for the first one
+     * @param date the date entered
+     * @param trainerId the ID of the trainer picked
+     * @param userIds the IDs of the participants picked
+     * @param startTime the start time entered
+     * @param endTime the end time entered
+     * @param model the model to hold attributes for the view
+     * @return the name of the view to render
+     */
+    private String showNewSessionForm(String after, LocalDate date, Long trainerId, List<Long> userIds,
+                                      LocalTime startTime, LocalTime endTime, Model model) {
+        model.addAttribute("trainers", userService.getUsersByRole(Role.TRAINER));
+        addUserPicker(after, userIds == null ? List.of() : userIds, model);
+        model.addAttribute("date", date);
+        model.addAttribute("trainerId", trainerId);
+        model.addAttribute("startTime", startTime);
+        model.addAttribute("endTime", endTime);
+        return "schedule/newsession";
+    }
+
+    /**
+     * Displays the page for creating a recurring session.
+     *
+     * @param after the username cursor of the previous page of users, if any
+     * @param model the model to hold attributes for the view
+     * @return the name of the view to render
+     */
+    @GetMapping("/schedule/edit/recurring")
+    public String showRecurringSessionPage(@RequestParam(value = "after", required = false) String after, Model model) {
+        RecurringSessionRequest request = new RecurringSessionRequest();
+        model.addAttribute("request", request);
+        addRecurringSessionAttributes(after, request, model);
+        return "schedule/newrecurringsession";
+    }
+
+    /**
+     * Shows another page of users on the recurring session form, keeping what was entered and picked so far.
+     *
+     * @param after the username cursor of the page to show, empty for the first one
+     * @param request what was entered so far, not validated yet
+     * @param result the binding result
      * @param model the model to hold attributes for the view
      * @return the name of the view to render
      */
+    @PostMapping(value = "/schedule/edit/recurring", params = "after")
+    public String showMoreRecurringSessionUsers(@RequestParam("after") String after, @ModelAttribute("request") RecurringSessionRequest request,
+                                                BindingResult result, Model model) {
+        addRecurringSessionAttributes(after, request, model);
+        return "schedule/newrecurringsession";
+    }
+
+    /**
+     * Adds the trainers and a page of users to the recurring session form.
+     *
+     * @param after the username cursor of the page of users to show, null for the first one
+     * @param request the form, whose picked participants stay picked
+     * @param model the model to hold attributes for the view
+     */
+    private void addRecurringSessionAttributes(String after, RecurringSessionRequest request, Model model) {
+        model.addAttribute("trainers", userService.getUsersByRole(Role.TRAINER));
+        addUserPicker(after, request.getUserIds() == null ? List.of() : request.getUserIds(), model);
+        model.addAttribute("recurrences", Recurrence.values());
+    }
+
+    /**
+     * Adds a page of users to pick participants from, with the ones picked so far.
+     * Picked users that aren't on the page are listed on their own, so the form posts the whole selection from any page.
+     *
+     * @param after the username cursor of the page to show, null or empty for the first one
+     * @param userIds the IDs of the users picked so far
+     * @param model the model to hold attributes for the view
+     */
+    private void addUserPicker(String after, Collection<Long> userIds, Model model) {
+        UserPage users = userService.getUserPage(UserSort.USERNAME, after, userPageSize);
+        Set<Long> picked = new HashSet<>(userIds);
+        Set<Long> pickedElsewhere = new HashSet<>(picked);
+        users.getUsers().forEach(user -> pickedElsewhere.remove(user.getUserId()));
+        model.addAttribute("users", users.getUsers());
+        model.addAttribute("usersAfter", after == null || after.isEmpty() ? null : after);
+        model.addAttribute("nextUsersCursor", users.getNextCursor());
+        model.addAttribute("pickedUserIds", picked);
+        model.addAttribute("pickedElsewhere", userService.getUserSummaries(pickedElsewhere));
+    }
+
+    /**
+     * Displays the schedule viewing page, one keyset page of a date window at a time.
+     *
+     * @param userDetails the authenticated user's details
+     * @param from the first date of the window, defaults to the start of this week
+     * @param to the last date of the window, defaults to the end of the week of from
+     * @param after the encoded cursor of the previous page, if any
+     * @param webRequest the request, to answer If-None-Match
+     * @param request the request, the cached rows are rendered against it
+     * @param response the response
+     * @param model the model to hold attributes for the view
+     * @return the name of the view to render, or null if the page is not modified
+     */
     @GetMapping("/schedule/view")
-    public String viewSchedule(@AuthenticationPrincipal UserDetails userDetails, Model model) {
+    public String viewSchedule(@AuthenticationPrincipal UserDetails userDetails,
+                               @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                               @RequestParam(value = "after", required = false) String after,
+                               WebRequest webRequest, HttpServletRequest request, HttpServletResponse response,
+                               Model model) {
+        if (from == null) {
+            from = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        if (to == null) {
+            to = from.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+        }
+        ScheduleCursor cursor = after == null || after.isBlank() ? null : ScheduleCursor.decode(after);
+
         User user = userService.getUserByUsername(userDetails.getUsername());
-        List<Schedule> schedules = scheduleService.getSchedulesForUser(user);
-        model.addAttribute("schedules", schedules);
+        // the viewer's version covers their roles, the fingerprint every session the page could show
+        if (pageETags.checkNotModified(webRequest, response, user.getUserId(), user.getVersion(), from, to, cursor,
+                schedulePageSize, scheduleService.getScheduleFingerprint(user, from, to, cursor))) {
+            return null;
+        }
+        SchedulePage page = scheduleService.getSchedulesForUser(user, from, to, cursor, schedulePageSize);
+        // only rows that changed since they were last shown go through the template engine
+        model.addAttribute("rows", scheduleRowCache.render(page.getSchedules(), user.hasRole(Role.ADMIN),
+                user.hasRole(Role.TRAINER), request, response));
+        model.addAttribute("nextCursor", page.hasNext() ? page.getNextCursor().encode() : null);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("previousWeek", from.minusWeeks(1));
+        model.addAttribute("nextWeek", from.plusWeeks(1));
         return "schedule/viewschedule";
     }
 
+    /**
+     * Streams the changes of the sessions in a date range, of a trainer, or of a trainer within a date range,
+     * as Server-Sent Events once they commit. Events only name the session that changed, so clients reload
+     * their schedule page, which costs a 304 when nothing on it changed.
+     *
+     * @param from the first date of the range, if any
+     * @param to the last date of the range, if any
+     * @param trainerId the ID of the trainer, if any
+     * @return the event stream
+     */
+    @GetMapping(value = "/schedule/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamScheduleChanges(@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(value = "trainerId", required = false) Long trainerId) {
+        return scheduleEventBroadcaster.subscribe(from, to, trainerId);
+    }
+
     /**
      * Displays the page for editing scheule times.
      *
@@ -81,15 +270,51 @@ public class ScheduleController {
      * Displays the page for editing schedule participants.
      *
      * @param scheduleId the ID of the schedule to be edited
+     * @param after the username cursor of the previous page of users, if any
      * @param model the model to hold attributes for the view
      * @return the name of the view to render
      */
     @GetMapping("/schedule/edit/{scheduleId}/participants")
-    public String showEditParticipantsPage(@PathVariable Long scheduleId, Model model) {
-        List<User> users = userService.getAllUsers();
+    public String showEditParticipantsPage(@PathVariable Long scheduleId,
+                                           @RequestParam(value = "after", required = false) String after,
+                                           Model model) {
+        return showParticipantsForm(scheduleId, after, null, null, model);
+    }
+
+    /**
+     * Shows another page of users on the participants form, keeping what was picked so far.
+     *
+     * @param scheduleId the ID of the schedule being edited
+     * @param after the username cursor of the page to show, empty for the first one
+     * @param userIds the IDs of the participants picked so far, on any page
+     * @param version the version of the schedule the form was opened on, if any
+     * @param model the model to hold attributes for the view
+     * @return the name of the view to render
+     */
+    @PostMapping(value = "/schedule/edit/{scheduleId}/participants", params = "after")
+    public String showMoreParticipants(@PathVariable("scheduleId") Long scheduleId, @RequestParam("after") String after,
+                                       @RequestParam(value = "userIds", required = false) List<Long> userIds,
+                                       @RequestParam(value = "version", required = false) Long version,
+                                       Model model) {
+        return showParticipantsForm(scheduleId, after, userIds == null ? List.of() : userIds, version, model);
+    }
+
+    /**
+     * Displays the participants form.
+     *
+     * @param scheduleId the ID of the schedule being edited
+     * @param after the username cursor of the page of users to show, null for the first one
+     * @param userIds the IDs of the participants picked, or null for the current participants
+     * @param version the version the form was opened on, kept so paging doesn't hide changes made meanwhile, or null for the current one
+     * @param model the model to hold attributes for the view
+     * @return the name of the view to render
+     */
+    private String showParticipantsForm(Long scheduleId, String after, List<Long> userIds, Long version, Model model) {
         Schedule schedule = scheduleService.findById(scheduleId);
-        model.addAttribute("users", users);
         model.addAttribute("schedule", schedule);
+        model.addAttribute("version", version != null ? version : schedule.getVersion());
+        addUserPicker(after, userIds != null ? userIds
+                : schedule.getParticipantRoster().stream().map(RosterEntry::getUserId).toList(), model);
         return "schedule/editsessionparticipants";
     }
 
@@ -102,13 +327,33 @@ public class ScheduleController {
      */
     @GetMapping("/schedule/edit/{scheduleId}/trainer")
     public String showEditTrainerPage(@PathVariable Long scheduleId, Model model) {
-        List<User> trainers = userService.getUsersByRole("TRAINER");
+        List<User> trainers = userService.getUsersByRole(Role.TRAINER);
         Schedule schedule = scheduleService.findById(scheduleId);
         model.addAttribute("trainers", trainers);
         model.addAttribute("schedule", schedule);
         return "schedule/editsessiontrainer";
     }
 
+    /**
+     * Checks which of the proposed participants already have a session overlapping a time slot.
+     *
+     * @param userIds the IDs of the proposed participants
+     * @param date the date of the session
+     * @param startTime the start time of the session
+     * @param endTime the end time of the session
+     * @param excludeId the ID of the session being edited, if any
+     * @return the clashing sessions per member, empty if everyone is available
+     */
+    @GetMapping("/schedule/edit/availability")
+    @ResponseBody
+    public List<ScheduleConflict> checkAvailability(@RequestParam("userIds") List<Long> userIds,
+                                                    @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                    @RequestParam("startTime") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime startTime,
+                                                    @RequestParam("endTime") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime,
+                                                    @RequestParam(value = "excludeId", required = false) Long excludeId) {
+        return scheduleService.findMemberConflicts(userIds, date, startTime, endTime, excludeId);
+    }
+
     /**
      * Displays the page for marking attendance.
      *
@@ -131,32 +376,78 @@ public class ScheduleController {
      * @param userIds the IDs of the participants
      * @param startTime the start time of the session
      * @param endTime the end time of the session
-     * @return a redirect to the schedule viewing page
+     * @param request the request, to tell the form from other callers
+     * @param model the model to hold attributes for the view
+     * @return a redirect to the schedule viewing page, or the form again if the session clashes with another
      */
     @PostMapping("/schedule")
     public String scheduleSession(@RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
                                   @RequestParam("trainerId") Long trainerId,
                                   @RequestParam("userIds") List<Long> userIds,
                                   @RequestParam("startTime") @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime startTime,
-                                  @RequestParam("endTime")@DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime) {
-        scheduleService.scheduleSession(trainerId, userIds, date, startTime, endTime);
+                                  @RequestParam("endTime")@DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime,
+                                  HttpServletRequest request, Model model) {
+        try {
+            scheduleService.scheduleSession(trainerId, userIds, date, startTime, endTime);
+        } catch (ScheduleConflictException e) {
+            addConflict(e, request, model);
+            // what was entered, so only the clash needs fixing
+            return showNewSessionForm(null, date, trainerId, userIds, startTime, endTime, model);
+        }
         return "redirect:/schedule/view";
     }
 
+    /**
+     * Schedules a recurring session, one session per occurrence.
+     *
+     * @param request the request containing the recurrence and the session details
+     * @param result the binding result
+     * @param httpRequest the request, to tell the form from other callers
+     * @param model the model to hold attributes for the view
+     * @return a redirect to the schedule viewing page at the first occurrence, or the form again if it has errors
+     */
+    @PostMapping("/schedule/edit/recurring")
+    public String scheduleRecurringSession(@Valid @ModelAttribute("request") RecurringSessionRequest request, BindingResult result,
+                                           HttpServletRequest httpRequest, Model model) {
+        if (result.hasErrors()) {
+            addRecurringSessionAttributes(null, request, model);
+            return "schedule/newrecurringsession";
+        }
+        try {
+            scheduleService.scheduleRecurringSession(request);
+        } catch (ScheduleConflictException e) {
+            addConflict(e, httpRequest, model);
+            addRecurringSessionAttributes(null, request, model);
+            return "schedule/newrecurringsession";
+        }
+        return "redirect:/schedule/view?from=" + request.getStartDate();
+    }
+
     /**
      * Updates the time of an existing schedule.
      *
      * @param scheduleId the ID of the schedule to be updated
      * @param request the request containing the new start and end times
      * @param result the binding result
-     * @return a redirect to the schedule viewing page
+     * @param httpRequest the request, to tell the form from other callers
+     * @param model the model to hold attributes for the view
+     * @return a redirect to the schedule viewing page, or the form again if it has errors or the session changed meanwhile
      */
     @PostMapping("/schedule/edit/{scheduleId}/time")
-    public String updateClassTime(@PathVariable("scheduleId") Long scheduleId, @Valid @ModelAttribute("request") TimeRequest request, BindingResult result) {
+    public String updateClassTime(@PathVariable("scheduleId") Long scheduleId, @Valid @ModelAttribute("request") TimeRequest request, BindingResult result,
+                                  HttpServletRequest httpRequest, Model model) {
         if (result.hasErrors()) {
-            return "schedule/editsessiontimes";
+            return showEditTimePage(scheduleId, model);
+        }
+        try {
+            scheduleService.updateSchedule(scheduleId, request.getVersion(), request.getStartTime(), request.getEndTime(), null, null);
+        } catch (ScheduleConflictException e) {
+            addConflict(e, httpRequest, model);
+            return showEditTimePage(scheduleId, model);
+        } catch (StaleScheduleException e) {
+            addStaleEdit(e, httpRequest, model);
+            return showEditTimePage(scheduleId, model);
         }
-        scheduleService.updateSchedule(scheduleId, request.getStartTime(), request.getEndTime(), null, null);
         return "redirect:/schedule/view";
     }
 
@@ -165,11 +456,25 @@ public class ScheduleController {
      *
      * @param scheduleId the ID of the schedule to be updated
      * @param trainerId the ID of the new trainer
-     * @return a redirect to the schedule viewing page
+     * @param version the version of the schedule the form was opened on, if any
+     * @param request the request, to tell the form from other callers
+     * @param model the model to hold attributes for the view
+     * @return a redirect to the schedule viewing page, or the form again if the trainer is booked at that time or the
+     * session changed meanwhile
      */
     @PostMapping("/schedule/edit/{scheduleId}/trainer")
-    public String updateClassTrainer(@PathVariable("scheduleId") Long scheduleId, @RequestParam Long trainerId) {
-        scheduleService.updateSchedule(scheduleId, null, null, trainerId, null);
+    public String updateClassTrainer(@PathVariable("scheduleId") Long scheduleId, @RequestParam Long trainerId,
+                                     @RequestParam(value = "version", required = false) Long version,
+                                     HttpServletRequest request, Model model) {
+        try {
+            scheduleService.updateSchedule(scheduleId, version, null, null, trainerId, null);
+        } catch (ScheduleConflictException e) {
+            addConflict(e, request, model);
+            return showEditTrainerPage(scheduleId, model);
+        } catch (StaleScheduleException e) {
+            addStaleEdit(e, request, model);
+            return showEditTrainerPage(scheduleId, model);
+        }
         return "redirect:/schedule/view";
     }
 
@@ -178,14 +483,66 @@ public class ScheduleController {
      *
      * @param scheduleId the ID of the schedule to be updated
      * @param userIds the IDs of the new participants
-     * @return a redirect to the schedule viewing page
+     * @param version the version of the schedule the form was opened on, if any
+     * @param request the request, to tell the form from other callers
+     * @param model the model to hold attributes for the view
+     * @return a redirect to the schedule viewing page, or the form again if a member is booked at that time or the
+     * session changed meanwhile
      */
     @PostMapping("/schedule/edit/{scheduleId}/participants")
-    public String updateScheduleParticipants(@PathVariable("scheduleId") Long scheduleId, @RequestParam List<Long> userIds) {
-        scheduleService.updateSchedule(scheduleId, null, null, null, userIds);
+    public String updateScheduleParticipants(@PathVariable("scheduleId") Long scheduleId, @RequestParam List<Long> userIds,
+                                             @RequestParam(value = "version", required = false) Long version,
+                                             HttpServletRequest request, Model model) {
+        try {
+            scheduleService.updateSchedule(scheduleId, version, null, null, null, userIds);
+        } catch (ScheduleConflictException e) {
+            addConflict(e, request, model);
+            return showParticipantsForm(scheduleId, null, userIds, version, model);
+        } catch (StaleScheduleException e) {
+            addStaleEdit(e, request, model);
+            return showParticipantsForm(scheduleId, null, null, null, model); // the current participants and version
+        }
         return "redirect:/schedule/view";
     }
 
+    /**
+     * Puts a booking clash on the form it came from, so the page can list the clashing sessions.
+     * Callers that didn't post from a page, e.g. scripts asking for JSON, get the 409 of GlobalExceptionHandler instead.
+     *
+     * @param e the clash
+     * @param request the request
+     * @param model the model to hold attributes for the view
+     * @throws ScheduleConflictException the clash again, if the caller doesn't take HTML
+     */
+    private void addConflict(ScheduleConflictException e, HttpServletRequest request, Model model) {
+        if (!acceptsHtml(request)) {
+            throw e;
+        }
+        model.addAttribute("errorMessage", e.getMessage());
+        model.addAttribute("conflicts", e.getConflicts());
+    }
+
+    /**
+     * Puts an edit of a session someone else changed meanwhile on the form it came from, which then shows the session
+     * as it is now. Callers that didn't post from a page get the 409 of GlobalExceptionHandler instead.
+     *
+     * @param e the stale edit
+     * @param request the request
+     * @param model the model to hold attributes for the view
+     * @throws StaleScheduleException the stale edit again, if the caller doesn't take HTML
+     */
+    private void addStaleEdit(StaleScheduleException e, HttpServletRequest request, Model model) {
+        if (!acceptsHtml(request)) {
+            throw e;
+        }
+        model.addAttribute("errorMessage", e.getMessage());
+    }
+
+    private static boolean acceptsHtml(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.TEXT_HTML_VALUE);
+    }
+
     /**
      * Marks attendance for a schedule.
      *
@@ -202,6 +559,19 @@ public class ScheduleController {
         return "redirect:/schedule/view";
     }
 
+    /**
+     * Changes the attendance of single participants, participants not listed keep their attendance.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param request the IDs of the participants to mark present and absent
+     * @return the IDs of the participants whose attendance changed
+     */
+    @PatchMapping("/schedule/mark-attendance/{scheduleId}")
+    @ResponseBody
+    public AttendanceChangeResult updateAttendance(@PathVariable("scheduleId") Long scheduleId, @RequestBody AttendanceChangeRequest request) {
+        return scheduleService.updateAttendance(scheduleId, request);
+    }
+
     /**
      * Deletes a schedule.
      *
@@ -0,0 +1,180 @@
+package org.example.fitnessclubmanagement.controller;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.payload.CacheStats;
+import org.example.fitnessclubmanagement.payload.ScheduleChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the rendered rows of the schedule page, so a page with thousands of sessions only runs the
+ * template engine for the rows that changed since they were last shown.
+ * A row is keyed by its schedule and rendered once per row version for each kind of viewer (member, trainer, admin).
+ * Every ScheduleService write bumps the version or the attendance version, as does renaming a user on the roster,
+ * so a changed row is never served from the cache. Rows hold nothing session specific, so all sessions share them.
+ */
+@Component
+public class ScheduleRowCache implements MeterBinder {
+
+    private static final String TEMPLATE = "schedule/schedulerow";
+
+    private static final Set<String> ROW_FRAGMENT = Set.of("row");
+
+    private static final int VIEWS = 4; // one per combination of the admin and trainer flags
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Value("${schedule.row-cache.max-size:20000}")
+    private int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // access ordered, so the eldest entry is always the least recently shown session
+    private final LinkedHashMap<Long, CachedRow> rows = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedRow> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private volatile JakartaServletWebApplication application;
+
+    /**
+     * Returns the rendered rows of a page of schedules, rendering and caching the ones that aren't cached at their
+     * current version yet.
+     *
+     * @param schedules the schedules of the page, with their rosters loaded
+     * @param admin whether the viewer is an admin
+     * @param trainer whether the viewer is a trainer
+     * @param request the current request, links in the rows are built against it
+     * @param response the current response
+     * @return the HTML of each row, in the order of the schedules
+     */
+    public List<String> render(List<Schedule> schedules, boolean admin, boolean trainer,
+                               HttpServletRequest request, HttpServletResponse response) {
+        int view = (admin ? 2 : 0) + (trainer ? 1 : 0);
+        List<String> html = new ArrayList<>(schedules.size());
+        WebContext context = null;
+        for (Schedule schedule : schedules) {
+            String row = get(schedule, view);
+            if (row == null) {
+                if (context == null) {
+                    context = new WebContext(application(request).buildExchange(request, response), request.getLocale());
+                    context.setVariable("admin", admin);
+                    context.setVariable("trainer", trainer);
+                }
+                context.setVariable("schedule", schedule);
+                row = templateEngine.process(TEMPLATE, ROW_FRAGMENT, context); // outside the lock, rendering is the slow part
+                put(schedule, view, row);
+            }
+            html.add(row);
+        }
+        return html;
+    }
+
+    /**
+     * Drops the rows of a changed session straight away rather than waiting for them to be evicted.
+     *
+     * @param change the committed change
+     */
+    @TransactionalEventListener
+    public void onScheduleChange(ScheduleChange change) {
+        synchronized (rows) {
+            if (rows.remove(change.getScheduleId()) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the current counters of the cache.
+     *
+     * @return the cache stats
+     */
+    public CacheStats getStats() {
+        synchronized (rows) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), 0, invalidations.get(), rows.size(), maxSize);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("schedule.row-cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("schedule.row-cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("schedule.row-cache.removals", evictions, AtomicLong::get).tag("cause", "size").register(registry);
+        FunctionCounter.builder("schedule.row-cache.removals", invalidations, AtomicLong::get).tag("cause", "invalidated").register(registry);
+        Gauge.builder("schedule.row-cache.size", this, cache -> cache.getStats().getSize()).register(registry);
+    }
+
+    private String get(Schedule schedule, int view) {
+        synchronized (rows) {
+            CachedRow cached = rows.get(schedule.getScheduleId());
+            if (cached != null && cached.version.equals(schedule.getRowVersion()) && cached.html[view] != null) {
+                hits.incrementAndGet();
+                return cached.html[view];
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void put(Schedule schedule, int view, String html) {
+        synchronized (rows) {
+            CachedRow cached = rows.get(schedule.getScheduleId());
+            if (cached == null || cached.version < schedule.getRowVersion()) {
+                cached = new CachedRow(schedule.getRowVersion()); // older versions of the row are of no use any more
+                rows.put(schedule.getScheduleId(), cached);
+            } else if (cached.version > schedule.getRowVersion()) {
+                return; // rendered from a page that was loaded before a newer version got cached
+            }
+            cached.html[view] = html;
+        }
+    }
+
+    private JakartaServletWebApplication application(HttpServletRequest request) {
+        if (application == null) {
+            application = JakartaServletWebApplication.buildApplication(request.getServletContext());
+        }
+        return application;
+    }
+
+    /**
+     * The rendered rows of one version of a session, one per kind of viewer.
+     */
+    private static class CachedRow {
+
+        private final Long version;
+
+        private final String[] html = new String[VIEWS];
+
+        CachedRow(Long version) {
+            this.version = version;
+        }
+    }
+}
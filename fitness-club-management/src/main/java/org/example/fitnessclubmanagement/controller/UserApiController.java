@@ -0,0 +1,55 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.fitnessclubmanagement.payload.ApiPage;
+import org.example.fitnessclubmanagement.payload.UserPage;
+import org.example.fitnessclubmanagement.payload.UserSort;
+import org.example.fitnessclubmanagement.payload.UserSummary;
+import org.example.fitnessclubmanagement.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Versioned JSON API over the user directory, for the mobile app (admin).
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+public class UserApiController {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PageETags pageETags;
+
+    @Value("${users.page-size:100}")
+    private int userPageSize;
+
+    /**
+     * Retrieves a page of the user directory, the same rows as /users.
+     *
+     * @param sort the column to sort by
+     * @param after the cursor of the previous page, if any
+     * @param fields the properties of each user to send, all of them by default
+     * @param webRequest the request, to answer If-None-Match
+     * @param response the response
+     * @return the page of users, or null if it is not modified
+     */
+    @GetMapping
+    public MappingJacksonValue getUsers(@RequestParam(value = "sort", defaultValue = "USERNAME") UserSort sort,
+                                        @RequestParam(value = "after", required = false) String after,
+                                        @RequestParam(value = "fields", required = false) String fields,
+                                        WebRequest webRequest, HttpServletResponse response) {
+        UserPage page = userService.getUserPage(sort, after, userPageSize);
+        if (pageETags.checkNotModified(webRequest, response, "api", sort, after, userPageSize, fields, page.fingerprint())) {
+            return null;
+        }
+        return FieldSelection.select(new ApiPage<>(page.getUsers(), page.getNextCursor()), fields, UserSummary.class);
+    }
+}
@@ -1,20 +1,24 @@
 package org.example.fitnessclubmanagement.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.example.fitnessclubmanagement.exceptions.UserAlreadyExistsException;
 import org.example.fitnessclubmanagement.model.User;
 import org.example.fitnessclubmanagement.payload.UpdatePasswordRequest;
+import org.example.fitnessclubmanagement.payload.UserPage;
+import org.example.fitnessclubmanagement.payload.UserSort;
 import org.example.fitnessclubmanagement.payload.UserUpdateRequest;
-import org.example.fitnessclubmanagement.repository.UserRepository;
 import org.example.fitnessclubmanagement.service.AuthService;
 import org.example.fitnessclubmanagement.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Controller for managing user-related operations.
@@ -29,17 +33,33 @@ public class UserController {
     private AuthService authService;
 
     @Autowired
-    private UserRepository userRepository;
+    private PageETags pageETags;
+
+    @Value("${users.page-size:100}")
+    private int userPageSize;
 
     /**
-     * Displays a list of all users.
+     * Displays one page of the user directory.
      *
+     * @param sort the column to sort by
+     * @param after the cursor of the previous page, if any
+     * @param webRequest the request, to answer If-None-Match
+     * @param response the response
      * @param model the model to hold attributes for the view
-     * @return the name of the view to render
+     * @return the name of the view to render, or null if the page is not modified
      */
     @GetMapping("/users")
-    public String getUsers(Model model) {
-        model.addAttribute("users", userRepository.findAll());
+    public String getUsers(@RequestParam(value = "sort", defaultValue = "USERNAME") UserSort sort,
+                           @RequestParam(value = "after", required = false) String after,
+                           WebRequest webRequest, HttpServletResponse response,
+                           Model model) {
+        UserPage page = userService.getUserPage(sort, after, userPageSize);
+        if (pageETags.checkNotModified(webRequest, response, sort, after, userPageSize, page.fingerprint())) {
+            return null; // the page query is a single cheap select, rendering is what gets skipped
+        }
+        model.addAttribute("users", page.getUsers());
+        model.addAttribute("sort", page.getSort());
+        model.addAttribute("nextCursor", page.getNextCursor());
         return "user/users";
     }
 
@@ -0,0 +1,21 @@
+package org.example.fitnessclubmanagement.exceptions;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Thrown when the password hashing executor is full and a hash can't be computed right now.
+ * Extends AuthenticationServiceException so it reaches the login failure handler untouched.
+ */
+public class HashingCapacityExceededException extends AuthenticationServiceException {
+
+    private final long retryAfterSeconds;
+
+    public HashingCapacityExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.fitnessclubmanagement.exceptions;
+
+import org.example.fitnessclubmanagement.payload.ScheduleConflict;
+
+import java.util.List;
+
+/**
+ * Thrown when a booking would put someone into two sessions at the same time.
+ */
+public class ScheduleConflictException extends RuntimeException {
+
+    private final List<ScheduleConflict> conflicts;
+
+    public ScheduleConflictException(String message, List<ScheduleConflict> conflicts) {
+        super(message); // the sessions go out as JSON, see GlobalExceptionHandler
+        this.conflicts = conflicts;
+    }
+
+    public List<ScheduleConflict> getConflicts() {
+        return conflicts;
+    }
+}
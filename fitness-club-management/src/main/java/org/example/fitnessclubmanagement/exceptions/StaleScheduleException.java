@@ -0,0 +1,18 @@
+package org.example.fitnessclubmanagement.exceptions;
+
+/**
+ * Thrown when a schedule edit was based on a version of the session that someone else has changed since.
+ */
+public class StaleScheduleException extends RuntimeException {
+
+    private final Long scheduleId;
+
+    public StaleScheduleException(Long scheduleId) {
+        super("Session " + scheduleId + " was changed by someone else, reload it and try again");
+        this.scheduleId = scheduleId;
+    }
+
+    public Long getScheduleId() {
+        return scheduleId;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.fitnessclubmanagement.exceptions;
+
+/**
+ * Thrown when a node already holds as many schedule event subscriptions as it is allowed to.
+ */
+public class SubscriberLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public SubscriberLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
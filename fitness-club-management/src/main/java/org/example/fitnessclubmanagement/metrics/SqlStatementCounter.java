@@ -0,0 +1,92 @@
+package org.example.fitnessclubmanagement.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Data source wrapper that counts the SQL statements run on the current thread, whether they come from Hibernate or
+ * straight from JdbcTemplate. RequestMetricsFilter resets and reads it around every request.
+ */
+public class SqlStatementCounter extends DelegatingDataSource {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    public SqlStatementCounter(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    /**
+     * Resets the count of the current thread.
+     */
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    /**
+     * Returns the number of statements run on the current thread since the last reset.
+     *
+     * @return the statement count
+     */
+    public static int current() {
+        return COUNT.get()[0];
+    }
+
+    /**
+     * Counts every statement prepared on a connection, and the SQL run through its plain statements.
+     *
+     * @param connection the pooled connection
+     * @return the counting connection
+     */
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare")) {
+                        COUNT.get()[0]++;
+                    }
+                    Object result = invoke(connection, method, args);
+                    return method.getName().equals("createStatement") ? counting((Statement) result) : result;
+                });
+    }
+
+    /**
+     * Counts the SQL run through a plain statement, a batch counts once per statement added to it.
+     *
+     * @param statement the statement
+     * @return the counting statement
+     */
+    private static Statement counting(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if ((name.startsWith("execute") || name.equals("addBatch")) && args != null && args[0] instanceof String) {
+                        COUNT.get()[0]++;
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.fitnessclubmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Attendance counts of one member with one trainer in one time slot of one week.
+ * Kept up to date by AttendanceStatsService whenever the attendance of a session changes,
+ * so reading the stats never has to scan the sessions themselves.
+ */
+@Entity
+@Table(name = "attendance_stats")
+@IdClass(AttendanceStatId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceStat {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "trainer_id")
+    private Long trainerId;
+
+    @Id
+    @Column(name = "week_start")
+    private LocalDate weekStart; // the Monday of the week
+
+    @Id
+    @Column(name = "day_of_week")
+    private int dayOfWeek; // ISO, 1 is Monday
+
+    @Id
+    @Column(name = "start_time")
+    private LocalTime startTime;
+
+    @Column(name = "attended", nullable = false)
+    private int attended;
+
+    @Column(name = "missed", nullable = false)
+    private int missed;
+}
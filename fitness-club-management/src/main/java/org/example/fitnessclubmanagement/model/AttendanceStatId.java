@@ -0,0 +1,28 @@
+package org.example.fitnessclubmanagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Composite key of an AttendanceStat row.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceStatId implements Serializable {
+
+    private Long userId;
+
+    private Long trainerId;
+
+    private LocalDate weekStart;
+
+    private int dayOfWeek;
+
+    private LocalTime startTime;
+}
@@ -0,0 +1,89 @@
+package org.example.fitnessclubmanagement.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Roles of a user, stored together as a bitmask in the role_mask column of the users table.
+ * Each role keeps a fixed bit, so reordering or adding roles never changes what is already stored.
+ */
+public enum Role {
+
+    USER(1),
+    ADMIN(2),
+    TRAINER(4);
+
+    private final int bit;
+
+    Role(int bit) {
+        this.bit = bit;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    /**
+     * Checks if this role is set in a mask.
+     *
+     * @param mask the role mask
+     * @return true if the mask contains this role, false otherwise
+     */
+    public boolean in(int mask) {
+        return (mask & bit) != 0;
+    }
+
+    /**
+     * Lists every mask that contains this role.
+     * There are only a handful, so a role filter becomes an IN list the role_mask index can seek into.
+     *
+     * @return the masks containing this role, in ascending order
+     */
+    public List<Integer> masksWith() {
+        List<Integer> masks = new ArrayList<>();
+        for (int mask = 0; mask <= allMask(); mask++) {
+            if (in(mask)) {
+                masks.add(mask);
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * Packs roles into a mask.
+     *
+     * @param roles the roles, may be null
+     * @return the mask with a bit set for every role
+     */
+    public static int toMask(Collection<Role> roles) {
+        int mask = 0;
+        if (roles != null) {
+            for (Role role : roles) {
+                mask |= role.bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Unpacks a mask into roles, bits of unknown roles are ignored.
+     *
+     * @param mask the role mask
+     * @return a new modifiable set of the roles in the mask
+     */
+    public static EnumSet<Role> fromMask(int mask) {
+        EnumSet<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : values()) {
+            if (role.in(mask)) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    private static int allMask() {
+        return toMask(EnumSet.allOf(Role.class));
+    }
+}
@@ -1,15 +1,20 @@
 package org.example.fitnessclubmanagement.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.example.fitnessclubmanagement.payload.RosterEntry;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -20,12 +25,22 @@ import java.util.Set;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(exclude = "participants")
+@EqualsAndHashCode(exclude = {"version", "attendanceVersion", "participants", "participantRoster", "absentRoster"})
 public class Schedule {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long scheduleId;
 
+    // Bumped by the targeted updates of ScheduleRepository too, which ScheduleService uses instead of saving the entity
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Bumped instead of version when attendance changes, which the edit forms don't care about
+    @ColumnDefault("0")
+    @Column(name = "attendance_version", nullable = false)
+    private long attendanceVersion;
+
     @Column(name = "date", nullable = false)
     private LocalDate date;
 
@@ -38,19 +53,50 @@ public class Schedule {
     @Column(name = "trainer_id", nullable = false)
     private Long trainerId;
 
+    // Only sessions that had their attendance taken count towards the attendance stats
+    @ColumnDefault("false")
+    @Column(name = "attendance_marked", nullable = false)
+    private boolean attendanceMarked;
+
+    // Join tables are named explicitly because ScheduleRepository writes to them directly.
+    // Never serialized, the JSON API sends ScheduleSummary with plain user IDs instead
+    @JsonIgnore
     @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "schedule_participants",
+            joinColumns = @JoinColumn(name = "schedule_schedule_id"),
+            inverseJoinColumns = @JoinColumn(name = "participants_user_id"))
     private Set<User> participants;
 
+    @JsonIgnore
     @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "schedule_absent_users",
+            joinColumns = @JoinColumn(name = "schedule_schedule_id"),
+            inverseJoinColumns = @JoinColumn(name = "absent_users_user_id"))
     private Set<User> absentUsers = new HashSet<>();
 
     @Transient
     private String trainerName;
 
+    // Read-only rosters filled by RosterLoader, sorted by username for the views
+    @Transient
+    private List<RosterEntry> participantRoster = new ArrayList<>();
+
+    @Transient
+    private List<RosterEntry> absentRoster = new ArrayList<>();
+
     public Schedule(Long trainerId, LocalDate date, LocalTime startTime, LocalTime endTime) {
         this.trainerId = trainerId;
         this.date = date;
         this.startTime = startTime;
         this.endTime = endTime;
     }
+
+    /**
+     * Returns a version of everything the session's row shows, which moves with every edit and attendance change.
+     *
+     * @return the sum of the version and the attendance version
+     */
+    public Long getRowVersion() {
+        return version + attendanceVersion;
+    }
 }
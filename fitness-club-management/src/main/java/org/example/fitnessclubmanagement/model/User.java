@@ -20,13 +20,17 @@ import java.util.Set;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@EqualsAndHashCode(exclude = "schedules")
+@EqualsAndHashCode(exclude = {"version", "schedules"})
 public class User {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long userId;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @NotBlank(message = "Username is required")
     @Size(min = 3, max = 20, message = "Username must be between 3 and 20 characters")
     @Column(name = "username", unique = true, nullable = false)
@@ -43,21 +47,49 @@ public class User {
     @Column(name = "password", nullable = false)
     private String password;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "roles", joinColumns = @JoinColumn(name = "userId"))
-    @Column(name = "role")
-    private Set<String> roles = new HashSet<>(); // default empty set
+    // all roles packed into one column, see Role, so loading a user is a single row read
+    @Column(name = "role_mask", nullable = false)
+    private int roleMask;
 
     @ManyToMany(mappedBy = "participants")
     private Set<Schedule> schedules = new HashSet<>();
     
 
     // because no ID, we can't use annotations for all args constructor
-    public User(String username, String email, String hashedPassword, Set<String> roles) {
+    public User(String username, String email, String hashedPassword, Set<Role> roles) {
         this.username = username;
         this.email = email;
         this.password = hashedPassword;
-        this.roles = roles;
+        this.roleMask = Role.toMask(roles);
+    }
+
+    /**
+     * Returns the roles of the user, unpacked from the role mask.
+     * The set is a copy, changes only take effect through setRoles.
+     *
+     * @return the roles of the user
+     */
+    public Set<Role> getRoles() {
+        return Role.fromMask(roleMask);
+    }
+
+    /**
+     * Replaces the roles of the user.
+     *
+     * @param roles the new roles
+     */
+    public void setRoles(Set<Role> roles) {
+        this.roleMask = Role.toMask(roles);
+    }
+
+    /**
+     * Checks if the user has a role, templates can pass the role by name.
+     *
+     * @param role the role to check
+     * @return true if the user has the role, false otherwise
+     */
+    public boolean hasRole(Role role) {
+        return role.in(roleMask);
     }
 
 }
@@ -0,0 +1,20 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A keyset page of the JSON API.
+ *
+ * @param <T> the type of the items
+ */
+@Data
+@AllArgsConstructor
+public class ApiPage<T> {
+
+    private List<T> items;
+
+    private String nextCursor; // pass as ?after= for the next page, null when this is the last page
+}
@@ -0,0 +1,17 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Request payload for changing the attendance of single participants, members not listed keep their attendance.
+ */
+@Data
+public class AttendanceChangeRequest {
+
+    private Set<Long> present = new HashSet<>();
+
+    private Set<Long> absent = new HashSet<>();
+}
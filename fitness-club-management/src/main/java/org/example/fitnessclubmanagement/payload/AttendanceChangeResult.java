@@ -0,0 +1,20 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of an attendance change, only members whose attendance actually changed are listed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceChangeResult {
+
+    private List<Long> markedPresent;
+
+    private List<Long> markedAbsent;
+}
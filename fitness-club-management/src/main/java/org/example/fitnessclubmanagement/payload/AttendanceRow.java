@@ -0,0 +1,35 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One participant of one session in the attendance export, read straight from the join tables.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceRow {
+
+    private Long scheduleId;
+
+    private LocalDate date;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    private Long trainerId;
+
+    private String trainerName;
+
+    private Long userId;
+
+    private String username;
+
+    private Boolean present; // null until the attendance of the session is taken
+}
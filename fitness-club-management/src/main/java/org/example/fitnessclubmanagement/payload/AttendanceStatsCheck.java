@@ -0,0 +1,20 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of comparing the attendance stats table with the raw attendance data.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceStatsCheck {
+
+    private long expectedRows; // stats rows the raw data adds up to
+
+    private long mismatches; // rows that are missing, stale or have the wrong counts
+
+    private long rowsWritten; // only set by a rebuild
+}
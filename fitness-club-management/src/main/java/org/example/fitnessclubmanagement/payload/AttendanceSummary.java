@@ -0,0 +1,40 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Dashboard row: how often a member attended a trainer's sessions in one week.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceSummary {
+
+    private LocalDate weekStart;
+
+    private Long userId;
+
+    private String username;
+
+    private Long trainerId;
+
+    private String trainerName;
+
+    private long attended;
+
+    private long missed;
+
+    /**
+     * Returns the share of sessions attended, as a whole percentage.
+     *
+     * @return the attendance rate from 0 to 100
+     */
+    public int getRate() {
+        long total = attended + missed;
+        return total == 0 ? 0 : Math.round(attended * 100f / total);
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Snapshot of an in-process cache's counters, used to size it.
+ */
+@Data
+@AllArgsConstructor
+public class CacheStats {
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions; // dropped because the cache was full
+
+    private long expirations; // dropped because the entry outlived its TTL
+
+    private long invalidations; // dropped because the user record changed
+
+    private int size;
+
+    private int maxSize;
+}
@@ -0,0 +1,24 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk member import.
+ */
+@Data
+public class ImportReport {
+
+    private long rows;
+
+    private long imported;
+
+    private long failed;
+
+    // only the first errors are kept so a bad file can't blow up the heap, failed has the real count
+    private List<ImportRowError> errors = new ArrayList<>();
+
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,16 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A row of an import file that was not imported, and why.
+ */
+@Data
+@AllArgsConstructor
+public class ImportRowError {
+
+    private long line; // 1-based, the header is line 1
+
+    private String message;
+}
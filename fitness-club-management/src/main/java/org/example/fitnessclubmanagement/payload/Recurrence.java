@@ -0,0 +1,9 @@
+package org.example.fitnessclubmanagement.payload;
+
+/**
+ * How often a recurring session repeats.
+ */
+public enum Recurrence {
+    DAILY,
+    WEEKLY
+}
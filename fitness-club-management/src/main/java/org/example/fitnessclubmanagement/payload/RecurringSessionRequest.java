@@ -0,0 +1,51 @@
+package org.example.fitnessclubmanagement.payload;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request payload for creating a session that repeats until an end date, e.g. a weekly class for a whole term.
+ */
+@Data
+public class RecurringSessionRequest {
+
+    @NotNull(message = "Trainer is required")
+    private Long trainerId;
+
+    @NotEmpty(message = "At least one participant is required")
+    private List<Long> userIds = new ArrayList<>();
+
+    @NotNull(message = "Start date is required")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate startDate;
+
+    @NotNull(message = "End date is required")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDate;
+
+    @NotNull(message = "Start time is required")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.TIME)
+    private LocalTime startTime;
+
+    @NotNull(message = "End time is required")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.TIME)
+    private LocalTime endTime;
+
+    @NotNull(message = "Recurrence is required")
+    private Recurrence recurrence = Recurrence.WEEKLY;
+
+    @Min(value = 1, message = "Interval must be at least 1")
+    private int interval = 1; // every n days or weeks
+
+    // dates without a class, e.g. public holidays
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private List<LocalDate> skipDates = new ArrayList<>();
+}
@@ -0,0 +1,21 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read-only view of a user attached to a schedule session (participant, absentee or trainer).
+ * Built straight from JPQL constructor expressions so no User entity or roles are loaded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RosterEntry {
+
+    private Long scheduleId;
+
+    private Long userId;
+
+    private String username;
+}
@@ -0,0 +1,20 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A participant of a session as sent by the JSON API, with their attendance.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RosterMember {
+
+    private Long userId;
+
+    private String username;
+
+    private boolean absent;
+}
@@ -0,0 +1,27 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cheap summary of a set of rows: how many there are and the sums of their IDs and versions, aggregated in the database.
+ * Every update bumps a version and new rows take higher IDs than the ones they replace, so changes to the rows
+ * show up in at least one of the numbers without the rows ever being loaded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RowFingerprint {
+
+    private Long rows;
+
+    private Long idSum;
+
+    private Long versionSum;
+
+    @Override
+    public String toString() {
+        return rows + "-" + idSum + "-" + versionSum;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A committed change to a session, pushed to the subscribers of its date and trainer.
+ * It only says which session changed, clients reload the page to see the change itself.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleChange {
+
+    private ScheduleChangeType type;
+
+    private Long scheduleId;
+
+    private LocalDate date;
+
+    private Long trainerId;
+
+    private Long previousTrainerId; // set when the session moved to another trainer, whose subscribers hear about it too
+
+    public ScheduleChange(ScheduleChangeType type, Long scheduleId, LocalDate date, Long trainerId) {
+        this(type, scheduleId, date, trainerId, null);
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.fitnessclubmanagement.payload;
+
+/**
+ * What happened to a session, sent as the event name of a schedule change.
+ */
+public enum ScheduleChangeType {
+    CREATED,
+    UPDATED,
+    ATTENDANCE,
+    DELETED
+}
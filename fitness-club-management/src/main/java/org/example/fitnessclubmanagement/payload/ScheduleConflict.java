@@ -0,0 +1,33 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A session that clashes with a proposed booking, seen from the person who is already booked into it.
+ * Built straight from JPQL constructor expressions so no Schedule entity is loaded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleConflict {
+
+    private Long userId;
+
+    private Long scheduleId;
+
+    private LocalDate date;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    @Override
+    public String toString() {
+        return "session " + scheduleId + " on " + date + " " + startTime + "-" + endTime;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of a 409 answering a booking that would double-book someone, so clients can point at the clashing sessions.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleConflictReport {
+
+    private String message;
+
+    private List<ScheduleConflict> conflicts;
+}
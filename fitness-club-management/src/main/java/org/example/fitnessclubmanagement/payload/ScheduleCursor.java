@@ -0,0 +1,61 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keyset cursor for paging through schedules ordered by (date, startTime, scheduleId).
+ * A page contains the sessions that come strictly after the cursor.
+ */
+@Data
+@AllArgsConstructor
+public class ScheduleCursor {
+
+    private LocalDate date;
+
+    private LocalTime startTime;
+
+    private Long scheduleId;
+
+    /**
+     * Creates a cursor that sits before every session on the given date.
+     *
+     * @param date the first date to include
+     * @return the cursor
+     */
+    public static ScheduleCursor startOf(LocalDate date) {
+        return new ScheduleCursor(date, LocalTime.MIN, 0L);
+    }
+
+    /**
+     * Encodes the cursor for use in a URL, e.g. {@code 2024-11-04_09:00_42}.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        return date + "_" + startTime + "_" + scheduleId;
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode()}.
+     *
+     * @param value the encoded cursor
+     * @return the cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static ScheduleCursor decode(String value) {
+        String[] parts = value.split("_");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        try {
+            return new ScheduleCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.example.fitnessclubmanagement.model.Schedule;
+
+import java.util.List;
+
+/**
+ * A single keyset page of schedules.
+ */
+@Data
+@AllArgsConstructor
+public class SchedulePage {
+
+    private List<Schedule> schedules;
+
+    private ScheduleCursor nextCursor; // null when this is the last page
+
+    /**
+     * Checks if there are more schedules after this page.
+     *
+     * @return true if there is a next page, false otherwise
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
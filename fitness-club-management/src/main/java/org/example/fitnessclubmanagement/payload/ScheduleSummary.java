@@ -0,0 +1,55 @@
+package org.example.fitnessclubmanagement.payload;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.fitnessclubmanagement.model.Schedule;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Flat view of a session for the JSON API. Participants are plain user IDs and the trainer name is the one
+ * RosterLoader resolved for the whole page, so no User entity or lazy collection is ever serialized.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter("fields") // the API's ?fields= picks the properties to send
+public class ScheduleSummary {
+
+    private Long scheduleId;
+
+    private LocalDate date;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    private Long trainerId;
+
+    private String trainerName;
+
+    private boolean attendanceMarked;
+
+    private Long version;
+
+    private List<Long> participantIds;
+
+    private List<Long> absentIds;
+
+    /**
+     * Creates the summary of a schedule whose rosters were loaded.
+     *
+     * @param schedule the schedule, with its trainer name and rosters filled in
+     * @return the summary
+     */
+    public static ScheduleSummary from(Schedule schedule) {
+        return new ScheduleSummary(schedule.getScheduleId(), schedule.getDate(), schedule.getStartTime(), schedule.getEndTime(),
+                schedule.getTrainerId(), schedule.getTrainerName(), schedule.isAttendanceMarked(), schedule.getVersion(),
+                schedule.getParticipantRoster().stream().map(RosterEntry::getUserId).toList(),
+                schedule.getAbsentRoster().stream().map(RosterEntry::getUserId).toList());
+    }
+}
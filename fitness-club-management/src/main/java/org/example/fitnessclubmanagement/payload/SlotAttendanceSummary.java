@@ -0,0 +1,48 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * Dashboard row: how often members attended a trainer's sessions in one weekly time slot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotAttendanceSummary {
+
+    private Long trainerId;
+
+    private String trainerName;
+
+    private int dayOfWeek; // ISO, 1 is Monday
+
+    private LocalTime startTime;
+
+    private long attended;
+
+    private long missed;
+
+    /**
+     * Returns the day of the week of the slot.
+     *
+     * @return the day
+     */
+    public DayOfWeek getDay() {
+        return DayOfWeek.of(dayOfWeek);
+    }
+
+    /**
+     * Returns the share of sessions attended, as a whole percentage.
+     *
+     * @return the attendance rate from 0 to 100
+     */
+    public int getRate() {
+        long total = attended + missed;
+        return total == 0 ? 0 : Math.round(attended * 100f / total);
+    }
+}
@@ -19,4 +19,6 @@ public class TimeRequest {
     @NotNull
     @DateTimeFormat(iso = DateTimeFormat.ISO.TIME)
     private LocalTime endTime;
+
+    private Long version; // the version of the session the form was opened on, null to edit the current one
 }
@@ -0,0 +1,16 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A committed change to a user record, whose cached login details must be dropped.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange {
+
+    private String username;
+}
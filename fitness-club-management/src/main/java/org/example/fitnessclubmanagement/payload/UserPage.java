@@ -0,0 +1,42 @@
+package org.example.fitnessclubmanagement.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A single keyset page of the user directory.
+ */
+@Data
+@AllArgsConstructor
+public class UserPage {
+
+    private List<UserSummary> users;
+
+    private UserSort sort;
+
+    private String nextCursor; // value of the sort column on the last row, null when this is the last page
+
+    /**
+     * Checks if there are more users after this page.
+     *
+     * @return true if there is a next page, false otherwise
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Summarises the rows of the page by their IDs and versions, it changes whenever any of them is updated.
+     *
+     * @return the fingerprint of the page
+     */
+    public String fingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        for (UserSummary user : users) {
+            fingerprint.append(user.getUserId()).append(':').append(user.getVersion()).append(',');
+        }
+        return fingerprint.append(nextCursor).toString();
+    }
+}
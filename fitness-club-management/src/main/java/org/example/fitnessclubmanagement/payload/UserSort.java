@@ -0,0 +1,10 @@
+package org.example.fitnessclubmanagement.payload;
+
+/**
+ * Columns the user directory can be sorted and paged by. Each one is unique, so it is a keyset on its own.
+ */
+public enum UserSort {
+    USERNAME,
+    EMAIL,
+    ID
+}
@@ -0,0 +1,47 @@
+package org.example.fitnessclubmanagement.payload;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import org.example.fitnessclubmanagement.model.Role;
+
+import java.util.Set;
+
+/**
+ * Read-only row of the user directory, fetched with its roles in a single query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonFilter("fields") // the API's ?fields= picks the properties to send
+public class UserSummary {
+
+    private Long userId;
+
+    private String username;
+
+    private String email;
+
+    private Set<Role> roles;
+
+    private Long version;
+
+    /**
+     * Creates a summary from the role mask selected by the directory query.
+     *
+     * @param userId the ID of the user
+     * @param username the username of the user
+     * @param email the email of the user
+     * @param roleMask the role mask of the user
+     * @param version the version of the user row
+     */
+    public UserSummary(Long userId, String username, String email, int roleMask, Long version) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.roles = Role.fromMask(roleMask);
+        this.version = version;
+    }
+}
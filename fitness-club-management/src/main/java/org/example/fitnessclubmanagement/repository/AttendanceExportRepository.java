@@ -0,0 +1,23 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.payload.AttendanceRow;
+
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only reads of the attendance history that never build Schedule entities.
+ */
+public interface AttendanceExportRepository {
+
+    /**
+     * Streams one row per participant per session, ordered by session and then username.
+     * Rows are handed over one at a time while the cursor moves, so nothing is collected in memory.
+     *
+     * @param from the first date to export
+     * @param to the last date to export
+     * @param trainerId the ID of the trainer to export for, or null for every trainer
+     * @param consumer receives each row
+     */
+    void streamAttendance(LocalDate from, LocalDate to, Long trainerId, Consumer<AttendanceRow> consumer);
+}
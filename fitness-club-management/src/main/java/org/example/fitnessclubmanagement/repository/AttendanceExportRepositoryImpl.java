@@ -0,0 +1,74 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.payload.AttendanceRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.function.Consumer;
+
+/**
+ * JDBC implementation of the attendance export, picked up by Spring Data as a fragment of ScheduleRepository.
+ */
+public class AttendanceExportRepositoryImpl implements AttendanceExportRepository {
+
+    private static final String ATTENDANCE_SELECT = "SELECT s.schedule_id, s.date, s.start_time, s.end_time, s.trainer_id, " +
+            "t.username AS trainer_name, u.user_id, u.username, " +
+            "CASE WHEN s.attendance_marked = FALSE THEN NULL WHEN a.absent_users_user_id IS NULL THEN 1 ELSE 0 END AS present " +
+            "FROM schedule s " +
+            "JOIN schedule_participants p ON p.schedule_schedule_id = s.schedule_id " +
+            "JOIN users u ON u.user_id = p.participants_user_id " +
+            "LEFT JOIN users t ON t.user_id = s.trainer_id " +
+            "LEFT JOIN schedule_absent_users a ON a.schedule_schedule_id = s.schedule_id " +
+            "AND a.absent_users_user_id = p.participants_user_id " +
+            "WHERE s.date >= ? AND s.date <= ?";
+
+    private static final String ATTENDANCE_ORDER = " ORDER BY s.date, s.start_time, s.schedule_id, u.username";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${attendance.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    public void streamAttendance(LocalDate from, LocalDate to, Long trainerId, Consumer<AttendanceRow> consumer) {
+        String sql = ATTENDANCE_SELECT + (trainerId != null ? " AND s.trainer_id = ?" : "") + ATTENDANCE_ORDER;
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize); // with useCursorFetch the driver pulls this many rows at a time
+            statement.setObject(1, from);
+            statement.setObject(2, to);
+            if (trainerId != null) {
+                statement.setLong(3, trainerId);
+            }
+            return statement;
+        }, (ResultSet resultSet) -> consumer.accept(new AttendanceRow(
+                resultSet.getLong("schedule_id"),
+                resultSet.getObject("date", LocalDate.class),
+                resultSet.getObject("start_time", LocalTime.class),
+                resultSet.getObject("end_time", LocalTime.class),
+                resultSet.getLong("trainer_id"),
+                resultSet.getString("trainer_name"),
+                resultSet.getLong("user_id"),
+                resultSet.getString("username"),
+                present(resultSet))));
+    }
+
+    /**
+     * Reads whether the participant was there.
+     *
+     * @param resultSet the row
+     * @return whether they were present, or null if the attendance of the session wasn't taken yet
+     * @throws SQLException if the column can't be read
+     */
+    private static Boolean present(ResultSet resultSet) throws SQLException {
+        int present = resultSet.getInt("present");
+        return resultSet.wasNull() ? null : present == 1;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.payload.AttendanceStatsCheck;
+
+import java.util.Collection;
+
+/**
+ * Writes and checks of the attendance stats table that work on the raw join tables through JDBC.
+ */
+public interface AttendanceStatMaintenance {
+
+    /**
+     * Adds (or with a sign of -1 removes) the attendance of one session to the stats, one row per participant.
+     *
+     * @param schedule the session, its trainer, date and start time decide the stats rows
+     * @param sign 1 to add the session, -1 to remove it
+     */
+    void applySession(Schedule schedule, int sign);
+
+    /**
+     * Moves single members of an already counted session between attended and missed.
+     *
+     * @param schedule the session, its trainer, date and start time decide the stats rows
+     * @param nowPresent the IDs of members that went from absent to present
+     * @param nowAbsent the IDs of members that went from present to absent
+     */
+    void applyAttendanceChanges(Schedule schedule, Collection<Long> nowPresent, Collection<Long> nowAbsent);
+
+    /**
+     * Compares the stats table with what the raw attendance data adds up to, in one pass over each.
+     *
+     * @return the number of expected rows and of rows that don't match
+     */
+    AttendanceStatsCheck verify();
+
+    /**
+     * Throws away the stats table and computes it again from the raw attendance data.
+     *
+     * @return the number of rows written
+     */
+    long rebuild();
+}
@@ -0,0 +1,259 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.payload.AttendanceStatsCheck;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * JDBC implementation of the attendance stats maintenance, picked up by Spring Data as a fragment of AttendanceStatRepository.
+ */
+public class AttendanceStatMaintenanceImpl implements AttendanceStatMaintenance {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String UPSERT_SQL = "INSERT INTO attendance_stats (user_id, trainer_id, week_start, day_of_week, start_time, " +
+            "attended, missed) VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE attended = attended + ?, missed = missed + ?";
+
+    private static final String INSERT_SQL = "INSERT INTO attendance_stats (user_id, trainer_id, week_start, day_of_week, start_time, " +
+            "attended, missed) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SESSION_ATTENDANCE_SQL = "SELECT p.participants_user_id AS user_id, " +
+            "CASE WHEN a.absent_users_user_id IS NULL THEN 1 ELSE 0 END AS present " +
+            "FROM schedule_participants p " +
+            "LEFT JOIN schedule_absent_users a ON a.schedule_schedule_id = p.schedule_schedule_id " +
+            "AND a.absent_users_user_id = p.participants_user_id " +
+            "WHERE p.schedule_schedule_id = ?";
+
+    // Grouped per day and start time in SQL, each row is one stats row whose week is worked out while streaming, week
+    // maths isn't portable SQL. Ordering by member, trainer, date and start time is the order of the stats keys.
+    private static final String RAW_SLOTS_SQL = "SELECT p.participants_user_id AS user_id, s.trainer_id, s.date, s.start_time, " +
+            "SUM(CASE WHEN a.absent_users_user_id IS NULL THEN 1 ELSE 0 END) AS attended, " +
+            "SUM(CASE WHEN a.absent_users_user_id IS NULL THEN 0 ELSE 1 END) AS missed " +
+            "FROM schedule s " +
+            "JOIN schedule_participants p ON p.schedule_schedule_id = s.schedule_id " +
+            "LEFT JOIN schedule_absent_users a ON a.schedule_schedule_id = s.schedule_id " +
+            "AND a.absent_users_user_id = p.participants_user_id " +
+            "WHERE s.attendance_marked = TRUE " +
+            "GROUP BY p.participants_user_id, s.trainer_id, s.date, s.start_time " +
+            "ORDER BY p.participants_user_id, s.trainer_id, s.date, s.start_time";
+
+    private static final String STATS_SQL = "SELECT user_id, trainer_id, week_start, day_of_week, start_time, attended, missed " +
+            "FROM attendance_stats WHERE attended <> 0 OR missed <> 0 " +
+            "ORDER BY user_id, trainer_id, week_start, day_of_week, start_time";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void applySession(Schedule schedule, int sign) {
+        LocalDate weekStart = weekStart(schedule.getDate());
+        int dayOfWeek = schedule.getDate().getDayOfWeek().getValue();
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query(SESSION_ATTENDANCE_SQL, (ResultSet resultSet) -> {
+            int attended = resultSet.getInt("present") * sign;
+            int missed = (1 - resultSet.getInt("present")) * sign;
+            rows.add(new Object[]{resultSet.getLong("user_id"), schedule.getTrainerId(), weekStart, dayOfWeek, schedule.getStartTime(),
+                    attended, missed, attended, missed});
+        }, schedule.getScheduleId());
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        }
+    }
+
+    @Override
+    public void applyAttendanceChanges(Schedule schedule, Collection<Long> nowPresent, Collection<Long> nowAbsent) {
+        LocalDate weekStart = weekStart(schedule.getDate());
+        int dayOfWeek = schedule.getDate().getDayOfWeek().getValue();
+        List<Object[]> rows = new ArrayList<>(nowPresent.size() + nowAbsent.size());
+        for (Long userId : nowPresent) {
+            rows.add(new Object[]{userId, schedule.getTrainerId(), weekStart, dayOfWeek, schedule.getStartTime(), 1, -1, 1, -1});
+        }
+        for (Long userId : nowAbsent) {
+            rows.add(new Object[]{userId, schedule.getTrainerId(), weekStart, dayOfWeek, schedule.getStartTime(), -1, 1, -1, 1});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        }
+    }
+
+    @Override
+    public AttendanceStatsCheck verify() {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement rawStatement = forwardOnly(connection, RAW_SLOTS_SQL);
+                 PreparedStatement statsStatement = forwardOnly(connection, STATS_SQL);
+                 ResultSet raw = rawStatement.executeQuery();
+                 ResultSet stats = statsStatement.executeQuery()) {
+                StatRow expectedRow = readRaw(raw);
+                StatRow actualRow = readStat(stats);
+                long expectedRows = 0;
+                long mismatches = 0;
+
+                // both sides come sorted by key, so a single merge pass finds every difference
+                while (expectedRow != null || actualRow != null) {
+                    int order = expectedRow == null ? 1 : actualRow == null ? -1 : expectedRow.compareKey(actualRow);
+                    if (order == 0) {
+                        expectedRows++;
+                        if (expectedRow.attended != actualRow.attended || expectedRow.missed != actualRow.missed) {
+                            mismatches++;
+                        }
+                        expectedRow = readRaw(raw);
+                        actualRow = readStat(stats);
+                    } else if (order < 0) {
+                        expectedRows++;
+                        mismatches++; // missing from the stats
+                        expectedRow = readRaw(raw);
+                    } else {
+                        mismatches++; // stale row the raw data doesn't back up
+                        actualRow = readStat(stats);
+                    }
+                }
+                return new AttendanceStatsCheck(expectedRows, mismatches, 0);
+            }
+        });
+    }
+
+    @Override
+    public long rebuild() {
+        jdbcTemplate.update("DELETE FROM attendance_stats");
+        return Objects.requireNonNull(jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement rawStatement = forwardOnly(connection, RAW_SLOTS_SQL);
+                 PreparedStatement insert = connection.prepareStatement(INSERT_SQL);
+                 ResultSet raw = rawStatement.executeQuery()) {
+                long written = 0;
+                int batched = 0;
+                for (StatRow row = readRaw(raw); row != null; row = readRaw(raw)) {
+                    insert.setLong(1, row.userId);
+                    insert.setLong(2, row.trainerId);
+                    insert.setObject(3, row.weekStart);
+                    insert.setInt(4, row.dayOfWeek);
+                    insert.setObject(5, row.startTime);
+                    insert.setInt(6, row.attended);
+                    insert.setInt(7, row.missed);
+                    insert.addBatch();
+                    written++;
+                    if (++batched == BATCH_SIZE) {
+                        insert.executeBatch();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    insert.executeBatch();
+                }
+                return written;
+            }
+        }));
+    }
+
+    /**
+     * Prepares a read-only, forward-only statement that streams its rows.
+     *
+     * @param connection the connection
+     * @param sql the query
+     * @return the statement
+     * @throws SQLException if the statement can't be prepared
+     */
+    private PreparedStatement forwardOnly(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(BATCH_SIZE);
+        return statement;
+    }
+
+    /**
+     * Reads the next row of the stats table.
+     *
+     * @param stats the stats result set
+     * @return the row, or null when there are no more rows
+     * @throws SQLException if the row can't be read
+     */
+    private StatRow readStat(ResultSet stats) throws SQLException {
+        if (!stats.next()) {
+            return null;
+        }
+        return new StatRow(stats.getLong("user_id"), stats.getLong("trainer_id"), stats.getObject("week_start", LocalDate.class),
+                stats.getInt("day_of_week"), stats.getObject("start_time", LocalTime.class), stats.getInt("attended"), stats.getInt("missed"));
+    }
+
+    /**
+     * Reads the next row of the raw attendance data as the stats row it adds up to.
+     *
+     * @param raw the raw result set, grouped per member, trainer, day and start time
+     * @return the row, or null when there are no more rows
+     * @throws SQLException if the row can't be read
+     */
+    private StatRow readRaw(ResultSet raw) throws SQLException {
+        if (!raw.next()) {
+            return null;
+        }
+        LocalDate date = raw.getObject("date", LocalDate.class);
+        return new StatRow(raw.getLong("user_id"), raw.getLong("trainer_id"), weekStart(date), date.getDayOfWeek().getValue(),
+                raw.getObject("start_time", LocalTime.class), raw.getInt("attended"), raw.getInt("missed"));
+    }
+
+    /**
+     * Returns the Monday of the week a date falls in, which is the week key of the stats.
+     *
+     * @param date the date
+     * @return the Monday on or before the date
+     */
+    static LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * Counts of one member with one trainer in one time slot of one week.
+     */
+    private static class StatRow {
+
+        private final long userId;
+
+        private final long trainerId;
+
+        private final LocalDate weekStart;
+
+        private final int dayOfWeek;
+
+        private final LocalTime startTime;
+
+        private final int attended;
+
+        private final int missed;
+
+        StatRow(long userId, long trainerId, LocalDate weekStart, int dayOfWeek, LocalTime startTime, int attended, int missed) {
+            this.userId = userId;
+            this.trainerId = trainerId;
+            this.weekStart = weekStart;
+            this.dayOfWeek = dayOfWeek;
+            this.startTime = startTime;
+            this.attended = attended;
+            this.missed = missed;
+        }
+
+        int compareKey(StatRow other) {
+            int order = Long.compare(userId, other.userId);
+            if (order == 0) {
+                order = Long.compare(trainerId, other.trainerId);
+            }
+            if (order == 0) {
+                order = weekStart.compareTo(other.weekStart);
+            }
+            if (order == 0) {
+                order = Integer.compare(dayOfWeek, other.dayOfWeek);
+            }
+            return order != 0 ? order : startTime.compareTo(other.startTime);
+        }
+    }
+}
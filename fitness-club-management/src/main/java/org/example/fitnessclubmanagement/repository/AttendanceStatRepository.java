@@ -0,0 +1,53 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.model.AttendanceStat;
+import org.example.fitnessclubmanagement.model.AttendanceStatId;
+import org.example.fitnessclubmanagement.payload.AttendanceSummary;
+import org.example.fitnessclubmanagement.payload.SlotAttendanceSummary;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for the attendance stats read model.
+ */
+public interface AttendanceStatRepository extends JpaRepository<AttendanceStat, AttendanceStatId>, AttendanceStatMaintenance {
+
+    /**
+     * Finds the stats of the weeks in a range per member and trainer, with member and trainer names.
+     *
+     * @param from the first week start to include
+     * @param to the last week start to include
+     * @param limit the maximum number of rows to return
+     * @return the rows ordered by week, then member, then trainer
+     */
+    @Query("SELECT new org.example.fitnessclubmanagement.payload.AttendanceSummary(a.weekStart, a.userId, u.username, " +
+            "a.trainerId, t.username, SUM(a.attended), SUM(a.missed)) FROM AttendanceStat a " +
+            "JOIN User u ON u.userId = a.userId LEFT JOIN User t ON t.userId = a.trainerId " +
+            "WHERE a.weekStart >= :from AND a.weekStart <= :to " +
+            "GROUP BY a.weekStart, a.userId, u.username, a.trainerId, t.username " +
+            "HAVING SUM(a.attended) + SUM(a.missed) > 0 " +
+            "ORDER BY a.weekStart, u.username, t.username")
+    List<AttendanceSummary> findSummaries(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+
+    /**
+     * Finds the stats of the weeks in a range per trainer and weekly time slot, over every member.
+     *
+     * @param from the first week start to include
+     * @param to the last week start to include
+     * @param limit the maximum number of rows to return
+     * @return the rows ordered by trainer, then day of the week, then start time
+     */
+    @Query("SELECT new org.example.fitnessclubmanagement.payload.SlotAttendanceSummary(a.trainerId, t.username, " +
+            "a.dayOfWeek, a.startTime, SUM(a.attended), SUM(a.missed)) FROM AttendanceStat a " +
+            "LEFT JOIN User t ON t.userId = a.trainerId " +
+            "WHERE a.weekStart >= :from AND a.weekStart <= :to " +
+            "GROUP BY a.trainerId, t.username, a.dayOfWeek, a.startTime " +
+            "HAVING SUM(a.attended) + SUM(a.missed) > 0 " +
+            "ORDER BY t.username, a.dayOfWeek, a.startTime")
+    List<SlotAttendanceSummary> findSlotSummaries(@Param("from") LocalDate from, @Param("to") LocalDate to, Limit limit);
+}
@@ -0,0 +1,28 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.model.Schedule;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk writes for schedules that go through JDBC batches, since IDENTITY keys stop Hibernate from batching inserts.
+ */
+public interface ScheduleBatchRepository {
+
+    /**
+     * Inserts the given schedules in a single JDBC batch and sets their generated IDs.
+     *
+     * @param schedules the schedules to insert, participants are ignored
+     * @return the generated schedule IDs, in the same order as the schedules
+     */
+    List<Long> insertAllInBatch(List<Schedule> schedules);
+
+    /**
+     * Adds the same participants to every given schedule in a single JDBC batch.
+     *
+     * @param scheduleIds the IDs of the schedules
+     * @param userIds the IDs of the participants, already checked to exist
+     */
+    void insertParticipantsInBatch(List<Long> scheduleIds, Collection<Long> userIds);
+}
@@ -0,0 +1,67 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC implementation of the batched schedule writes, picked up by Spring Data as a fragment of ScheduleRepository.
+ * Runs on the connection of the surrounding JPA transaction.
+ */
+public class ScheduleBatchRepositoryImpl implements ScheduleBatchRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertAllInBatch(List<Schedule> schedules) {
+        if (schedules.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO schedule (date, start_time, end_time, trainer_id, attendance_marked) VALUES (?, ?, ?, ?, FALSE)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Schedule schedule : schedules) {
+                    statement.setObject(1, schedule.getDate());
+                    statement.setObject(2, schedule.getStartTime());
+                    statement.setObject(3, schedule.getEndTime());
+                    statement.setLong(4, schedule.getTrainerId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                // drivers hand back the keys of a batch in insert order
+                List<Long> ids = new ArrayList<>(schedules.size());
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                if (ids.size() != schedules.size()) {
+                    throw new SQLException("Expected " + schedules.size() + " generated keys but got " + ids.size());
+                }
+                for (int i = 0; i < schedules.size(); i++) {
+                    schedules.get(i).setScheduleId(ids.get(i));
+                }
+                return ids;
+            }
+        });
+    }
+
+    @Override
+    public void insertParticipantsInBatch(List<Long> scheduleIds, Collection<Long> userIds) {
+        List<Object[]> rows = new ArrayList<>(scheduleIds.size() * userIds.size());
+        for (Long scheduleId : scheduleIds) {
+            for (Long userId : userIds) {
+                rows.add(new Object[]{scheduleId, userId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO schedule_participants (schedule_schedule_id, participants_user_id) VALUES (?, ?)", rows);
+    }
+}
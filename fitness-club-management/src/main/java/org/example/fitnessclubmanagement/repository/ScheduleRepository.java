@@ -2,22 +2,42 @@ package org.example.fitnessclubmanagement.repository;
 
 import org.example.fitnessclubmanagement.model.Schedule;
 import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.RowFingerprint;
+import org.example.fitnessclubmanagement.payload.ScheduleConflict;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for managing Schedule entities.
  */
-public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
+public interface ScheduleRepository extends JpaRepository<Schedule, Long>, ScheduleBatchRepository, AttendanceExportRepository {
+
+    // Keyset predicate shared by the paged queries: inside the date window and strictly after the cursor
+    String WINDOW_AFTER_CURSOR = "s.date >= :afterDate AND s.date <= :to AND (s.date > :afterDate " +
+            "OR (s.date = :afterDate AND (s.startTime > :afterTime " +
+            "OR (s.startTime = :afterTime AND s.scheduleId > :afterId))))";
+
+    String KEYSET_ORDER = " ORDER BY s.date, s.startTime, s.scheduleId";
+
+    String FINGERPRINT_SELECT = "SELECT new org.example.fitnessclubmanagement.payload.RowFingerprint(COUNT(s), " +
+            "COALESCE(SUM(s.scheduleId), 0), COALESCE(SUM(s.version + s.attendanceVersion), 0)) FROM Schedule s WHERE ";
 
     /**
      * Finds all schedules that contain the given user as a participant.
      * @param user the user to search for
      * @return a list of schedules that contain the given user as a participant
      */
-    List<Schedule> findByParticipantsContaining(User user);
+    @Query("SELECT s FROM Schedule s JOIN s.participants p WHERE p = :user") // joined, the derived query checks every schedule
+    List<Schedule> findByParticipantsContaining(@Param("user") User user);
 
     /**
      * Finds schedules by thr trainer's ID.
@@ -28,10 +48,304 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
     List<Schedule> findByTrainerId(Long trainerId);
 
     /**
-     * Finds all schedules ordered by date and start time.
+     * Finds the next page of schedules after the cursor, up to the end of the date window.
+     *
+     * @param afterDate the date of the cursor
+     * @param afterTime the start time of the cursor
+     * @param afterId the schedule ID of the cursor
+     * @param to the last date of the window
+     * @param limit the maximum number of schedules to return
+     * @return the schedules ordered by date, start time and ID
+     */
+    @Query("SELECT s FROM Schedule s WHERE " + WINDOW_AFTER_CURSOR + KEYSET_ORDER)
+    List<Schedule> findPageAfter(@Param("afterDate") LocalDate afterDate, @Param("afterTime") LocalTime afterTime,
+                                 @Param("afterId") Long afterId, @Param("to") LocalDate to, Limit limit);
+
+    /**
+     * Finds the next page of schedules the given user is a participant in.
+     *
+     * @param userId the ID of the participant
+     * @param afterDate the date of the cursor
+     * @param afterTime the start time of the cursor
+     * @param afterId the schedule ID of the cursor
+     * @param to the last date of the window
+     * @param limit the maximum number of schedules to return
+     * @return the schedules ordered by date, start time and ID
+     */
+    @Query("SELECT s FROM Schedule s JOIN s.participants p WHERE p.userId = :userId AND " + WINDOW_AFTER_CURSOR + KEYSET_ORDER)
+    List<Schedule> findParticipantPageAfter(@Param("userId") Long userId, @Param("afterDate") LocalDate afterDate,
+                                            @Param("afterTime") LocalTime afterTime, @Param("afterId") Long afterId,
+                                            @Param("to") LocalDate to, Limit limit);
+
+    /**
+     * Finds the next page of schedules the given user is the trainer for.
+     *
+     * @param trainerId the ID of the trainer
+     * @param afterDate the date of the cursor
+     * @param afterTime the start time of the cursor
+     * @param afterId the schedule ID of the cursor
+     * @param to the last date of the window
+     * @param limit the maximum number of schedules to return
+     * @return the schedules ordered by date, start time and ID
+     */
+    @Query("SELECT s FROM Schedule s WHERE s.trainerId = :trainerId AND " + WINDOW_AFTER_CURSOR + KEYSET_ORDER)
+    List<Schedule> findTrainerPageAfter(@Param("trainerId") Long trainerId, @Param("afterDate") LocalDate afterDate,
+                                        @Param("afterTime") LocalTime afterTime, @Param("afterId") Long afterId,
+                                        @Param("to") LocalDate to, Limit limit);
+
+    /**
+     * Fingerprints every schedule in the date window after the cursor, without loading them.
+     *
+     * @param afterDate the date of the cursor
+     * @param afterTime the start time of the cursor
+     * @param afterId the schedule ID of the cursor
+     * @param to the last date of the window
+     * @return the fingerprint of the schedules
+     */
+    @Query(FINGERPRINT_SELECT + WINDOW_AFTER_CURSOR)
+    RowFingerprint findWindowFingerprint(@Param("afterDate") LocalDate afterDate, @Param("afterTime") LocalTime afterTime,
+                                         @Param("afterId") Long afterId, @Param("to") LocalDate to);
+
+    /**
+     * Fingerprints the schedules in the date window after the cursor that a user trains or takes part in, without loading them.
+     *
+     * @param userId the ID of the user
+     * @param afterDate the date of the cursor
+     * @param afterTime the start time of the cursor
+     * @param afterId the schedule ID of the cursor
+     * @param to the last date of the window
+     * @return the fingerprint of the schedules
+     */
+    @Query(FINGERPRINT_SELECT + "(s.trainerId = :userId OR EXISTS (SELECT 1 FROM Schedule s2 JOIN s2.participants p " +
+            "WHERE s2.scheduleId = s.scheduleId AND p.userId = :userId)) AND " + WINDOW_AFTER_CURSOR)
+    RowFingerprint findViewerWindowFingerprint(@Param("userId") Long userId, @Param("afterDate") LocalDate afterDate,
+                                               @Param("afterTime") LocalTime afterTime, @Param("afterId") Long afterId,
+                                               @Param("to") LocalDate to);
+
+    /**
+     * Moves a schedule to new times, if nobody changed it since the given version was read.
+     * Only the two columns and the version are written, and the row lock is held just for this statement's transaction.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param version the version the change was based on
+     * @param startTime the new start time
+     * @param endTime the new end time
+     * @return 1 if the schedule was updated, 0 if it was changed or deleted in the meantime
+     */
+    @Modifying
+    @Query("UPDATE Schedule s SET s.startTime = :startTime, s.endTime = :endTime, s.version = s.version + 1 " +
+            "WHERE s.scheduleId = :scheduleId AND s.version = :version")
+    int updateTimes(@Param("scheduleId") Long scheduleId, @Param("version") Long version,
+                    @Param("startTime") LocalTime startTime, @Param("endTime") LocalTime endTime);
+
+    /**
+     * Hands a schedule to another trainer, if nobody changed it since the given version was read.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param version the version the change was based on
+     * @param trainerId the ID of the new trainer
+     * @return 1 if the schedule was updated, 0 if it was changed or deleted in the meantime
+     */
+    @Modifying
+    @Query("UPDATE Schedule s SET s.trainerId = :trainerId, s.version = s.version + 1 " +
+            "WHERE s.scheduleId = :scheduleId AND s.version = :version")
+    int updateTrainer(@Param("scheduleId") Long scheduleId, @Param("version") Long version, @Param("trainerId") Long trainerId);
+
+    /**
+     * Bumps the version of a schedule whose join tables are about to be written, if nobody changed it since the
+     * given version was read. Run before the join rows are written, so concurrent editors queue on the row.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param version the version the change was based on
+     * @return 1 if the version was bumped, 0 if it was changed or deleted in the meantime
+     */
+    @Modifying
+    @Query("UPDATE Schedule s SET s.version = s.version + 1 WHERE s.scheduleId = :scheduleId AND s.version = :version")
+    int updateVersion(@Param("scheduleId") Long scheduleId, @Param("version") Long version);
+
+    /**
+     * Locks the row of a schedule until the transaction ends, so attendance changes of one session run one after
+     * the other and each reads the attendance the previous one wrote. Native, since Hibernate would check the version
+     * of a schedule it already loaded and fail instead of waiting.
+     *
+     * @param scheduleId the ID of the schedule
+     * @return the ID, if the schedule exists
+     */
+    @Query(value = "SELECT schedule_id FROM schedule WHERE schedule_id = :scheduleId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockRow(@Param("scheduleId") Long scheduleId);
+
+    /**
+     * Flags the attendance of a schedule as taken and bumps its attendance version, unless it was taken before.
+     * Only one of several concurrent first markings matches the row, so its class is counted once.
+     * The version the edit forms check is left alone, taking attendance doesn't make them stale.
+     *
+     * @param scheduleId the ID of the schedule
+     * @return 1 if this was the first marking, 0 if attendance was taken before or the schedule is gone
+     */
+    @Modifying
+    @Query("UPDATE Schedule s SET s.attendanceMarked = TRUE, s.attendanceVersion = s.attendanceVersion + 1 " +
+            "WHERE s.scheduleId = :scheduleId AND s.attendanceMarked = FALSE")
+    int markAttendanceTaken(@Param("scheduleId") Long scheduleId);
+
+    /**
+     * Bumps the attendance version of a schedule whose attendance changed after it was first taken.
+     *
+     * @param scheduleId the ID of the schedule
+     * @return the number of schedules bumped
+     */
+    @Modifying
+    @Query("UPDATE Schedule s SET s.attendanceVersion = s.attendanceVersion + 1 WHERE s.scheduleId = :scheduleId")
+    int touchAttendance(@Param("scheduleId") Long scheduleId);
+
+    /**
+     * Bumps the version of every schedule a user trains, schedule pages show the trainer's username.
+     *
+     * @param userId the ID of the user
+     * @return the number of schedules bumped
+     */
+    @Modifying
+    @Query(value = "UPDATE schedule SET version = version + 1 WHERE trainer_id = :userId", nativeQuery = true)
+    int touchSchedulesTrainedBy(@Param("userId") Long userId);
+
+    /**
+     * Bumps the version of every schedule a user takes part in, schedule pages show the participants' usernames.
+     *
+     * @param userId the ID of the user
+     * @return the number of schedules bumped
+     */
+    @Modifying
+    @Query(value = "UPDATE schedule SET version = version + 1 WHERE schedule_id IN " +
+            "(SELECT schedule_schedule_id FROM schedule_participants WHERE participants_user_id = :userId)", nativeQuery = true)
+    int touchSchedulesAttendedBy(@Param("userId") Long userId);
+
+    /**
+     * Removes every participant of a schedule that is not in the given list.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param keepUserIds the IDs of the participants to keep, must not be empty
+     * @return the number of participants removed
+     */
+    @Modifying
+    @Query(value = "DELETE FROM schedule_participants WHERE schedule_schedule_id = :scheduleId " +
+            "AND participants_user_id NOT IN (:keepUserIds)", nativeQuery = true)
+    int removeParticipantsNotIn(@Param("scheduleId") Long scheduleId, @Param("keepUserIds") Collection<Long> keepUserIds);
+
+    /**
+     * Removes the given users from the participants of a schedule.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param userIds the IDs of the participants to remove
+     * @return the number of participants removed
+     */
+    @Modifying
+    @Query(value = "DELETE FROM schedule_participants WHERE schedule_schedule_id = :scheduleId " +
+            "AND participants_user_id IN (:userIds)", nativeQuery = true)
+    int removeParticipants(@Param("scheduleId") Long scheduleId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Removes all participants of a schedule.
+     *
+     * @param scheduleId the ID of the schedule
+     * @return the number of participants removed
+     */
+    @Modifying
+    @Query(value = "DELETE FROM schedule_participants WHERE schedule_schedule_id = :scheduleId", nativeQuery = true)
+    int removeAllParticipants(@Param("scheduleId") Long scheduleId);
+
+    /**
+     * Adds the given users to the participants of a schedule in one statement, skipping users that are already in it.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param userIds the IDs of the users to add
+     * @return the number of participants added
+     */
+    @Modifying
+    @Query(value = "INSERT INTO schedule_participants (schedule_schedule_id, participants_user_id) " +
+            "SELECT :scheduleId, u.user_id FROM users u WHERE u.user_id IN (:userIds) AND NOT EXISTS " +
+            "(SELECT 1 FROM schedule_participants sp WHERE sp.schedule_schedule_id = :scheduleId AND sp.participants_user_id = u.user_id)",
+            nativeQuery = true)
+    int addParticipants(@Param("scheduleId") Long scheduleId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Finds the IDs of the participants of a schedule, without loading the users.
+     *
+     * @param scheduleId the ID of the schedule
+     * @return the user IDs of the participants
+     */
+    @Query(value = "SELECT participants_user_id FROM schedule_participants WHERE schedule_schedule_id = :scheduleId", nativeQuery = true)
+    List<Long> findParticipantIds(@Param("scheduleId") Long scheduleId);
+
+    /**
+     * Finds the IDs of the users marked absent from a schedule, without loading the users.
+     *
+     * @param scheduleId the ID of the schedule
+     * @return the user IDs of the absent users
+     */
+    @Query(value = "SELECT absent_users_user_id FROM schedule_absent_users WHERE schedule_schedule_id = :scheduleId", nativeQuery = true)
+    List<Long> findAbsentIds(@Param("scheduleId") Long scheduleId);
+
+    /**
+     * Marks the given participants of a schedule absent in one statement, skipping users that are already absent.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param userIds the IDs of the participants to mark absent
+     * @return the number of users marked absent
+     */
+    @Modifying
+    @Query(value = "INSERT INTO schedule_absent_users (schedule_schedule_id, absent_users_user_id) " +
+            "SELECT :scheduleId, sp.participants_user_id FROM schedule_participants sp " +
+            "WHERE sp.schedule_schedule_id = :scheduleId AND sp.participants_user_id IN (:userIds) AND NOT EXISTS " +
+            "(SELECT 1 FROM schedule_absent_users sa WHERE sa.schedule_schedule_id = :scheduleId AND sa.absent_users_user_id = sp.participants_user_id)",
+            nativeQuery = true)
+    int addAbsentUsers(@Param("scheduleId") Long scheduleId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Marks the given users of a schedule present again by removing them from the absent users.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param userIds the IDs of the users to mark present
+     * @return the number of users marked present
+     */
+    @Modifying
+    @Query(value = "DELETE FROM schedule_absent_users WHERE schedule_schedule_id = :scheduleId " +
+            "AND absent_users_user_id IN (:userIds)", nativeQuery = true)
+    int removeAbsentUsers(@Param("scheduleId") Long scheduleId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Finds the sessions any of the given users trains that overlap a time slot on any of the given dates.
+     * Backed by the (trainer_id, date, start_time) index, so each user and date costs one index seek plus that day's sessions.
+     *
+     * @param userIds the IDs of the users, trainers or members proposed for a session
+     * @param dates the dates of the proposed sessions
+     * @param startTime the start time of the proposed sessions
+     * @param endTime the end time of the proposed sessions
+     * @param excludeId the ID of a session being edited, which can't clash with itself, or null
+     * @return the clashes, one per session, ordered by trainer, date and start time
+     */
+    @Query("SELECT new org.example.fitnessclubmanagement.payload.ScheduleConflict(s.trainerId, s.scheduleId, s.date, s.startTime, s.endTime) " +
+            "FROM Schedule s WHERE s.trainerId IN :userIds AND s.date IN :dates " +
+            "AND s.startTime < :endTime AND s.endTime > :startTime " +
+            "AND (:excludeId IS NULL OR s.scheduleId <> :excludeId) ORDER BY s.trainerId, s.date, s.startTime")
+    List<ScheduleConflict> findTrainerConflicts(@Param("userIds") Collection<Long> userIds, @Param("dates") Collection<LocalDate> dates,
+                                                @Param("startTime") LocalTime startTime, @Param("endTime") LocalTime endTime,
+                                                @Param("excludeId") Long excludeId);
+
+    /**
+     * Finds the sessions any of the given users takes part in that overlap a time slot on any of the given dates.
+     * One query for the whole class, the join rows are found by member and then filtered by the session's slot.
      *
-     * @return a list of all schedules ordered by date and start time
+     * @param userIds the IDs of the users, trainers or members proposed for a session
+     * @param dates the dates of the proposed sessions
+     * @param startTime the start time of the proposed sessions
+     * @param endTime the end time of the proposed sessions
+     * @param excludeId the ID of a session being edited, which can't clash with itself, or null
+     * @return the clashes, one per user and session, ordered by user, date and start time
      */
-    @Query("SELECT s FROM Schedule s ORDER BY s.date, s.startTime")
-    List<Schedule> findAllOrderedByDateAndTime();
+    @Query("SELECT new org.example.fitnessclubmanagement.payload.ScheduleConflict(p.userId, s.scheduleId, s.date, s.startTime, s.endTime) " +
+            "FROM Schedule s JOIN s.participants p WHERE p.userId IN :userIds AND s.date IN :dates " +
+            "AND s.startTime < :endTime AND s.endTime > :startTime " +
+            "AND (:excludeId IS NULL OR s.scheduleId <> :excludeId) ORDER BY p.userId, s.date, s.startTime")
+    List<ScheduleConflict> findParticipantConflicts(@Param("userIds") Collection<Long> userIds, @Param("dates") Collection<LocalDate> dates,
+                                                    @Param("startTime") LocalTime startTime, @Param("endTime") LocalTime endTime,
+                                                    @Param("excludeId") Long excludeId);
 }
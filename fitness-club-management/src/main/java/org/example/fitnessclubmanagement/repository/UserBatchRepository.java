@@ -0,0 +1,19 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.model.User;
+
+import java.util.List;
+
+/**
+ * Bulk writes for users that go through JDBC batches, since IDENTITY keys stop Hibernate from batching inserts.
+ */
+public interface UserBatchRepository {
+
+    /**
+     * Inserts the given users in JDBC batches and sets their generated IDs.
+     *
+     * @param users the users to insert, with already hashed passwords
+     * @return the generated user IDs, in the same order as the users
+     */
+    List<Long> insertAllInBatch(List<User> users);
+}
@@ -0,0 +1,57 @@
+package org.example.fitnessclubmanagement.repository;
+
+import org.example.fitnessclubmanagement.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC implementation of the batched user writes, picked up by Spring Data as a fragment of UserRepository.
+ * Runs on the connection of the surrounding transaction.
+ */
+public class UserBatchRepositoryImpl implements UserBatchRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertAllInBatch(List<User> users) {
+        if (users.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO users (username, email, password, role_mask) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (User user : users) {
+                    statement.setString(1, user.getUsername());
+                    statement.setString(2, user.getEmail());
+                    statement.setString(3, user.getPassword());
+                    statement.setInt(4, user.getRoleMask());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                // drivers hand back the keys of a batch in insert order
+                List<Long> keys = new ArrayList<>(users.size());
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    while (generatedKeys.next()) {
+                        keys.add(generatedKeys.getLong(1));
+                    }
+                }
+                if (keys.size() != users.size()) {
+                    throw new SQLException("Expected " + users.size() + " generated keys but got " + keys.size());
+                }
+                return keys;
+            }
+        });
+
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setUserId(ids.get(i));
+        }
+        return ids;
+    }
+}
@@ -1,17 +1,26 @@
 package org.example.fitnessclubmanagement.repository;
 
+import org.example.fitnessclubmanagement.model.Role;
 import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.RosterEntry;
+import org.example.fitnessclubmanagement.payload.UserSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository for managing User entities.
  */
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserBatchRepository {
+
+    // Directory rows carry the role mask of the user, so a page is a single query without joins
+    String SUMMARY_SELECT = "SELECT new org.example.fitnessclubmanagement.payload.UserSummary(u.userId, u.username, u.email, " +
+            "u.roleMask, u.version) FROM User u ";
 
     /**
      * Checks if a user with the given username or email already exists.
@@ -20,7 +29,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @param email the email to check
      * @return true if a user with the given username or email already exists, false otherwise
      */
-    boolean existsByUsernameOrEmail(String username, String email);
+    default boolean existsByUsernameOrEmail(String username, String email) {
+        // two unique index lookups, a single query with OR can fall back to scanning the whole table
+        return existsByUsername(username) || existsByEmail(email);
+    }
 
     /**
      * Checks if a user with the given username exists.
@@ -36,6 +48,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     boolean existsByEmail(String email);
 
+    /**
+     * Finds which of the given user IDs exist, without loading the users.
+     *
+     * @param userIds the IDs to check
+     * @return the IDs that belong to an existing user
+     */
+    @Query("SELECT u.userId FROM User u WHERE u.userId IN :userIds")
+    List<Long> findExistingIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Finds which of the given usernames are already taken, without loading the users.
+     *
+     * @param usernames the usernames to check
+     * @return the usernames that belong to an existing user
+     */
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    /**
+     * Finds which of the given emails are already taken, without loading the users.
+     *
+     * @param emails the emails to check
+     * @return the emails that belong to an existing user
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     /**
      * Finds a user by their username.
      *
@@ -50,15 +89,57 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @param role the role to search for
      * @return a list of users with the given role
      */
-    List<User> findByRolesContaining(String role);
+    default List<User> findByRolesContaining(Role role) {
+        // a bitwise test can't use an index, listing the few masks with the bit set can
+        return findByRoleMaskIn(role.masksWith());
+    }
 
     /**
-     * Finds all users ordered by their username.
+     * Finds the users whose role mask is one of the given masks.
      *
-     * @return a list of all users ordered by their username
+     * @param roleMasks the role masks to search for
+     * @return a list of users with one of the given masks
      */
-    @Query("SELECT u FROM User u ORDER BY u.username")
-    List<User> findAllOrderedByUsername();
+    List<User> findByRoleMaskIn(Collection<Integer> roleMasks);
+
+    /**
+     * Finds the next page of the user directory ordered by username.
+     *
+     * @param after the last username of the previous page, or an empty string for the first page
+     * @param limit the maximum number of users to return
+     * @return the user summaries ordered by username
+     */
+    @Query(SUMMARY_SELECT + "WHERE u.username > :after ORDER BY u.username")
+    List<UserSummary> findSummariesByUsernameAfter(@Param("after") String after, Limit limit);
+
+    /**
+     * Finds the next page of the user directory ordered by email.
+     *
+     * @param after the last email of the previous page, or an empty string for the first page
+     * @param limit the maximum number of users to return
+     * @return the user summaries ordered by email
+     */
+    @Query(SUMMARY_SELECT + "WHERE u.email > :after ORDER BY u.email")
+    List<UserSummary> findSummariesByEmailAfter(@Param("after") String after, Limit limit);
+
+    /**
+     * Finds the next page of the user directory ordered by ID.
+     *
+     * @param after the last ID of the previous page, or 0 for the first page
+     * @param limit the maximum number of users to return
+     * @return the user summaries ordered by ID
+     */
+    @Query(SUMMARY_SELECT + "WHERE u.userId > :after ORDER BY u.userId")
+    List<UserSummary> findSummariesByIdAfter(@Param("after") Long after, Limit limit);
+
+    /**
+     * Finds the directory rows of the given users, e.g. the members picked on other pages of a form.
+     *
+     * @param userIds the IDs of the users
+     * @return the user summaries ordered by username
+     */
+    @Query(SUMMARY_SELECT + "WHERE u.userId IN :userIds ORDER BY u.username")
+    List<UserSummary> findSummariesByIds(@Param("userIds") Collection<Long> userIds);
 
     /**
      * Finds all users with the given role ordered by their username.
@@ -66,25 +147,46 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @param role the role to search for
      * @return a list of users with the given role ordered by their username
      */
-    @Query("SELECT u FROM User u JOIN u.roles r WHERE r = 'TRAINER' ORDER BY u.username")
-    List<User> findUserByRoleOrderedByUsername(@Param("role") String role);
+    default List<User> findUserByRoleOrderedByUsername(Role role) {
+        return findByRoleMaskInOrderByUsername(role.masksWith());
+    }
+
+    /**
+     * Finds the users whose role mask is one of the given masks ordered by their username.
+     *
+     * @param roleMasks the role masks to search for
+     * @return a list of users with one of the given masks ordered by their username
+     */
+    List<User> findByRoleMaskInOrderByUsername(Collection<Integer> roleMasks);
+
+    /**
+     * Finds the participants of all given schedules in a single query, ordered by username.
+     *
+     * @param scheduleIds the IDs of the schedules
+     * @return roster entries for every participant of the given schedules, ordered by username
+     */
+    @Query("SELECT new org.example.fitnessclubmanagement.payload.RosterEntry(s.scheduleId, u.userId, u.username) " +
+            "FROM Schedule s JOIN s.participants u WHERE s.scheduleId IN :scheduleIds ORDER BY u.username")
+    List<RosterEntry> findParticipantRosterByScheduleIds(@Param("scheduleIds") Collection<Long> scheduleIds);
 
     /**
-     * Finds all participants of a schedule by the schedule ID, ordered by username.
+     * Finds the absent users of all given schedules in a single query, ordered by username.
      *
-     * @param scheduleId the ID of the schedule
-     * @return a list of participants ordered by username
+     * @param scheduleIds the IDs of the schedules
+     * @return roster entries for every absent user of the given schedules, ordered by username
      */
-    @Query("SELECT u FROM User u JOIN u.schedules s WHERE s.scheduleId = :scheduleId ORDER BY u.username")
-    List<User> findParticipantsByScheduleID(@Param("scheduleId") Long scheduleId);
+    @Query("SELECT new org.example.fitnessclubmanagement.payload.RosterEntry(s.scheduleId, u.userId, u.username) " +
+            "FROM Schedule s JOIN s.absentUsers u WHERE s.scheduleId IN :scheduleIds ORDER BY u.username")
+    List<RosterEntry> findAbsentRosterByScheduleIds(@Param("scheduleIds") Collection<Long> scheduleIds);
 
     /**
-     * Finds absent users of a schedule by the schedule ID, ordered by username.
+     * Finds the trainer of each of the given schedules in a single query.
      *
-     * @param scheduleId the ID of the schedule
-     * @return a list of absent users ordered by username
+     * @param scheduleIds the IDs of the schedules
+     * @return one roster entry per schedule whose trainer still exists
      */
-    @Query("SELECT u FROM User u JOIN Schedule s ON s.scheduleId = :scheduleId AND u MEMBER OF s.absentUsers ORDER BY u.username")
-    List<User> findAbsentUsersByScheduleID(@Param("scheduleId") Long scheduleId);
+    @Query("SELECT new org.example.fitnessclubmanagement.payload.RosterEntry(s.scheduleId, u.userId, u.username) " +
+            "FROM Schedule s, User u WHERE u.userId = s.trainerId AND s.scheduleId IN :scheduleIds")
+    List<RosterEntry> findTrainerRosterByScheduleIds(@Param("scheduleIds") Collection<Long> scheduleIds);
 
 }
@@ -0,0 +1,66 @@
+package org.example.fitnessclubmanagement.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Applies the LoginThrottle limits to HTTP Basic logins, answering clients over them with 429 and Retry-After before
+ * the Basic filter loads the user or runs the password encoder.
+ * Only failed logins count, a scraper sending the right password on every request is never held back by its own scrapes.
+ */
+public class BasicAuthThrottleFilter extends OncePerRequestFilter {
+
+    private static final String BASIC = "Basic ";
+
+    private final LoginThrottle loginThrottle;
+
+    public BasicAuthThrottleFilter(LoginThrottle loginThrottle) {
+        this.loginThrottle = loginThrottle;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String username = username(authorization.substring(BASIC.length()));
+        long retryAfterSeconds = loginThrottle.checkAttempt(request.getRemoteAddr(), username);
+        if (retryAfterSeconds > 0) {
+            RetryAfterResponses.write(response, HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds,
+                    "Too many login attempts, try again later");
+            return;
+        }
+        filterChain.doFilter(request, response);
+        if (response.getStatus() == HttpStatus.UNAUTHORIZED.value()) {
+            loginThrottle.recordFailure(request.getRemoteAddr(), username);
+        }
+    }
+
+    /**
+     * Reads the username of Basic credentials.
+     *
+     * @param credentials the base64 encoded "username:password"
+     * @return the username, or null if the credentials can't be decoded
+     */
+    private static String username(String credentials) {
+        try {
+            String decoded = new String(Base64.getDecoder().decode(credentials.trim()), StandardCharsets.UTF_8);
+            int colon = decoded.indexOf(':');
+            return colon < 0 ? null : decoded.substring(0, colon);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
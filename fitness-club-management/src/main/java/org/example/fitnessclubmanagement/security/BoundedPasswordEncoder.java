@@ -0,0 +1,208 @@
+package org.example.fitnessclubmanagement.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.fitnessclubmanagement.exceptions.HashingCapacityExceededException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Password encoder that runs the (CPU heavy) hashing of another encoder on a small, bounded executor.
+ * When the executor and its queue are full, callers are rejected straight away instead of piling up
+ * on Tomcat threads, so a burst of logins can't starve the rest of the app.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long maxWaitMillis;
+
+    private final long retryAfterSeconds;
+
+    private final Timer queueWait;
+
+    private final Timer hashTime;
+
+    private final Counter rejected;
+
+    /**
+     * Creates the encoder and its executor.
+     *
+     * @param delegate the encoder doing the actual hashing
+     * @param threads the number of hashing threads
+     * @param queueCapacity the number of hashes allowed to wait for a thread
+     * @param maxWaitMillis how long a caller waits for its hash before giving up
+     * @param retryAfterSeconds the Retry-After value sent back to rejected clients
+     * @param meterRegistry the registry for the queue wait and hash time metrics
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMillis,
+                                  long retryAfterSeconds, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxWaitMillis = maxWaitMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()); // fail fast, never run on the caller's thread
+
+        this.queueWait = Timer.builder("auth.hashing.queue.wait")
+                .description("Time a password hash waited for a hashing thread")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.hashTime = Timer.builder("auth.hashing.time")
+                .description("Time spent computing a password hash")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.hashing.rejected")
+                .description("Password hashes rejected because the hashing executor was full")
+                .register(meterRegistry);
+        meterRegistry.gauge("auth.hashing.queue.size", executor, e -> e.getQueue().size());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword); // cheap, just looks at the hash prefix
+    }
+
+    /**
+     * Hashes many passwords in parallel on the hashing threads, for bulk jobs like imports.
+     * At most one hash per thread is in flight at a time, so the queue stays free for logins
+     * and a sign-in never waits behind more than one bulk hash.
+     *
+     * @param rawPasswords the passwords to hash
+     * @return the hashes, in the same order as the passwords
+     * @throws HashingCapacityExceededException if logins kept the queue full for longer than the max wait
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        Semaphore inFlight = new Semaphore(executor.getMaximumPoolSize());
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        try {
+            for (CharSequence rawPassword : rawPasswords) {
+                inFlight.acquire();
+                futures.add(submitWhenQueueFrees(() -> {
+                    long startedAt = System.nanoTime();
+                    try {
+                        return delegate.encode(rawPassword);
+                    } finally {
+                        hashTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                        inFlight.release();
+                    }
+                }, inFlight));
+            }
+
+            List<String> hashes = new ArrayList<>(futures.size());
+            for (Future<String> future : futures) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Submits a bulk hashing task, backing off while a burst of logins has the queue full.
+     *
+     * @param task the hashing task, releases its permit when done
+     * @param inFlight the permits of the bulk job, one is released if the task can't be submitted
+     * @return the future of the task
+     * @throws HashingCapacityExceededException if the queue stayed full for longer than the max wait
+     * @throws InterruptedException if interrupted while backing off
+     */
+    private Future<String> submitWhenQueueFrees(Callable<String> task, Semaphore inFlight) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (true) {
+            try {
+                return executor.submit(task);
+            } catch (RejectedExecutionException e) {
+                if (System.nanoTime() > deadline) {
+                    inFlight.release();
+                    rejected.increment();
+                    throw new HashingCapacityExceededException("Password hashing is busy, please try again shortly", retryAfterSeconds);
+                }
+                Thread.sleep(10); // logins win, bulk work waits its turn
+            }
+        }
+    }
+
+    /**
+     * Runs a hashing task on the executor and waits for its result.
+     *
+     * @param task the hashing task
+     * @return the result of the task
+     * @throws HashingCapacityExceededException if the executor is full or the hash took too long
+     */
+    private <T> T submit(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    hashTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingCapacityExceededException("Too many sign-in requests, please try again shortly", retryAfterSeconds);
+        }
+
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new HashingCapacityExceededException("Too many sign-in requests, please try again shortly", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException; // e.g. IllegalArgumentException from the delegate
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.fitnessclubmanagement.security;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.fitnessclubmanagement.exceptions.HashingCapacityExceededException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+
+import java.io.IOException;
+
+/**
+ * Login failure handler that answers 503 with Retry-After when the password hashing executor is full,
+ * and otherwise redirects back to the login page like before.
+ */
+public class HashingAwareFailureHandler extends SimpleUrlAuthenticationFailureHandler {
+
+    public HashingAwareFailureHandler(String defaultFailureUrl) {
+        super(defaultFailureUrl);
+    }
+
+    @Override
+    public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+                                        AuthenticationException exception) throws IOException, ServletException {
+        if (exception instanceof HashingCapacityExceededException capacityException) {
+            RetryAfterResponses.write(response, HttpStatus.SERVICE_UNAVAILABLE, capacityException.getRetryAfterSeconds(),
+                    capacityException.getMessage());
+            return;
+        }
+        super.onAuthenticationFailure(request, response, exception);
+    }
+}
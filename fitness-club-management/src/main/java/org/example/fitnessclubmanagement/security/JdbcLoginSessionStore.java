@@ -0,0 +1,48 @@
+package org.example.fitnessclubmanagement.security;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * LoginSessionStore on the login_sessions table, shared by every node that uses the same database.
+ * Each call is a single statement on its own connection, outside of any transaction of the request.
+ */
+public class JdbcLoginSessionStore implements LoginSessionStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcLoginSessionStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void save(String id, LoginSession session) {
+        jdbcTemplate.update("INSERT INTO login_sessions (session_id, username, role_mask, expires_at) VALUES (?, ?, ?, ?)",
+                id, session.username(), session.roleMask(), session.expiresAt());
+    }
+
+    @Override
+    public LoginSession find(String id) {
+        List<LoginSession> sessions = jdbcTemplate.query(
+                "SELECT username, role_mask, expires_at FROM login_sessions WHERE session_id = ?",
+                (resultSet, rowNum) -> new LoginSession(resultSet.getString(1), resultSet.getInt(2), resultSet.getLong(3)),
+                id);
+        return sessions.isEmpty() ? null : sessions.get(0);
+    }
+
+    @Override
+    public void extend(String id, long expiresAt) {
+        jdbcTemplate.update("UPDATE login_sessions SET expires_at = ? WHERE session_id = ?", expiresAt, id);
+    }
+
+    @Override
+    public void delete(String id) {
+        jdbcTemplate.update("DELETE FROM login_sessions WHERE session_id = ?", id);
+    }
+
+    @Override
+    public int deleteExpired(long now) {
+        return jdbcTemplate.update("DELETE FROM login_sessions WHERE expires_at < ?", now);
+    }
+}
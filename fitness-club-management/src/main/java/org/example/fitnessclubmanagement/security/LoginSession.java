@@ -0,0 +1,21 @@
+package org.example.fitnessclubmanagement.security;
+
+/**
+ * A login as a LoginSessionStore keeps it: the username and role mask the security context is rebuilt from.
+ *
+ * @param username the username of the logged in user
+ * @param roleMask the roles of the user at login, as in Role.toMask
+ * @param expiresAt when the login expires unless it is used, in epoch milliseconds
+ */
+public record LoginSession(String username, int roleMask, long expiresAt) {
+
+    /**
+     * Returns a copy of this login with another expiry.
+     *
+     * @param expiresAt the new expiry, in epoch milliseconds
+     * @return the copy
+     */
+    public LoginSession withExpiresAt(long expiresAt) {
+        return new LoginSession(username, roleMask, expiresAt);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.fitnessclubmanagement.security;
+
+/**
+ * Storage of the logins behind StoredSecurityContextRepository. Every node of the application must see the same
+ * store, so a login made on one node is valid on all of them. IDs passed in are already hashed.
+ */
+public interface LoginSessionStore {
+
+    /**
+     * Stores a new login.
+     *
+     * @param id the hashed ID of the login
+     * @param session the login
+     */
+    void save(String id, LoginSession session);
+
+    /**
+     * Looks up a login, expired or not.
+     *
+     * @param id the hashed ID of the login
+     * @return the login, or null if there is none
+     */
+    LoginSession find(String id);
+
+    /**
+     * Moves the expiry of a login.
+     *
+     * @param id the hashed ID of the login
+     * @param expiresAt the new expiry, in epoch milliseconds
+     */
+    void extend(String id, long expiresAt);
+
+    /**
+     * Removes a login, nothing happens if there is none.
+     *
+     * @param id the hashed ID of the login
+     */
+    void delete(String id);
+
+    /**
+     * Removes every login that expired before a point in time.
+     *
+     * @param now the point in time, in epoch milliseconds
+     * @return the number of logins removed
+     */
+    int deleteExpired(long now);
+}
@@ -0,0 +1,104 @@
+package org.example.fitnessclubmanagement.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits login attempts per client address and per username, each with its own TokenBucketTable.
+ * The address limit stops one client from trying many usernames, the username limit many clients from trying one.
+ */
+public class LoginThrottle implements MeterBinder {
+
+    private final TokenBucketTable byAddress;
+
+    private final TokenBucketTable byUsername;
+
+    private final AtomicLong rejectedByAddress = new AtomicLong();
+    private final AtomicLong rejectedByUsername = new AtomicLong();
+
+    public LoginThrottle(TokenBucketTable byAddress, TokenBucketTable byUsername) {
+        this.byAddress = byAddress;
+        this.byUsername = byUsername;
+    }
+
+    /**
+     * Counts a login attempt against the limits of its address and username.
+     * An attempt the address limit rejects doesn't count against the username, so a single client can't use up
+     * someone else's attempts faster than its own.
+     *
+     * @param address the client address
+     * @param username the username tried, may be null
+     * @return 0 if the attempt may go ahead, otherwise the seconds until the client may try again
+     */
+    public long tryAttempt(String address, String username) {
+        long now = System.currentTimeMillis();
+        long wait = byAddress.tryAcquire(address, now);
+        if (wait > 0) {
+            rejectedByAddress.incrementAndGet();
+            return toSeconds(wait);
+        }
+        if (username != null) {
+            // usernames are looked up case insensitively, so they are counted that way too
+            wait = byUsername.tryAcquire(username.trim().toLowerCase(Locale.ROOT), now);
+            if (wait > 0) {
+                rejectedByUsername.incrementAndGet();
+                return toSeconds(wait);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks an attempt against the limits without counting it, for logins that only count when they fail.
+     *
+     * @param address the client address
+     * @param username the username tried, may be null
+     * @return 0 if the attempt may go ahead, otherwise the seconds until the client may try again
+     */
+    public long checkAttempt(String address, String username) {
+        long now = System.currentTimeMillis();
+        long wait = byAddress.waitTime(address, now);
+        if (wait > 0) {
+            rejectedByAddress.incrementAndGet();
+            return toSeconds(wait);
+        }
+        if (username != null) {
+            wait = byUsername.waitTime(username.trim().toLowerCase(Locale.ROOT), now);
+            if (wait > 0) {
+                rejectedByUsername.incrementAndGet();
+                return toSeconds(wait);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Counts a failed attempt against the limits of its address and username.
+     *
+     * @param address the client address
+     * @param username the username tried, may be null
+     */
+    public void recordFailure(String address, String username) {
+        long now = System.currentTimeMillis();
+        byAddress.tryAcquire(address, now);
+        if (username != null) {
+            byUsername.tryAcquire(username.trim().toLowerCase(Locale.ROOT), now);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.throttle.rejected", rejectedByAddress, AtomicLong::get).tag("limit", "address").register(registry);
+        FunctionCounter.builder("auth.throttle.rejected", rejectedByUsername, AtomicLong::get).tag("limit", "username").register(registry);
+        FunctionCounter.builder("auth.throttle.evictions", byAddress, TokenBucketTable::getEvictions).tag("limit", "address").register(registry);
+        FunctionCounter.builder("auth.throttle.evictions", byUsername, TokenBucketTable::getEvictions).tag("limit", "username").register(registry);
+    }
+
+    private static long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.fitnessclubmanagement.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Answers login attempts over the LoginThrottle limits with 429 and Retry-After, before the form login filter
+ * loads the user or runs the password encoder.
+ */
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private final LoginThrottle loginThrottle;
+
+    private final RequestMatcher loginRequest;
+
+    private final String usernameParameter;
+
+    /**
+     * Creates the filter.
+     *
+     * @param loginThrottle the limits
+     * @param loginProcessingUrl the URL the login form posts to
+     * @param usernameParameter the name of the username field of the login form
+     */
+    public LoginThrottleFilter(LoginThrottle loginThrottle, String loginProcessingUrl, String usernameParameter) {
+        this.loginThrottle = loginThrottle;
+        this.loginRequest = new AntPathRequestMatcher(loginProcessingUrl, HttpMethod.POST.name());
+        this.usernameParameter = usernameParameter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (loginRequest.matches(request)) {
+            long retryAfterSeconds = loginThrottle.tryAttempt(request.getRemoteAddr(), request.getParameter(usernameParameter));
+            if (retryAfterSeconds > 0) {
+                RetryAfterResponses.write(response, HttpStatus.TOO_MANY_REQUESTS, retryAfterSeconds,
+                        "Too many login attempts, try again later");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
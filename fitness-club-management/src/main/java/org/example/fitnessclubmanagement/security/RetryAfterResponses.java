@@ -0,0 +1,37 @@
+package org.example.fitnessclubmanagement.security;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Refusals with a Retry-After from inside the security filter chain.
+ * They are written straight to the response: sendError would dispatch to /error, which Spring Security turns away
+ * for the anonymous login request, so the client got a 401 instead of the refusal.
+ */
+final class RetryAfterResponses {
+
+    private RetryAfterResponses() {
+    }
+
+    /**
+     * Answers the request with a status, a Retry-After header and a plain text message.
+     *
+     * @param response the current response
+     * @param status the status, e.g. 429 or 503
+     * @param retryAfterSeconds the Retry-After value
+     * @param message the message for the client
+     */
+    static void write(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(message);
+    }
+}
@@ -0,0 +1,375 @@
+package org.example.fitnessclubmanagement.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.payload.CacheStats;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.util.WebUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps logins in a LoginSessionStore shared by every node instead of the node's HttpSession, so the load balancer
+ * needs no sticky sessions and a node restart doesn't send everyone on it back through the password encoder.
+ * The browser holds a random ID in the SESSION cookie, the store a SHA-256 of it next to the username and role mask,
+ * a few dozen bytes instead of a serialized SecurityContext.
+ * Recently used logins are cached on the node for a few seconds, so most requests don't read the store, which also
+ * means a logout on another node takes up to that long to be seen here.
+ */
+public class StoredSecurityContextRepository implements SecurityContextRepository, MeterBinder, DisposableBean {
+
+    public static final String COOKIE = "SESSION";
+
+    private static final String ID_ATTRIBUTE = StoredSecurityContextRepository.class.getName() + ".ID";
+
+    private static final int ID_BYTES = 32;
+
+    private final LoginSessionStore store;
+
+    private final long timeoutMillis;
+
+    private final int cacheSize;
+
+    private final long cacheTtlNanos;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "login-session-cleanup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // bumped on every logout so a load that raced with it never gets cached
+    private long generation;
+
+    // access ordered, so the eldest entry is always the least recently used login
+    private final LinkedHashMap<String, CachedLogin> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedLogin> eldest) {
+            if (size() > cacheSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Creates the repository and schedules the removal of expired logins from the store.
+     *
+     * @param store the store shared by every node
+     * @param timeout how long a login lasts without being used
+     * @param cacheSize the number of logins cached on this node
+     * @param cacheTtl how long a login is used from the cache before it is read from the store again
+     * @param cleanupInterval how often expired logins are removed from the store
+     */
+    public StoredSecurityContextRepository(LoginSessionStore store, Duration timeout, int cacheSize, Duration cacheTtl,
+                                           Duration cleanupInterval) {
+        this.store = store;
+        this.timeoutMillis = timeout.toMillis();
+        this.cacheSize = cacheSize;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        cleaner.scheduleWithFixedDelay(this::removeExpired, cleanupInterval.toMillis(), cleanupInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @Deprecated
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        return loadDeferredContext(requestResponseHolder.getRequest()).get();
+    }
+
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        return new LazyContext(() -> readContext(request)); // public pages never touch the store
+    }
+
+    /**
+     * Stores a login under a new ID and sends it in the SESSION cookie, or ends the login of the request when the
+     * context holds none, e.g. on logout.
+     *
+     * @param context the security context
+     * @param request the current request
+     * @param response the current response
+     */
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = context.getAuthentication();
+        String previousId = idOf(request);
+        if (previousId != null) {
+            remove(previousId); // every login gets a new ID, so one planted in the browser beforehand is of no use
+        }
+        if (authentication == null || trustResolver.isAnonymous(authentication)) {
+            if (previousId != null) {
+                request.setAttribute(ID_ATTRIBUTE, "");
+                writeCookie(request, response, "", Duration.ZERO);
+            }
+            return;
+        }
+
+        String id = newId();
+        String key = hash(id);
+        LoginSession login = new LoginSession(authentication.getName(), roleMaskOf(authentication),
+                System.currentTimeMillis() + timeoutMillis);
+        store.save(key, login);
+        created.incrementAndGet();
+        synchronized (cache) {
+            cache.put(key, new CachedLogin(login, System.nanoTime()));
+        }
+        request.setAttribute(ID_ATTRIBUTE, id);
+        writeCookie(request, response, id, Duration.ofSeconds(-1));
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        String id = idOf(request);
+        return id != null && find(id) != null;
+    }
+
+    /**
+     * Returns the current counters of the login cache of this node.
+     *
+     * @return the cache stats
+     */
+    public CacheStats getStats() {
+        synchronized (cache) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), 0, invalidations.get(), cache.size(), cacheSize);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.sessions.created", created, AtomicLong::get).register(registry);
+        FunctionCounter.builder("auth.session-cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("auth.session-cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("auth.session-cache.removals", evictions, AtomicLong::get).tag("cause", "size").register(registry);
+        FunctionCounter.builder("auth.session-cache.removals", invalidations, AtomicLong::get).tag("cause", "invalidated").register(registry);
+        Gauge.builder("auth.session-cache.size", this, repository -> repository.getStats().getSize()).register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        cleaner.shutdownNow();
+    }
+
+    private SecurityContext readContext(HttpServletRequest request) {
+        String id = idOf(request);
+        LoginSession login = id == null ? null : find(id);
+        if (login == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (Role role : Role.fromMask(login.roleMask())) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role.name()));
+        }
+        User principal = new User(login.username(), "", authorities);
+        principal.eraseCredentials(); // same as the principal Spring Security keeps after a form login
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities));
+        return context;
+    }
+
+    /**
+     * Looks up a login, in the cache of this node first. Logins read from the store get their expiry moved once
+     * they are past half of it, so a login in use is written about twice per timeout rather than on every request.
+     *
+     * @param id the ID from the cookie
+     * @return the login, or null if there is none or it expired
+     */
+    private LoginSession find(String id) {
+        String key = hash(id);
+        long now = System.currentTimeMillis();
+        long loadedAt = System.nanoTime();
+        long loadGeneration;
+        synchronized (cache) {
+            loadGeneration = generation;
+            CachedLogin cached = cache.get(key);
+            if (cached != null && loadedAt - cached.loadedAt < cacheTtlNanos && cached.login.expiresAt() > now) {
+                hits.incrementAndGet();
+                return cached.login;
+            }
+        }
+
+        // read outside the lock, a slow database shouldn't hold up the requests of every other login
+        misses.incrementAndGet();
+        LoginSession login = store.find(key);
+        if (login == null || login.expiresAt() <= now) {
+            synchronized (cache) {
+                cache.remove(key);
+            }
+            return null;
+        }
+        if (login.expiresAt() - now < timeoutMillis / 2) {
+            login = login.withExpiresAt(now + timeoutMillis);
+            store.extend(key, login.expiresAt());
+        }
+        synchronized (cache) {
+            if (generation == loadGeneration) {
+                cache.put(key, new CachedLogin(login, loadedAt));
+            }
+        }
+        return login;
+    }
+
+    private void remove(String id) {
+        String key = hash(id);
+        store.delete(key);
+        synchronized (cache) {
+            generation++;
+            if (cache.remove(key) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private void removeExpired() {
+        try {
+            store.deleteExpired(System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            // expired logins are never served anyway, the next run removes them
+        }
+    }
+
+    /**
+     * Returns the login ID of the request, the one saved during the request if any, otherwise the cookie's.
+     *
+     * @param request the current request
+     * @return the ID, or null if the request has none
+     */
+    private String idOf(HttpServletRequest request) {
+        Object saved = request.getAttribute(ID_ATTRIBUTE);
+        if (saved != null) {
+            return ((String) saved).isEmpty() ? null : (String) saved;
+        }
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        return cookie == null || cookie.getValue().isEmpty() ? null : cookie.getValue();
+    }
+
+    private String newId() {
+        byte[] bytes = new byte[ID_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Hashes a login ID before it goes to the store or the cache, so a leaked table can't be replayed as cookies.
+     * The IDs are random, so a fast hash is enough.
+     *
+     * @param id the ID from the cookie
+     * @return the hex SHA-256 of the ID
+     */
+    private static String hash(String id) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(id.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    private static int roleMaskOf(Authentication authentication) {
+        int mask = 0;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            for (Role role : Role.values()) {
+                if (("ROLE_" + role.name()).equals(authority.getAuthority())) {
+                    mask |= role.getBit();
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, Duration maxAge) {
+        String path = request.getContextPath().isEmpty() ? "/" : request.getContextPath();
+        ResponseCookie cookie = ResponseCookie.from(COOKIE, value)
+                .path(path)
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .maxAge(maxAge) // negative for a browser session cookie, like JSESSIONID
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private record CachedLogin(LoginSession login, long loadedAt) {
+    }
+
+    /**
+     * Security context that is only read from the store once something asks for it.
+     */
+    private static class LazyContext implements DeferredSecurityContext {
+
+        private final Supplier<SecurityContext> reader;
+
+        private SecurityContext context;
+
+        private boolean generated;
+
+        LazyContext(Supplier<SecurityContext> reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public SecurityContext get() {
+            if (context == null) {
+                context = reader.get();
+                if (context == null) {
+                    context = SecurityContextHolder.createEmptyContext();
+                    generated = true;
+                }
+            }
+            return context;
+        }
+
+        @Override
+        public boolean isGenerated() {
+            get();
+            return generated;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.fitnessclubmanagement.security;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size table of token buckets, one per key, updated with compare-and-set instead of locks.
+ * Keys hash to a stripe of a few slots. A key without a slot takes over an empty one, else one whose bucket has
+ * filled up again, i.e. was idle long enough to forget, and only when every bucket of the stripe is in use the
+ * fullest of them. So memory stays at 8 bytes per slot however many keys an attacker makes up.
+ * Each slot packs a 16 bit key fingerprint, the tokens in 1/256ths and the time of the last refill in one long.
+ */
+public class TokenBucketTable {
+
+    private static final int WAYS = 8;
+
+    private static final long TOKEN = 256; // tokens are counted in 1/256ths so slow refill rates still add up
+
+    private static final long MAX_CAPACITY = 0xFFFF / TOKEN;
+
+    private final AtomicLongArray slots;
+
+    private final int stripeMask;
+
+    private final long capacity;
+
+    private final long refillMillis;
+
+    private final long origin = System.currentTimeMillis();
+
+    // random per table, so which keys share a stripe can't be worked out offline
+    private final long seed = new SecureRandom().nextLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an empty table.
+     *
+     * @param capacity the number of tokens of a full bucket, i.e. the attempts allowed at once, at most 255
+     * @param refillInterval the time it takes to add one token back
+     * @param maxKeys the number of keys the table holds, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity, the refill interval or the size is out of range
+     */
+    public TokenBucketTable(int capacity, Duration refillInterval, int maxKeys) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (refillInterval.toMillis() < 1) {
+            throw new IllegalArgumentException("Refill interval must be at least 1 ms");
+        }
+        if (maxKeys < WAYS) {
+            throw new IllegalArgumentException("The table must hold at least " + WAYS + " keys");
+        }
+        int stripes = Math.max(1, Integer.highestOneBit(maxKeys / WAYS - 1) << 1);
+        this.slots = new AtomicLongArray(stripes * WAYS);
+        this.stripeMask = stripes - 1;
+        this.capacity = capacity * TOKEN;
+        this.refillMillis = refillInterval.toMillis();
+    }
+
+    /**
+     * Takes a token from the bucket of a key.
+     *
+     * @param key the key, e.g. a username or an address
+     * @param now the current time, in epoch milliseconds
+     * @return 0 if a token was taken, otherwise the milliseconds until the next one is available
+     */
+    public long tryAcquire(String key, long now) {
+        long hash = hash(key);
+        long fingerprint = hash >>> 48 == 0 ? 1 : hash >>> 48; // 0 marks an empty slot
+        int stripe = (int) (hash & stripeMask) * WAYS;
+        // 32 bits of milliseconds wrap after 49 days, which only shortens the refill of a bucket left alone that long
+        long time = (now - origin) & 0xFFFFFFFFL;
+
+        while (true) {
+            int slot = -1;
+            long entry = 0;
+            long victimTokens = -1;
+            for (int i = stripe; i < stripe + WAYS; i++) {
+                long current = slots.get(i);
+                if (current >>> 48 == fingerprint) {
+                    slot = i;
+                    entry = current;
+                    break;
+                }
+                long tokens = current == 0 ? capacity + 1 : tokensAt(current, time); // empty slots go first
+                if (tokens > victimTokens) {
+                    slot = i;
+                    entry = current;
+                    victimTokens = tokens;
+                }
+            }
+
+            long tokens;
+            long lastRefill;
+            if (entry >>> 48 == fingerprint) {
+                tokens = tokensAt(entry, time);
+                lastRefill = tokens == capacity ? time : refilledAt(entry, tokens);
+            } else {
+                tokens = capacity; // a new key, or one whose slot was taken over, starts with a full bucket
+                lastRefill = time;
+            }
+            if (tokens < TOKEN) {
+                return ((TOKEN - tokens) * refillMillis + TOKEN - 1) / TOKEN;
+            }
+            if (slots.compareAndSet(slot, entry, fingerprint << 48 | (tokens - TOKEN) << 32 | lastRefill)) {
+                if (entry >>> 48 != fingerprint && victimTokens < capacity) {
+                    evictions.incrementAndGet(); // an active bucket had to go, its key starts over with a full one
+                }
+                return 0;
+            }
+            // another login changed the stripe in the meantime, look again
+        }
+    }
+
+    /**
+     * Checks the bucket of a key without taking a token, e.g. for attempts that only count once they failed.
+     *
+     * @param key the key, e.g. a username or an address
+     * @param now the current time, in epoch milliseconds
+     * @return 0 if a token is available, otherwise the milliseconds until the next one is
+     */
+    public long waitTime(String key, long now) {
+        long hash = hash(key);
+        long fingerprint = hash >>> 48 == 0 ? 1 : hash >>> 48;
+        int stripe = (int) (hash & stripeMask) * WAYS;
+        long time = (now - origin) & 0xFFFFFFFFL;
+        for (int i = stripe; i < stripe + WAYS; i++) {
+            long entry = slots.get(i);
+            if (entry >>> 48 == fingerprint) {
+                long tokens = tokensAt(entry, time);
+                return tokens < TOKEN ? ((TOKEN - tokens) * refillMillis + TOKEN - 1) / TOKEN : 0;
+            }
+        }
+        return 0; // a key without a bucket would start with a full one
+    }
+
+    /**
+     * Returns how often a key took over the slot of a bucket that was still in use.
+     * Anything but a trickle means the table is too small for the keys it sees.
+     *
+     * @return the number of evicted active buckets
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the tokens of a slot's bucket, with the ones earned since its last refill.
+     *
+     * @param entry the packed slot
+     * @param time the current time of the table
+     * @return the tokens, in 1/256ths
+     */
+    private long tokensAt(long entry, long time) {
+        long elapsed = (time - (entry & 0xFFFFFFFFL)) & 0xFFFFFFFFL;
+        return Math.min(capacity, ((entry >>> 32) & 0xFFFF) + elapsed * TOKEN / refillMillis);
+    }
+
+    /**
+     * Returns the refill time of a bucket that isn't full yet. It only moves by the time the earned tokens took,
+     * so fractions of a token aren't lost when a key keeps trying.
+     *
+     * @param entry the packed slot
+     * @param tokens the tokens of the bucket, with the ones earned since its last refill
+     * @return the new refill time
+     */
+    private long refilledAt(long entry, long tokens) {
+        long earned = tokens - ((entry >>> 32) & 0xFFFF);
+        return ((entry & 0xFFFFFFFFL) + earned * refillMillis / TOKEN) & 0xFFFFFFFFL;
+    }
+
+    private long hash(String key) {
+        long hash = seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L; // FNV-1a over the chars
+        }
+        // spread every bit into the low ones picking the stripe and the high ones making the fingerprint
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
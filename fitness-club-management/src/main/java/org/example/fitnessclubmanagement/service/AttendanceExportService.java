@@ -0,0 +1,148 @@
+package org.example.fitnessclubmanagement.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.fitnessclubmanagement.payload.AttendanceRow;
+import org.example.fitnessclubmanagement.payload.ExportFormat;
+import org.example.fitnessclubmanagement.repository.ScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Service class for exporting the attendance history.
+ * Rows go from the database cursor straight to the output, so an export of any size runs in constant memory.
+ */
+@Service
+public class AttendanceExportService {
+
+    private static final String CSV_HEADER = "schedule_id,date,start_time,end_time,trainer_id,trainer,user_id,username,present";
+
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes the attendance of every participant of every session in the date range.
+     * Sessions whose attendance wasn't taken yet are exported without a value for present, not as everyone present.
+     *
+     * @param from the first date to export
+     * @param to the last date to export
+     * @param trainerId the ID of the trainer to export for, or null for every trainer
+     * @param format the file format
+     * @param output the stream to write to, left open
+     * @throws IOException if the output can't be written
+     * @throws IllegalArgumentException if the date range is invalid
+     */
+    public void export(LocalDate from, LocalDate to, Long trainerId, ExportFormat format, OutputStream output) throws IOException {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (format == ExportFormat.NDJSON) {
+            exportNdjson(from, to, trainerId, output);
+        } else {
+            exportCsv(from, to, trainerId, output);
+        }
+    }
+
+    /**
+     * Writes the attendance as CSV with a header row.
+     *
+     * @param from the first date to export
+     * @param to the last date to export
+     * @param trainerId the ID of the trainer, or null for every trainer
+     * @param output the stream to write to
+     * @throws IOException if the output can't be written
+     */
+    private void exportCsv(LocalDate from, LocalDate to, Long trainerId, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        scheduleRepository.streamAttendance(from, to, trainerId, row -> {
+            try {
+                writer.write(row.getScheduleId() + "," + row.getDate() + "," + row.getStartTime() + "," + row.getEndTime() + ","
+                        + row.getTrainerId() + "," + csvField(row.getTrainerName()) + ","
+                        + row.getUserId() + "," + csvField(row.getUsername()) + ","
+                        + (row.getPresent() != null ? row.getPresent() : "") + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // e.g. the client went away, stops the cursor too
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Writes the attendance as newline delimited JSON, one object per row.
+     *
+     * @param from the first date to export
+     * @param to the last date to export
+     * @param trainerId the ID of the trainer, or null for every trainer
+     * @param output the stream to write to
+     * @throws IOException if the output can't be written
+     */
+    private void exportNdjson(LocalDate from, LocalDate to, Long trainerId, OutputStream output) throws IOException {
+        JsonFactory factory = objectMapper.getFactory();
+        try (JsonGenerator generator = factory.createGenerator(output)) {
+            generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            generator.setRootValueSeparator(null);
+            scheduleRepository.streamAttendance(from, to, trainerId, row -> writeJsonLine(generator, row));
+        }
+    }
+
+    /**
+     * Writes a single row as one line of JSON.
+     *
+     * @param generator the generator to write with
+     * @param row the row
+     */
+    private void writeJsonLine(JsonGenerator generator, AttendanceRow row) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("scheduleId", row.getScheduleId());
+            generator.writeStringField("date", row.getDate().toString());
+            generator.writeStringField("startTime", row.getStartTime().toString());
+            generator.writeStringField("endTime", row.getEndTime().toString());
+            generator.writeNumberField("trainerId", row.getTrainerId());
+            generator.writeStringField("trainer", row.getTrainerName());
+            generator.writeNumberField("userId", row.getUserId());
+            generator.writeStringField("username", row.getUsername());
+            if (row.getPresent() != null) {
+                generator.writeBooleanField("present", row.getPresent());
+            } else {
+                generator.writeNullField("present");
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Quotes a CSV field if it contains anything that would break the row, and prefixes a value a spreadsheet would
+     * run as a formula with a quote, so a member named "=HYPERLINK(...)" shows as text when the export is opened.
+     *
+     * @param value the value, may be null
+     * @return the value ready to be written as a field
+     */
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.fitnessclubmanagement.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.payload.AttendanceStatsCheck;
+import org.example.fitnessclubmanagement.payload.AttendanceSummary;
+import org.example.fitnessclubmanagement.payload.SlotAttendanceSummary;
+import org.example.fitnessclubmanagement.repository.AttendanceStatRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service class for the attendance stats, a per member, trainer, weekly time slot and week read model of the attendance data.
+ * Sessions are added and removed as their attendance changes, so the dashboard never re-scans history.
+ */
+@Service
+public class AttendanceStatsService {
+
+    public static final int MAX_DASHBOARD_ROWS = 500;
+
+    @Autowired
+    private AttendanceStatRepository attendanceStatRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Adds the current attendance of a session to the stats.
+     * Pending entity changes are flushed first so the stats see the session as it will be committed.
+     *
+     * @param schedule the session, must have its attendance marked
+     */
+    public void addSession(Schedule schedule) {
+        entityManager.flush();
+        attendanceStatRepository.applySession(schedule, 1);
+    }
+
+    /**
+     * Takes the current attendance of a session out of the stats, before it changes or is deleted.
+     *
+     * @param schedule the session, must have its attendance marked
+     */
+    public void removeSession(Schedule schedule) {
+        entityManager.flush();
+        attendanceStatRepository.applySession(schedule, -1);
+    }
+
+    /**
+     * Moves single members of a session between attended and missed, without touching the rest of the class.
+     *
+     * @param schedule the session, must have its attendance marked already
+     * @param nowPresent the IDs of members that went from absent to present
+     * @param nowAbsent the IDs of members that went from present to absent
+     */
+    public void applyAttendanceChanges(Schedule schedule, Collection<Long> nowPresent, Collection<Long> nowAbsent) {
+        attendanceStatRepository.applyAttendanceChanges(schedule, nowPresent, nowAbsent);
+    }
+
+    /**
+     * Retrieves the stats of the weeks in a date range for the dashboard.
+     *
+     * @param from the first date, its whole week is included
+     * @param to the last date, its whole week is included
+     * @return the rows ordered by week, member and trainer, at most MAX_DASHBOARD_ROWS
+     * @throws IllegalArgumentException if the date range is invalid
+     */
+    public List<AttendanceSummary> getSummaries(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        return attendanceStatRepository.findSummaries(weekStart(from), weekStart(to), Limit.of(MAX_DASHBOARD_ROWS));
+    }
+
+    /**
+     * Retrieves the stats of the weeks in a date range per trainer and weekly time slot for the dashboard.
+     *
+     * @param from the first date, its whole week is included
+     * @param to the last date, its whole week is included
+     * @return the rows ordered by trainer, day of the week and start time, at most MAX_DASHBOARD_ROWS
+     * @throws IllegalArgumentException if the date range is invalid
+     */
+    public List<SlotAttendanceSummary> getSlotSummaries(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        return attendanceStatRepository.findSlotSummaries(weekStart(from), weekStart(to), Limit.of(MAX_DASHBOARD_ROWS));
+    }
+
+    /**
+     * Checks the stats against the raw attendance data without changing anything.
+     *
+     * @return the number of expected rows and of rows that don't match
+     */
+    @Transactional(readOnly = true)
+    public AttendanceStatsCheck verify() {
+        return attendanceStatRepository.verify();
+    }
+
+    /**
+     * Recomputes the stats from the raw attendance data, then checks the result.
+     *
+     * @return the mismatches found before the rebuild and the number of rows written
+     * @throws IllegalStateException if the rebuilt stats still don't match the raw data
+     */
+    @Transactional
+    public AttendanceStatsCheck rebuild() {
+        AttendanceStatsCheck before = attendanceStatRepository.verify();
+        long written = attendanceStatRepository.rebuild();
+        AttendanceStatsCheck after = attendanceStatRepository.verify();
+        if (after.getMismatches() != 0) {
+            throw new IllegalStateException("Attendance stats still have " + after.getMismatches() + " mismatches after rebuild");
+        }
+        return new AttendanceStatsCheck(after.getExpectedRows(), before.getMismatches(), written);
+    }
+
+    /**
+     * Returns the Monday of the week a date falls in.
+     *
+     * @param date the date
+     * @return the Monday on or before the date
+     */
+    private LocalDate weekStart(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
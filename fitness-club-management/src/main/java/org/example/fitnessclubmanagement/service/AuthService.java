@@ -1,11 +1,14 @@
 package org.example.fitnessclubmanagement.service;
 
 import org.example.fitnessclubmanagement.exceptions.UserAlreadyExistsException;
+import org.example.fitnessclubmanagement.model.Role;
 import org.example.fitnessclubmanagement.model.User;
 import org.example.fitnessclubmanagement.payload.UpdatePasswordRequest;
+import org.example.fitnessclubmanagement.payload.UserChange;
 import org.example.fitnessclubmanagement.payload.UserRegistrationRequest;
 import org.example.fitnessclubmanagement.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -26,6 +29,9 @@ public class AuthService {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // cached logins are dropped once the change commits
+
     /**
      * Registers a new user.
      * @param request the user registration request containing username, email, and password
@@ -44,7 +50,7 @@ public class AuthService {
 
         String hashedPassword = passwordEncoder.encode(password); //NO PLAINTEXT PASSWORDS IN HERE
 
-        User user = new User(username, email, hashedPassword, Set.of("USER")); // Create new user and set default role
+        User user = new User(username, email, hashedPassword, Set.of(Role.USER)); // Create new user and set default role
         userRepository.save(user);
     }
 
@@ -58,5 +64,6 @@ public class AuthService {
         String hashedPassword = passwordEncoder.encode(request.getPassword());
         user.setPassword(hashedPassword); // sets new password to new hashed password. SECURITY MOMENT
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChange(username)); // old hash must not keep working from the cache
     }
 }
@@ -0,0 +1,244 @@
+package org.example.fitnessclubmanagement.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.ImportReport;
+import org.example.fitnessclubmanagement.payload.ImportRowError;
+import org.example.fitnessclubmanagement.payload.UserRegistrationRequest;
+import org.example.fitnessclubmanagement.repository.UserRepository;
+import org.example.fitnessclubmanagement.security.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for importing members in bulk from a CSV file.
+ * The file is read one batch of rows at a time, so memory use doesn't grow with the size of the file.
+ */
+@Service
+public class MemberImportService {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${users.import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Imports members from a CSV file with a header row naming the username, email and password columns.
+     * Every row is validated like a registration; rows that fail are reported and the rest are imported.
+     * Each batch of rows is committed on its own.
+     *
+     * @param csv the CSV file
+     * @return the report with the number of imported rows and the errors of the rest
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the header is missing a column
+     */
+    public ImportReport importMembers(InputStream csv) throws IOException {
+        ImportReport report = new ImportReport();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        List<String> header = parseLine(headerLine.replace("\uFEFF", "")).stream() // Excel likes to add a BOM
+                .map(column -> column.trim().toLowerCase())
+                .toList();
+        int usernameColumn = header.indexOf("username");
+        int emailColumn = header.indexOf("email");
+        int passwordColumn = header.indexOf("password");
+        if (usernameColumn < 0 || emailColumn < 0 || passwordColumn < 0) {
+            throw new IllegalArgumentException("CSV header must contain username, email and password");
+        }
+        int columns = Math.max(usernameColumn, Math.max(emailColumn, passwordColumn)) + 1;
+
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        long lineNumber = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.setRows(report.getRows() + 1);
+
+            List<String> fields = parseLine(line);
+            if (fields.size() < columns) {
+                fail(report, lineNumber, "Expected at least " + columns + " columns but found " + fields.size());
+                continue;
+            }
+
+            UserRegistrationRequest request = new UserRegistrationRequest();
+            request.setUsername(fields.get(usernameColumn).trim().toLowerCase());
+            request.setEmail(fields.get(emailColumn).trim().toLowerCase());
+            request.setPassword(fields.get(passwordColumn));
+            String violations = validator.validate(request).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            if (!violations.isEmpty()) {
+                fail(report, lineNumber, violations);
+                continue;
+            }
+
+            batch.add(new PendingRow(lineNumber, request.getUsername(), request.getEmail(), request.getPassword()));
+            if (batch.size() == batchSize) {
+                importBatch(batch, report);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, report);
+        }
+        return report;
+    }
+
+    /**
+     * Imports one batch of valid rows: drops duplicates, hashes the passwords in parallel and inserts the rest.
+     *
+     * @param batch the valid rows of the batch
+     * @param report the report to add the results to
+     */
+    private void importBatch(List<PendingRow> batch, ImportReport report) {
+        List<PendingRow> rows = dropDuplicates(batch, report);
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<String> hashes = passwordEncoder.encodeAll(rows.stream().map(PendingRow::password).toList());
+        List<User> users = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            PendingRow row = rows.get(i);
+            users.add(new User(row.username(), row.email(), hashes.get(i), Set.of(Role.USER)));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.insertAllInBatch(users));
+        } catch (DataIntegrityViolationException e) {
+            // someone registered one of these users since the duplicate check, so check again and retry once
+            List<User> retry = new ArrayList<>();
+            Set<String> takenUsernames = new HashSet<>(userRepository.findExistingUsernames(users.stream().map(User::getUsername).toList()));
+            Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(users.stream().map(User::getEmail).toList()));
+            for (int i = 0; i < rows.size(); i++) {
+                User user = users.get(i);
+                if (takenUsernames.contains(user.getUsername()) || takenEmails.contains(user.getEmail())) {
+                    fail(report, rows.get(i).line(), "User already exists");
+                } else {
+                    user.setUserId(null);
+                    retry.add(user);
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> userRepository.insertAllInBatch(retry));
+            report.setImported(report.getImported() + retry.size());
+            return;
+        }
+        report.setImported(report.getImported() + users.size());
+    }
+
+    /**
+     * Removes the rows whose username or email is already taken, by an existing user or an earlier row.
+     * Earlier batches are already inserted, so two queries cover duplicates across the whole file.
+     *
+     * @param batch the valid rows of the batch
+     * @param report the report to add the duplicates to
+     * @return the rows that can be inserted
+     */
+    private List<PendingRow> dropDuplicates(List<PendingRow> batch, ImportReport report) {
+        Set<String> takenUsernames = new HashSet<>(userRepository.findExistingUsernames(batch.stream().map(PendingRow::username).toList()));
+        Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(batch.stream().map(PendingRow::email).toList()));
+
+        List<PendingRow> rows = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            // add() is false when the value is taken or was already used by an earlier row of the batch
+            if (!takenUsernames.add(row.username())) {
+                fail(report, row.line(), "Username already exists");
+            } else if (!takenEmails.add(row.email())) {
+                takenUsernames.remove(row.username()); // not imported, so the username is still free
+                fail(report, row.line(), "Email already exists");
+            } else {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Records a failed row, keeping only the first errors in the report.
+     *
+     * @param report the report
+     * @param line the line number of the row
+     * @param message why the row failed
+     */
+    private void fail(ImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportRowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    /**
+     * Splits a CSV line into its fields, handling quoted fields and doubled quotes.
+     *
+     * @param line the line
+     * @return the fields of the line
+     */
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * A valid row waiting for its batch to be imported.
+     */
+    private record PendingRow(long line, String username, String email, String password) {
+    }
+}
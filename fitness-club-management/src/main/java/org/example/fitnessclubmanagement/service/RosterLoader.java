@@ -0,0 +1,67 @@
+package org.example.fitnessclubmanagement.service;
+
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.payload.RosterEntry;
+import org.example.fitnessclubmanagement.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Loads trainer names, participants and absent users for a whole list of schedules at once.
+ */
+@Service
+public class RosterLoader {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Fills in the trainer name and the participant/absent rosters of every given schedule.
+     * Always runs three queries no matter how many schedules are passed in.
+     *
+     * @param schedules the schedules to load rosters for
+     * @throws IllegalArgumentException if the trainer of a schedule is not found
+     */
+    public void loadRosters(List<Schedule> schedules) {
+        if (schedules.isEmpty()) {
+            return; // nothing to load, skip the round trips
+        }
+
+        Set<Long> scheduleIds = schedules.stream()
+                .map(Schedule::getScheduleId)
+                .collect(Collectors.toSet());
+
+        // Queries are already ordered by username, grouping keeps that order within each session
+        Map<Long, List<RosterEntry>> participants = groupByScheduleId(userRepository.findParticipantRosterByScheduleIds(scheduleIds));
+        Map<Long, List<RosterEntry>> absentUsers = groupByScheduleId(userRepository.findAbsentRosterByScheduleIds(scheduleIds));
+        Map<Long, List<RosterEntry>> trainers = groupByScheduleId(userRepository.findTrainerRosterByScheduleIds(scheduleIds));
+
+        for (Schedule schedule : schedules) {
+            Long scheduleId = schedule.getScheduleId();
+            List<RosterEntry> trainer = trainers.get(scheduleId);
+            if (trainer == null) {
+                throw new IllegalArgumentException("Trainer not found");
+            }
+            schedule.setTrainerName(trainer.get(0).getUsername());
+            schedule.setParticipantRoster(participants.getOrDefault(scheduleId, new ArrayList<>()));
+            schedule.setAbsentRoster(absentUsers.getOrDefault(scheduleId, new ArrayList<>()));
+        }
+    }
+
+    /**
+     * Groups roster entries by their schedule ID, keeping the order they came in.
+     *
+     * @param entries the roster entries
+     * @return the entries grouped by schedule ID
+     */
+    private Map<Long, List<RosterEntry>> groupByScheduleId(List<RosterEntry> entries) {
+        Map<Long, List<RosterEntry>> grouped = new HashMap<>();
+        for (RosterEntry entry : entries) {
+            grouped.computeIfAbsent(entry.getScheduleId(), id -> new ArrayList<>()).add(entry);
+        }
+        return grouped;
+    }
+}
@@ -0,0 +1,373 @@
+package org.example.fitnessclubmanagement.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.example.fitnessclubmanagement.exceptions.SubscriberLimitExceededException;
+import org.example.fitnessclubmanagement.payload.ScheduleChange;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes committed schedule changes to Server-Sent Events subscribers, per date range or per trainer.
+ * An idle subscription is a parked async request, not a thread: one daemon thread matches every event to its
+ * subscribers and sends the heartbeats that find dead connections, so a node can hold thousands of kiosks and tablets.
+ * The writes themselves go to a small pool, one subscriber at a time in order, so a client that stops reading ties up
+ * one writer instead of the whole broadcast, and it is dropped once a write takes longer than the send timeout.
+ */
+@Component
+public class ScheduleEventBroadcaster implements MeterBinder, DisposableBean {
+
+    // events queued for one subscriber before it counts as too slow, whatever its writes take
+    private static final int MAX_BACKLOG = 100;
+
+    @Value("${schedule.events.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${schedule.events.timeout:PT30M}")
+    private Duration timeout;
+
+    @Value("${schedule.events.heartbeat:PT15S}")
+    private Duration heartbeat;
+
+    @Value("${schedule.events.retry-after:PT5S}")
+    private Duration retryAfter;
+
+    @Value("${schedule.events.writers:4}")
+    private int writerThreads;
+
+    @Value("${schedule.events.send-timeout:PT10S}")
+    private Duration sendTimeout;
+
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "schedule-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ExecutorService writers;
+
+    // subscriptions with a trainer are only looked at for that trainer's sessions, date ranges for every session
+    private final Map<Long, Set<Subscription>> byTrainer = new ConcurrentHashMap<>();
+    private final Set<Subscription> byRange = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        AtomicInteger writerNumber = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "schedule-events-writer-" + writerNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.scheduleWithFixedDelay(this::sendHeartbeats, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        long check = Math.max(sendTimeout.toMillis() / 2, 1);
+        sender.scheduleWithFixedDelay(this::dropStalledSubscribers, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribes to the changes of the sessions in a date range, of a trainer, or of a trainer within a date range.
+     *
+     * @param from the first date of the range, or null with to for every date
+     * @param to the last date of the range, or null with from for every date
+     * @param trainerId the ID of the trainer, or null for every trainer
+     * @return the emitter the changes are sent to
+     * @throws IllegalArgumentException if neither a full range nor a trainer is given, or the range is invalid
+     * @throws SubscriberLimitExceededException if the node already holds the maximum number of subscriptions
+     */
+    public SseEmitter subscribe(LocalDate from, LocalDate to, Long trainerId) {
+        if ((from == null) != (to == null)) {
+            throw new IllegalArgumentException("A date range needs both a start and an end date");
+        }
+        if (from == null && trainerId == null) {
+            throw new IllegalArgumentException("Subscribe to a date range, a trainer or both");
+        }
+        if (from != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new SubscriberLimitExceededException("Too many live schedule subscribers, please try again shortly",
+                    retryAfter.toSeconds());
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis()); // clients reconnect after it, EventSource does so by itself
+        Subscription subscription = new Subscription(emitter, from, to, trainerId);
+        if (trainerId != null) {
+            byTrainer.computeIfAbsent(trainerId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        } else {
+            byRange.add(subscription);
+        }
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> {
+            remove(subscription);
+            emitter.complete(); // end the stream cleanly instead of through AsyncRequestTimeoutException
+        });
+        emitter.onError(e -> remove(subscription));
+        return emitter;
+    }
+
+    /**
+     * Queues a committed change for its subscribers. Changes of rolled back transactions never get here,
+     * and the request that made the change doesn't wait for slow subscribers.
+     *
+     * @param change the change
+     */
+    @TransactionalEventListener
+    public void onScheduleChange(ScheduleChange change) {
+        try {
+            sender.execute(() -> deliver(change));
+        } catch (RejectedExecutionException e) {
+            // shutting down, the subscribers are being disconnected anyway
+        }
+    }
+
+    /**
+     * Returns the number of open subscriptions.
+     *
+     * @return the number of subscriptions
+     */
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("schedule.events.subscribers", subscribers, AtomicInteger::get).register(registry);
+        FunctionCounter.builder("schedule.events.sent", sent, AtomicLong::get).register(registry);
+        FunctionCounter.builder("schedule.events.dropped", dropped, AtomicLong::get)
+                .description("Subscriptions dropped because sending to them failed or took too long")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        sender.shutdownNow();
+        writers.shutdownNow();
+        allSubscriptions().forEach(subscription -> subscription.emitter.complete());
+    }
+
+    /**
+     * Sends a change to every subscription it matches, once even if it matches both the old and the new trainer.
+     *
+     * @param change the change
+     */
+    private void deliver(ScheduleChange change) {
+        Set<Subscription> targets = new LinkedHashSet<>(byRange);
+        targets.addAll(byTrainer.getOrDefault(change.getTrainerId(), Set.of()));
+        if (change.getPreviousTrainerId() != null) {
+            targets.addAll(byTrainer.getOrDefault(change.getPreviousTrainerId(), Set.of()));
+        }
+
+        // built once here, a builder isn't safe to share between writer threads
+        Set<DataWithMediaType> event = SseEmitter.event()
+                .name(change.getType().name())
+                .data(change, MediaType.APPLICATION_JSON)
+                .build();
+        for (Subscription subscription : targets) {
+            if (subscription.covers(change.getDate())) {
+                send(subscription, event);
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        // a comment line is ignored by EventSource, but a connection that went away fails to write it
+        Set<DataWithMediaType> event = SseEmitter.event().comment("heartbeat").build();
+        allSubscriptions().forEach(subscription -> send(subscription, event));
+    }
+
+    /**
+     * Queues an event for a subscription, and hands the subscription to a writer unless one already has it.
+     *
+     * @param subscription the subscription
+     * @param event the event
+     */
+    private void send(Subscription subscription, Set<DataWithMediaType> event) {
+        if (subscription.backlog() >= MAX_BACKLOG) {
+            drop(subscription);
+            return;
+        }
+        if (subscription.enqueue(event)) {
+            try {
+                subscription.writing = writers.submit(() -> write(subscription));
+            } catch (RejectedExecutionException e) {
+                // shutting down, the subscribers are being disconnected anyway
+            }
+        }
+    }
+
+    /**
+     * Writes the queued events of a subscription in order, on a writer thread.
+     *
+     * @param subscription the subscription
+     */
+    private void write(Subscription subscription) {
+        Set<DataWithMediaType> event;
+        while ((event = subscription.next()) != null) {
+            subscription.writeStarted = System.nanoTime();
+            try {
+                subscription.emitter.send(event);
+                sent.incrementAndGet();
+            } catch (IOException | IllegalStateException e) {
+                // the client went away, the emitter completed or the write was interrupted, the container finishes the request
+                drop(subscription);
+                return;
+            } finally {
+                subscription.writeStarted = 0;
+            }
+        }
+    }
+
+    /**
+     * Drops the subscriptions whose current write has taken longer than the send timeout, and interrupts the write.
+     * The emitter isn't completed from here, that would wait for the very write that is stuck.
+     */
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscription subscription : allSubscriptions()) {
+            long started = subscription.writeStarted;
+            if (started != 0 && now - started > sendTimeout.toNanos() && drop(subscription)) {
+                Future<?> writing = subscription.writing;
+                if (writing != null) {
+                    writing.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a subscription that couldn't be sent to, counting it as dropped.
+     *
+     * @param subscription the subscription
+     * @return true if the subscription was still open
+     */
+    private boolean drop(Subscription subscription) {
+        boolean removed = remove(subscription);
+        if (removed) {
+            dropped.incrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes a subscription, it is called from every callback of its emitter.
+     *
+     * @param subscription the subscription
+     * @return true if the subscription was still open
+     */
+    private boolean remove(Subscription subscription) {
+        boolean removed;
+        if (subscription.trainerId != null) {
+            Set<Subscription> trainerSubscriptions = byTrainer.get(subscription.trainerId);
+            removed = trainerSubscriptions != null && trainerSubscriptions.remove(subscription);
+        } else {
+            removed = byRange.remove(subscription);
+        }
+        if (removed) {
+            subscribers.decrementAndGet();
+        }
+        return removed;
+    }
+
+    private List<Subscription> allSubscriptions() {
+        List<Subscription> all = new ArrayList<>(byRange);
+        byTrainer.values().forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * One subscriber and what it listens to.
+     */
+    private static class Subscription {
+
+        private final SseEmitter emitter;
+
+        private final LocalDate from;
+
+        private final LocalDate to;
+
+        private final Long trainerId;
+
+        private final Queue<Set<DataWithMediaType>> pending = new ArrayDeque<>();
+
+        private boolean queued; // a writer has this subscription, or is about to
+
+        private volatile Future<?> writing;
+
+        private volatile long writeStarted; // System.nanoTime() of the write in progress, 0 between writes
+
+        Subscription(SseEmitter emitter, LocalDate from, LocalDate to, Long trainerId) {
+            this.emitter = emitter;
+            this.from = from;
+            this.to = to;
+            this.trainerId = trainerId;
+        }
+
+        boolean covers(LocalDate date) {
+            return from == null || (!date.isBefore(from) && !date.isAfter(to));
+        }
+
+        /**
+         * Queues an event.
+         *
+         * @param event the event
+         * @return true if no writer has the subscription yet, the caller has to hand it to one
+         */
+        synchronized boolean enqueue(Set<DataWithMediaType> event) {
+            pending.add(event);
+            if (queued) {
+                return false;
+            }
+            queued = true;
+            return true;
+        }
+
+        /**
+         * Takes the next event to write, releasing the subscription from its writer when there is none.
+         *
+         * @return the event, or null if the queue is empty
+         */
+        synchronized Set<DataWithMediaType> next() {
+            Set<DataWithMediaType> event = pending.poll();
+            if (event == null) {
+                queued = false;
+            }
+            return event;
+        }
+
+        synchronized int backlog() {
+            return pending.size();
+        }
+    }
+}
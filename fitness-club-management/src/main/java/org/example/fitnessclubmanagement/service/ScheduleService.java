@@ -1,17 +1,36 @@
 package org.example.fitnessclubmanagement.service;
 
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.exceptions.ScheduleConflictException;
+import org.example.fitnessclubmanagement.exceptions.StaleScheduleException;
 import org.example.fitnessclubmanagement.exceptions.UserNotFoundException;
+import org.example.fitnessclubmanagement.model.Role;
 import org.example.fitnessclubmanagement.model.Schedule;
 import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.AttendanceChangeRequest;
+import org.example.fitnessclubmanagement.payload.AttendanceChangeResult;
+import org.example.fitnessclubmanagement.payload.Recurrence;
+import org.example.fitnessclubmanagement.payload.RecurringSessionRequest;
+import org.example.fitnessclubmanagement.payload.RowFingerprint;
+import org.example.fitnessclubmanagement.payload.ScheduleChange;
+import org.example.fitnessclubmanagement.payload.ScheduleChangeType;
+import org.example.fitnessclubmanagement.payload.ScheduleConflict;
+import org.example.fitnessclubmanagement.payload.ScheduleCursor;
+import org.example.fitnessclubmanagement.payload.SchedulePage;
 import org.example.fitnessclubmanagement.repository.ScheduleRepository;
 import org.example.fitnessclubmanagement.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.Period;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing schedules.
@@ -19,29 +38,69 @@ import java.util.stream.Collectors;
 @Service
 public class ScheduleService {
 
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public static final int MAX_OCCURRENCES = 366; // a year of daily sessions
+
+    private static final Comparator<Schedule> KEYSET_ORDER = Comparator.comparing(Schedule::getDate)
+            .thenComparing(Schedule::getStartTime)
+            .thenComparing(Schedule::getScheduleId);
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private ScheduleRepository scheduleRepository;
 
+    @Autowired
+    private RosterLoader rosterLoader;
+
+    @Autowired
+    private AttendanceStatsService attendanceStatsService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // changes reach ScheduleEventBroadcaster once they commit
+
     /**
-     * Retrieves participants from user IDs and associates them with a schedule session.
+     * Checks that every given user ID belongs to an existing user, using a single query.
      *
-     * @param userIds the list of user IDs
-     * @param schedule the schedule session
-     * @return the set of participants
-     * @throws UserNotFoundException if a user is not found
+     * @param userIds the IDs of the users
+     * @return the distinct user IDs, in the order they were given
+     * @throws UserNotFoundException listing every ID that does not belong to a user
      */
-    private Set<User> getParticipantsFromUserIds(List<Long> userIds, Schedule schedule) {
-        Set<User> participants = new HashSet<>();
-        for (Long userId : userIds) {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new UserNotFoundException("User not found"));
-            user.getSchedules().add(schedule); // add session to user's schedule - needed for their relationship
-            participants.add(user); // add user to participants of the schedule session
+    private Set<Long> resolveParticipantIds(Collection<Long> userIds) {
+        Set<Long> requested = new LinkedHashSet<>(userIds);
+        if (requested.isEmpty()) {
+            return requested;
         }
-        return participants;
+
+        Set<Long> missing = new LinkedHashSet<>(requested);
+        missing.removeAll(userRepository.findExistingIds(requested));
+        if (!missing.isEmpty()) {
+            throw new UserNotFoundException("Users not found: " + missing.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(", ")));
+        }
+        return requested;
+    }
+
+    /**
+     * Replaces the participants of a schedule with the given users.
+     * Only the join rows that actually change are written, and no user or their schedules are loaded.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param userIds the IDs of the new participants, already resolved
+     */
+    private void replaceParticipants(Long scheduleId, Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            scheduleRepository.removeAllParticipants(scheduleId);
+            return;
+        }
+        scheduleRepository.removeParticipantsNotIn(scheduleId, userIds);
+        scheduleRepository.addParticipants(scheduleId, userIds);
     }
 
     /**
@@ -52,40 +111,268 @@ public class ScheduleService {
      * @param date the date of the session
      * @param startTime the start time of the session
      * @param endTime the end time of the session
+     * @throws UserNotFoundException if any of the users are not found
+     * @throws ScheduleConflictException if the trainer or any of the participants is already booked at that time
      */
+    @Transactional
     public void scheduleSession(Long trainerId, List<Long> userIds, LocalDate date, LocalTime startTime, LocalTime endTime) {
-        Schedule schedule = new Schedule(trainerId, date, startTime, endTime);
-        userIds.remove(trainerId); // remove trainer from participants since they are not a participant
-        schedule.setParticipants(getParticipantsFromUserIds(userIds, schedule));
-        scheduleRepository.save(schedule);
+        checkTrainerAvailable(trainerId, List.of(date), startTime, endTime, null);
+        Set<Long> participantIds = resolveParticipantIds(userIds);
+        participantIds.remove(trainerId); // remove trainer from participants since they are not a participant
+        checkMembersAvailable(participantIds, List.of(date), startTime, endTime, null);
+
+        Schedule schedule = scheduleRepository.save(new Schedule(trainerId, date, startTime, endTime));
+        if (!participantIds.isEmpty()) {
+            scheduleRepository.addParticipants(schedule.getScheduleId(), participantIds);
+        }
+        eventPublisher.publishEvent(new ScheduleChange(ScheduleChangeType.CREATED, schedule.getScheduleId(), date, trainerId));
+    }
+
+    /**
+     * Schedules a repeating session, one schedule per occurrence between the start and end date.
+     * The occurrences and their participants are written in two JDBC batches, so a whole term costs
+     * about the same as a single session.
+     *
+     * @param request the recurring session request
+     * @return the number of sessions created
+     * @throws IllegalArgumentException if the dates, times or recurrence are invalid
+     * @throws UserNotFoundException if any of the users are not found
+     * @throws ScheduleConflictException if the trainer or any of the participants is already booked at any of the occurrences
+     */
+    @Transactional
+    public int scheduleRecurringSession(RecurringSessionRequest request) {
+        if (!request.getEndTime().isAfter(request.getStartTime())) {
+            throw new IllegalArgumentException("End time must be after start time");
+        }
+        List<LocalDate> dates = occurrenceDates(request);
+        checkTrainerAvailable(request.getTrainerId(), dates, request.getStartTime(), request.getEndTime(), null);
+
+        Set<Long> participantIds = resolveParticipantIds(request.getUserIds());
+        participantIds.remove(request.getTrainerId());
+        checkMembersAvailable(participantIds, dates, request.getStartTime(), request.getEndTime(), null);
+
+        List<Schedule> schedules = new ArrayList<>(dates.size());
+        for (LocalDate date : dates) {
+            schedules.add(new Schedule(request.getTrainerId(), date, request.getStartTime(), request.getEndTime()));
+        }
+        List<Long> scheduleIds = scheduleRepository.insertAllInBatch(schedules);
+        if (!participantIds.isEmpty()) {
+            scheduleRepository.insertParticipantsInBatch(scheduleIds, participantIds);
+        }
+        for (int i = 0; i < scheduleIds.size(); i++) {
+            eventPublisher.publishEvent(new ScheduleChange(ScheduleChangeType.CREATED, scheduleIds.get(i), dates.get(i), request.getTrainerId()));
+        }
+        return schedules.size();
+    }
+
+    /**
+     * Works out the dates a recurring session falls on, leaving out the skipped dates.
+     *
+     * @param request the recurring session request
+     * @return the dates of the occurrences, in order
+     * @throws IllegalArgumentException if the range is invalid or has too many or no occurrences
+     */
+    private List<LocalDate> occurrenceDates(RecurringSessionRequest request) {
+        LocalDate start = request.getStartDate();
+        LocalDate end = request.getEndDate();
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (request.getInterval() < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1");
+        }
+
+        Period step = request.getRecurrence() == Recurrence.DAILY
+                ? Period.ofDays(request.getInterval())
+                : Period.ofWeeks(request.getInterval());
+        Set<LocalDate> skipDates = new HashSet<>(request.getSkipDates());
+
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plus(step)) {
+            if (skipDates.contains(date)) {
+                continue;
+            }
+            if (dates.size() == MAX_OCCURRENCES) {
+                throw new IllegalArgumentException("A recurring session can have at most " + MAX_OCCURRENCES + " occurrences");
+            }
+            dates.add(date);
+        }
+        if (dates.isEmpty()) {
+            throw new IllegalArgumentException("Recurring session has no occurrences");
+        }
+        return dates;
     }
 
     /**
      * Updates an existing schedule.
+     * Each changed field is written with its own version-checked UPDATE instead of saving the whole entity, so two
+     * admins editing the same session can't overwrite each other and no row is locked while the checks run.
      *
      * @param scheduleId the ID of the schedule
+     * @param expectedVersion the version of the schedule the edit was based on, or null to edit the current version
      * @param startTime the new start time
      * @param endTime the new end time
      * @param trainerId the new trainer ID
      * @param userIds the new list of user IDs
+     * @throws IllegalArgumentException if the schedule is not found
+     * @throws StaleScheduleException if the schedule was changed since the expected version
+     * @throws UserNotFoundException if any of the users are not found
+     * @throws ScheduleConflictException if the new trainer, participants or times would double-book anyone
      */
-    public void updateSchedule(Long scheduleId, LocalTime startTime, LocalTime endTime, Long trainerId, List<Long> userIds) {
-        Schedule schedule = findById(scheduleId);
+    @Transactional
+    public void updateSchedule(Long scheduleId, Long expectedVersion, LocalTime startTime, LocalTime endTime, Long trainerId, List<Long> userIds) {
+        Schedule schedule = scheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new IllegalArgumentException("Schedule not found")); // rosters aren't needed to write
+        entityManager.detach(schedule); // a snapshot, the row is only written by the targeted updates below
+        if (expectedVersion != null && !expectedVersion.equals(schedule.getVersion())) {
+            throw new StaleScheduleException(scheduleId); // no point checking an edit that can't be applied
+        }
+        boolean timesChange = startTime != null && endTime != null;
+        LocalTime newStart = timesChange ? startTime : schedule.getStartTime();
+        LocalTime newEnd = timesChange ? endTime : schedule.getEndTime();
+        if (timesChange || trainerId != null) {
+            checkTrainerAvailable(trainerId != null ? trainerId : schedule.getTrainerId(), List.of(schedule.getDate()),
+                    newStart, newEnd, scheduleId);
+        }
 
-        // Update start and end times
-        if (startTime != null && endTime != null) {
-            updateScheduleTimes(schedule, startTime, endTime);
+        // Everything is checked before anything is written
+        Set<Long> participantIds = null;
+        if (userIds != null) {
+            participantIds = resolveParticipantIds(userIds);
+            if (trainerId != null) {
+                participantIds.remove(trainerId);
+            }
+        }
+        if (participantIds != null || timesChange) {
+            Collection<Long> members = participantIds != null ? participantIds : scheduleRepository.findParticipantIds(scheduleId);
+            checkMembersAvailable(members, List.of(schedule.getDate()), newStart, newEnd, scheduleId);
+        }
+
+        // The first version-checked update claims the row, a concurrent edit of the same version now matches nothing
+        long version = schedule.getVersion();
+        if (timesChange) {
+            checkUpdated(scheduleId, scheduleRepository.updateTimes(scheduleId, version++, startTime, endTime));
+        }
+        if (trainerId != null) {
+            checkUpdated(scheduleId, scheduleRepository.updateTrainer(scheduleId, version++, trainerId));
+        } else if (participantIds != null) {
+            checkUpdated(scheduleId, scheduleRepository.updateVersion(scheduleId, version++));
         }
 
-        //Update trainer and participants
+        boolean trackedInStats = schedule.isAttendanceMarked() && (timesChange || trainerId != null || userIds != null);
+        if (trackedInStats) {
+            attendanceStatsService.removeSession(schedule); // counted again below with the new slot, trainer and participants
+        }
+
+        // Participants are written straight to the join table, the snapshot follows the row for the stats
+        Long previousTrainerId = schedule.getTrainerId();
         if (trainerId != null) {
-            updateScheduleTrainer(schedule, trainerId, userIds);
-        } else if (userIds != null) {
-            updateScheduleParticipants(schedule, userIds);
+            updateScheduleTrainer(schedule, trainerId, participantIds);
+        } else if (participantIds != null) {
+            updateScheduleParticipants(schedule, participantIds);
+        }
+        if (timesChange) {
+            updateScheduleTimes(schedule, startTime, endTime);
+        }
+        schedule.setVersion(version);
+        if (trackedInStats) {
+            attendanceStatsService.addSession(schedule);
         }
+        if (timesChange || trainerId != null || participantIds != null) {
+            eventPublisher.publishEvent(new ScheduleChange(ScheduleChangeType.UPDATED, scheduleId, schedule.getDate(),
+                    schedule.getTrainerId(), previousTrainerId.equals(schedule.getTrainerId()) ? null : previousTrainerId));
+        }
+    }
 
-        // Save updated schedule
-        scheduleRepository.save(schedule);
+    /**
+     * Makes sure a version-checked update found the version it was based on.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param updated the number of rows the update changed
+     * @throws StaleScheduleException if no row was changed
+     */
+    private void checkUpdated(Long scheduleId, int updated) {
+        if (updated == 0) {
+            throw new StaleScheduleException(scheduleId);
+        }
+    }
+
+    /**
+     * Makes sure a trainer has no other session overlapping a time slot on any of the given dates, neither one they
+     * train nor one they take part in. Sessions that only touch, one ending when the other starts, don't overlap.
+     *
+     * @param trainerId the ID of the trainer
+     * @param dates the dates of the proposed sessions
+     * @param startTime the start time of the proposed sessions
+     * @param endTime the end time of the proposed sessions
+     * @param excludeId the ID of the session being edited, or null for new sessions
+     * @throws ScheduleConflictException listing the clashing sessions if there are any
+     */
+    private void checkTrainerAvailable(Long trainerId, Collection<LocalDate> dates, LocalTime startTime, LocalTime endTime, Long excludeId) {
+        List<ScheduleConflict> conflicts = findConflicts(List.of(trainerId), dates, startTime, endTime, excludeId);
+        if (!conflicts.isEmpty()) {
+            throw new ScheduleConflictException("Trainer " + trainerId + " is already booked", conflicts);
+        }
+    }
+
+    /**
+     * Finds every one of the given members that already has a session overlapping a time slot, as a participant or as
+     * its trainer, in two queries however many members are proposed.
+     *
+     * @param userIds the IDs of the proposed participants
+     * @param date the date of the session
+     * @param startTime the start time of the session
+     * @param endTime the end time of the session
+     * @param excludeId the ID of the session being edited, or null for a new session
+     * @return the clashing sessions per member, ordered by member, date and start time
+     */
+    public List<ScheduleConflict> findMemberConflicts(Collection<Long> userIds, LocalDate date, LocalTime startTime, LocalTime endTime, Long excludeId) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return findConflicts(userIds, List.of(date), startTime, endTime, excludeId);
+    }
+
+    /**
+     * Makes sure none of the given members has another session overlapping a time slot on any of the given dates,
+     * including one they train.
+     *
+     * @param userIds the IDs of the proposed participants
+     * @param dates the dates of the proposed sessions
+     * @param startTime the start time of the proposed sessions
+     * @param endTime the end time of the proposed sessions
+     * @param excludeId the ID of the session being edited, or null for new sessions
+     * @throws ScheduleConflictException listing every clash of every member if there are any
+     */
+    private void checkMembersAvailable(Collection<Long> userIds, Collection<LocalDate> dates, LocalTime startTime, LocalTime endTime, Long excludeId) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<ScheduleConflict> conflicts = findConflicts(userIds, dates, startTime, endTime, excludeId);
+        if (!conflicts.isEmpty()) {
+            Set<Long> clashingMembers = conflicts.stream().map(ScheduleConflict::getUserId).collect(Collectors.toCollection(TreeSet::new));
+            throw new ScheduleConflictException("Members " + clashingMembers + " are already booked", conflicts);
+        }
+    }
+
+    /**
+     * Finds the sessions the given users either train or take part in that overlap a time slot on any of the given dates.
+     *
+     * @param userIds the IDs of the users
+     * @param dates the dates of the proposed sessions
+     * @param startTime the start time of the proposed sessions
+     * @param endTime the end time of the proposed sessions
+     * @param excludeId the ID of the session being edited, or null for new sessions
+     * @return the clashes, ordered by user, date and start time
+     */
+    private List<ScheduleConflict> findConflicts(Collection<Long> userIds, Collection<LocalDate> dates, LocalTime startTime,
+                                                 LocalTime endTime, Long excludeId) {
+        List<ScheduleConflict> conflicts = new ArrayList<>(scheduleRepository.findTrainerConflicts(userIds, dates, startTime, endTime, excludeId));
+        conflicts.addAll(scheduleRepository.findParticipantConflicts(userIds, dates, startTime, endTime, excludeId));
+        conflicts.sort(Comparator.comparing(ScheduleConflict::getUserId)
+                .thenComparing(ScheduleConflict::getDate)
+                .thenComparing(ScheduleConflict::getStartTime));
+        return conflicts;
     }
 
     /**
@@ -105,94 +392,221 @@ public class ScheduleService {
      *
      * @param schedule the schedule to update
      * @param trainerId the new trainer ID
-     * @param userIds the new list of user IDs
+     * @param participantIds the IDs of the new participants, already resolved and without the trainer,
+     *                       or null to keep the existing participants
      */
-    private void updateScheduleTrainer(Schedule schedule, Long trainerId, List<Long> userIds) {
+    private void updateScheduleTrainer(Schedule schedule, Long trainerId, Set<Long> participantIds) {
         schedule.setTrainerId(trainerId);
 
-        // If null, use existing participants from session
-        if (userIds == null) {
-            userIds = schedule.getParticipants().stream()
-                    .map(User::getUserId)
-                    .collect(Collectors.toList());
+        // If null, keep existing participants from session,
+        // but drop the new trainer for the chance they were a participant
+        if (participantIds == null) {
+            scheduleRepository.removeParticipants(schedule.getScheduleId(), List.of(trainerId));
+            return;
         }
-
-        // Create a mutable list to remove the trainer from the participants
-        // for the chance the new trainer is also a participant
-        userIds = new ArrayList<>(userIds);
-        userIds.remove(trainerId);
-
-        schedule.setParticipants(getParticipantsFromUserIds(userIds, schedule));
+        replaceParticipants(schedule.getScheduleId(), participantIds);
     }
 
     /**
      * Updates the participants of a schedule.
      *
      * @param schedule the schedule to update
-     * @param userIds the new list of user IDs
+     * @param participantIds the IDs of the new participants, already resolved
      */
-    private void updateScheduleParticipants(Schedule schedule, List<Long> userIds) {
-        schedule.setParticipants(getParticipantsFromUserIds(userIds, schedule));
+    private void updateScheduleParticipants(Schedule schedule, Set<Long> participantIds) {
+        replaceParticipants(schedule.getScheduleId(), participantIds);
     }
 
     /**
      * Marks the attendance of participants in a schedule.
      *
      * @param scheduleId the ID of the schedule
-     * @param absentUserIds the list of user IDs who are absent
+     * @param presentUserIds the list of user IDs who attended, every other participant is absent
+     * @throws IllegalArgumentException if the schedule is not found
      */
-    public void markAttendance(Long scheduleId, List<Long> absentUserIds) {
-        Schedule schedule = findById(scheduleId);
-        Set<User> participants = schedule.getParticipants();
-        Set<User> absentUsers = new HashSet<>();
-
-        for (User participant : participants) {
-            if (!absentUserIds.contains(participant.getUserId())) {
-                absentUsers.add(participant); // add user to absent list if not marked present
+    @Transactional
+    public void markAttendance(Long scheduleId, List<Long> presentUserIds) {
+        scheduleRepository.lockRow(scheduleId); // attendance changes of the session queue here
+        Schedule schedule = scheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new IllegalArgumentException("Schedule not found"));
+        Set<Long> present = new HashSet<>(presentUserIds);
+        Set<Long> absent = new HashSet<>();
+        for (Long participantId : scheduleRepository.findParticipantIds(scheduleId)) {
+            if (!present.contains(participantId)) {
+                absent.add(participantId); // add user to absent list if not marked present
             }
         }
-        schedule.setAbsentUsers(absentUsers);
-        scheduleRepository.save(schedule);
+        applyAttendance(schedule, present, absent);
+    }
+
+    /**
+     * Changes the attendance of single participants in a schedule, participants not listed keep their attendance.
+     * Only the rows of members whose attendance actually changes are written, so the cost follows the size of the
+     * change and the class size only costs one lookup.
+     *
+     * @param scheduleId the ID of the schedule
+     * @param request the IDs of the participants to mark present and absent
+     * @return the IDs of the participants whose attendance changed
+     * @throws IllegalArgumentException if the schedule is not found, a user is in both lists or isn't a participant
+     */
+    @Transactional
+    public AttendanceChangeResult updateAttendance(Long scheduleId, AttendanceChangeRequest request) {
+        scheduleRepository.lockRow(scheduleId); // attendance changes of the session queue here
+        Schedule schedule = scheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new IllegalArgumentException("Schedule not found"));
+        Set<Long> present = request.getPresent() != null ? request.getPresent() : Set.of();
+        Set<Long> absent = request.getAbsent() != null ? request.getAbsent() : Set.of();
+
+        List<Long> conflicting = present.stream().filter(absent::contains).sorted().toList();
+        if (!conflicting.isEmpty()) {
+            throw new IllegalArgumentException("Users can't be both present and absent: " + conflicting);
+        }
+        Set<Long> participantIds = new HashSet<>(scheduleRepository.findParticipantIds(scheduleId));
+        List<Long> notParticipants = Stream.concat(present.stream(), absent.stream())
+                .filter(userId -> !participantIds.contains(userId))
+                .sorted()
+                .toList();
+        if (!notParticipants.isEmpty()) {
+            throw new IllegalArgumentException("Users are not participants of this session: " + notParticipants);
+        }
+        return applyAttendance(schedule, present, absent);
     }
 
     /**
-     * Retrieves all schedules.
+     * Writes the attendance changes of a schedule and keeps the attendance stats in step.
      *
-     * @return the list of schedules
+     * @param schedule the schedule
+     * @param present the IDs of users who attended
+     * @param absent the IDs of participants who didn't attend
+     * @return the IDs of the participants whose attendance changed
      */
-    public List<Schedule> getAllSchedules() {
-        List<Schedule> schedules = scheduleRepository.findAllOrderedByDateAndTime();
+    private AttendanceChangeResult applyAttendance(Schedule schedule, Set<Long> present, Set<Long> absent) {
+        entityManager.detach(schedule); // the row is only written by the targeted update below
+        Set<Long> currentlyAbsent = new HashSet<>(scheduleRepository.findAbsentIds(schedule.getScheduleId()));
+        List<Long> markedPresent = present.stream().filter(currentlyAbsent::contains).sorted().toList();
+        List<Long> markedAbsent = absent.stream().filter(userId -> !currentlyAbsent.contains(userId)).sorted().toList();
+
+        // the join table is written directly, members whose attendance stays the same aren't touched
+        if (!markedPresent.isEmpty()) {
+            scheduleRepository.removeAbsentUsers(schedule.getScheduleId(), markedPresent);
+        }
+        if (!markedAbsent.isEmpty()) {
+            scheduleRepository.addAbsentUsers(schedule.getScheduleId(), markedAbsent);
+        }
+        // decided by the row rather than the loaded entity, which may predate another marking that just committed
+        boolean firstMarking = scheduleRepository.markAttendanceTaken(schedule.getScheduleId()) == 1;
+        if (!firstMarking && (!markedPresent.isEmpty() || !markedAbsent.isEmpty())) {
+            scheduleRepository.touchAttendance(schedule.getScheduleId());
+        }
+        if (firstMarking || !markedPresent.isEmpty() || !markedAbsent.isEmpty()) {
+            eventPublisher.publishEvent(new ScheduleChange(ScheduleChangeType.ATTENDANCE, schedule.getScheduleId(),
+                    schedule.getDate(), schedule.getTrainerId()));
+        }
 
-        // Fixes an ordering issue with the table data in the view
-        // now the data is sorted by name properly
-        for (Schedule schedule : schedules) {
-            schedule.setParticipants(new LinkedHashSet<>(userRepository
-                    .findParticipantsByScheduleID(schedule.getScheduleId()))); // ensures data is sorted by name before passing to the view
-            schedule.setAbsentUsers(new LinkedHashSet<>(userRepository
-                    .findAbsentUsersByScheduleID(schedule.getScheduleId())));
+        if (firstMarking) {
+            schedule.setAttendanceMarked(true);
+            attendanceStatsService.addSession(schedule); // first marking counts the whole class once
+        } else {
+            attendanceStatsService.applyAttendanceChanges(schedule, markedPresent, markedAbsent);
         }
-        return schedules;
+        return new AttendanceChangeResult(markedPresent, markedAbsent);
     }
 
     /**
-     * Retrieves schedules for a specific user.
+     * Retrieves a page of schedules for a specific user within a date window.
+     * Pages are keyset based, so every page costs the same no matter how much history there is.
      *
      * @param user the user
-     * @return the list of schedules
+     * @param from the first date of the window
+     * @param to the last date of the window
+     * @param after the cursor to continue from, or null for the first page
+     * @param pageSize the maximum number of schedules on the page
+     * @return the page of schedules
+     * @throws IllegalArgumentException if the window or page size is invalid
      */
-    public List<Schedule> getSchedulesForUser(User user) {
+    public SchedulePage getSchedulesForUser(User user, LocalDate from, LocalDate to, ScheduleCursor after, int pageSize) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (after == null || after.getDate().isBefore(from)) {
+            after = ScheduleCursor.startOf(from);
+        }
+
+        Limit limit = Limit.of(pageSize + 1); // one extra row tells us if there is a next page
         List<Schedule> schedules;
-        if (user.getRoles().contains("ADMIN")) {
-            schedules = getAllSchedules(); // admin can see all schedules
+        if (user.hasRole(Role.ADMIN)) {
+            schedules = scheduleRepository.findPageAfter(after.getDate(), after.getStartTime(), after.getScheduleId(), to, limit); // admin can see all schedules
         } else {
-            // user can see schedules they are a participant in or are the trainer for
-            schedules = scheduleRepository.findByParticipantsContaining(user);
-            schedules.addAll(scheduleRepository.findByTrainerId(user.getUserId()));
+            // user can see schedules they are a participant in or are the trainer for,
+            // both lists are already in keyset order so they just get merged
+            schedules = mergeInKeysetOrder(
+                    scheduleRepository.findParticipantPageAfter(user.getUserId(), after.getDate(), after.getStartTime(), after.getScheduleId(), to, limit),
+                    scheduleRepository.findTrainerPageAfter(user.getUserId(), after.getDate(), after.getStartTime(), after.getScheduleId(), to, limit));
         }
 
-        schedules.forEach(this::setScheduleDetails); // for each schedule, pass to setScheduleDetails
+        ScheduleCursor nextCursor = null;
+        if (schedules.size() > pageSize) {
+            schedules = new ArrayList<>(schedules.subList(0, pageSize));
+            Schedule last = schedules.get(pageSize - 1);
+            nextCursor = new ScheduleCursor(last.getDate(), last.getStartTime(), last.getScheduleId());
+        }
+
+        rosterLoader.loadRosters(schedules);
+        return new SchedulePage(schedules, nextCursor);
+    }
+
+    /**
+     * Fingerprints the sessions a user would see on a schedule page, in one aggregate query without loading them,
+     * so an unchanged page can be answered before any roster is loaded or template rendered.
+     * It covers the whole window after the cursor, not just the page, so it changes whenever the page could.
+     *
+     * @param user the user
+     * @param from the first date of the window
+     * @param to the last date of the window
+     * @param after the cursor to continue from, or null for the first page
+     * @return the fingerprint of the sessions
+     * @throws IllegalArgumentException if the window is invalid
+     */
+    public RowFingerprint getScheduleFingerprint(User user, LocalDate from, LocalDate to, ScheduleCursor after) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (after == null || after.getDate().isBefore(from)) {
+            after = ScheduleCursor.startOf(from);
+        }
+        if (user.hasRole(Role.ADMIN)) {
+            return scheduleRepository.findWindowFingerprint(after.getDate(), after.getStartTime(), after.getScheduleId(), to);
+        }
+        return scheduleRepository.findViewerWindowFingerprint(user.getUserId(), after.getDate(), after.getStartTime(),
+                after.getScheduleId(), to);
+    }
 
-        return schedules;
+    /**
+     * Merges two lists of schedules that are each sorted by (date, startTime, scheduleId), dropping duplicates.
+     *
+     * @param first the first sorted list
+     * @param second the second sorted list
+     * @return the merged sorted list
+     */
+    private List<Schedule> mergeInKeysetOrder(List<Schedule> first, List<Schedule> second) {
+        List<Schedule> merged = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() || j < second.size()) {
+            Schedule next;
+            if (j >= second.size() || (i < first.size() && KEYSET_ORDER.compare(first.get(i), second.get(j)) <= 0)) {
+                next = first.get(i++);
+            } else {
+                next = second.get(j++);
+            }
+            if (merged.isEmpty() || !merged.get(merged.size() - 1).getScheduleId().equals(next.getScheduleId())) {
+                merged.add(next);
+            }
+        }
+        return merged;
     }
 
     /**
@@ -200,8 +614,15 @@ public class ScheduleService {
      *
      * @param scheduleId the ID of the schedule
      */
+    @Transactional
     public void deleteSchedule(Long scheduleId) {
-        scheduleRepository.deleteById(scheduleId);
+        scheduleRepository.findById(scheduleId).ifPresent(schedule -> {
+            if (schedule.isAttendanceMarked()) {
+                attendanceStatsService.removeSession(schedule);
+            }
+            scheduleRepository.delete(schedule);
+            eventPublisher.publishEvent(new ScheduleChange(ScheduleChangeType.DELETED, scheduleId, schedule.getDate(), schedule.getTrainerId()));
+        });
     }
 
     /**
@@ -209,28 +630,13 @@ public class ScheduleService {
      *
      * @param scheduleId the ID of the schedule
      * @return the schedule
-     * @throws IllegalArgumentException if the schedule is not found
+     * @throws IllegalArgumentException if the schedule or its trainer is not found
      */
     public Schedule findById(Long scheduleId) {
         Schedule schedule = scheduleRepository.findById(scheduleId)
                 .orElseThrow(() -> new IllegalArgumentException("Schedule not found"));
-        setScheduleDetails(schedule);
+        rosterLoader.loadRosters(List.of(schedule));
         return schedule;
     }
 
-    /**
-     * Sets the details of a schedule, including the trainer name and participants.
-     *
-     * @param schedule the schedule to set details for
-     * @throws IllegalArgumentException if the trainer is not found
-     */
-    private void setScheduleDetails(Schedule schedule) {
-        User trainer = userRepository.findById(schedule.getTrainerId())
-                .orElseThrow(() -> new IllegalArgumentException("Trainer not found"));
-        schedule.setTrainerName(trainer.getUsername());
-
-        List<User> sortedParticipants = userRepository.findParticipantsByScheduleID(schedule.getScheduleId());
-        schedule.setParticipants(new LinkedHashSet<>(sortedParticipants));
-    }
-
 }
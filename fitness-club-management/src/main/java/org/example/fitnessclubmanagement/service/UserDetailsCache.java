@@ -0,0 +1,163 @@
+package org.example.fitnessclubmanagement.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.fitnessclubmanagement.payload.CacheStats;
+import org.example.fitnessclubmanagement.payload.UserChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL based cache of UserDetails so logins don't hit the database every time.
+ * Least recently used entries are evicted once the cache is full.
+ */
+@Component
+public class UserDetailsCache implements MeterBinder {
+
+    @Value("${auth.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${auth.cache.ttl:PT5M}")
+    private Duration ttl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // bumped on every invalidation so a load that raced with a change never gets cached
+    private long generation;
+
+    // access ordered, so the eldest entry is always the least recently used one
+    private final LinkedHashMap<String, CachedUser> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Returns the cached user details, loading and caching them on a miss.
+     *
+     * @param username the username to look up
+     * @param loader loads the user details from the database on a miss
+     * @return a fresh copy of the user details
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        long now = System.nanoTime();
+        long loadGeneration;
+        synchronized (entries) {
+            loadGeneration = generation;
+            CachedUser cached = entries.get(username);
+            if (cached != null) {
+                if (now - cached.loadedAt < ttl.toNanos()) {
+                    hits.incrementAndGet();
+                    return copyOf(cached.userDetails);
+                }
+                entries.remove(username);
+                expirations.incrementAndGet();
+            }
+        }
+
+        // load outside the lock, a slow database shouldn't block every other login
+        misses.incrementAndGet();
+        UserDetails loaded = loader.apply(username);
+        synchronized (entries) {
+            if (generation == loadGeneration) {
+                entries.put(username, new CachedUser(copyOf(loaded), now));
+            }
+        }
+        return copyOf(loaded);
+    }
+
+    /**
+     * Drops a user from the cache, called whenever their record changes.
+     *
+     * @param username the username to drop
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            generation++;
+            if (entries.remove(username) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops a changed user once the change commits, a login loading them before that would cache the old row again.
+     * Changes made outside a transaction are already committed and drop the user straight away.
+     *
+     * @param change the committed change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChange(UserChange change) {
+        invalidate(change.getUsername());
+    }
+
+    /**
+     * Drops every user from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the current counters of the cache.
+     *
+     * @return the cache stats
+     */
+    public CacheStats getStats() {
+        synchronized (entries) {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), expirations.get(), invalidations.get(), entries.size(), maxSize);
+        }
+    }
+
+    /**
+     * Publishes the cache counters as metrics, next to the JSON at /admin/auth-cache.
+     *
+     * @param registry the registry to bind to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.cache.requests", hits, AtomicLong::get).tag("result", "hit").register(registry);
+        FunctionCounter.builder("auth.cache.requests", misses, AtomicLong::get).tag("result", "miss").register(registry);
+        FunctionCounter.builder("auth.cache.removals", evictions, AtomicLong::get).tag("cause", "size").register(registry);
+        FunctionCounter.builder("auth.cache.removals", expirations, AtomicLong::get).tag("cause", "expired").register(registry);
+        FunctionCounter.builder("auth.cache.removals", invalidations, AtomicLong::get).tag("cause", "invalidated").register(registry);
+        Gauge.builder("auth.cache.size", this, cache -> cache.getStats().getSize()).register(registry);
+    }
+
+    /**
+     * Copies user details, since Spring Security erases the password of the object it is handed after login.
+     *
+     * @param userDetails the user details to copy
+     * @return the copy
+     */
+    private UserDetails copyOf(UserDetails userDetails) {
+        return User.withUserDetails(userDetails).build();
+    }
+
+    private record CachedUser(UserDetails userDetails, long loadedAt) {
+    }
+}
@@ -3,17 +3,27 @@ package org.example.fitnessclubmanagement.service;
 import jakarta.annotation.PostConstruct;
 import org.example.fitnessclubmanagement.exceptions.UserAlreadyExistsException;
 import org.example.fitnessclubmanagement.exceptions.UserNotFoundException;
+import org.example.fitnessclubmanagement.model.Role;
 import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.UserChange;
+import org.example.fitnessclubmanagement.payload.UserPage;
+import org.example.fitnessclubmanagement.payload.UserSort;
+import org.example.fitnessclubmanagement.payload.UserSummary;
 import org.example.fitnessclubmanagement.payload.UserUpdateRequest;
+import org.example.fitnessclubmanagement.repository.ScheduleRepository;
 import org.example.fitnessclubmanagement.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -24,12 +34,23 @@ import java.util.Set;
 @Service
 public class UserService implements UserDetailsService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher; // cached logins are dropped once the change commits
+
     @Value("${admin.username}")
     private String adminUsername; // no hardcoded credentials around here
 
@@ -91,26 +112,79 @@ public class UserService implements UserDetailsService {
      * @param role the role of the users
      * @return the list of users
      */
-    public List<User> getUsersByRole(String role) {
+    public List<User> getUsersByRole(Role role) {
         return userRepository.findUserByRoleOrderedByUsername(role);
     }
 
     /**
-     * Retrieves a list of all users.
+     * Retrieves one keyset page of the user directory.
      *
-     * @return the list of users
+     * @param sort the column to sort and page by
+     * @param after the value of the sort column on the last row of the previous page, or null for the first page
+     * @param pageSize the maximum number of users on the page
+     * @return the page of users
+     * @throws IllegalArgumentException if the cursor or page size is invalid
      */
-    public List<User> getAllUsers() {
-        return userRepository.findAllOrderedByUsername();
+    public UserPage getUserPage(UserSort sort, String after, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String cursor = after == null ? "" : after;
+        Limit limit = Limit.of(pageSize + 1); // one extra row tells us if there is a next page
+
+        List<UserSummary> users = switch (sort) {
+            case USERNAME -> userRepository.findSummariesByUsernameAfter(cursor, limit);
+            case EMAIL -> userRepository.findSummariesByEmailAfter(cursor, limit);
+            case ID -> userRepository.findSummariesByIdAfter(parseIdCursor(cursor), limit);
+        };
+
+        String nextCursor = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            UserSummary last = users.get(pageSize - 1);
+            nextCursor = switch (sort) {
+                case USERNAME -> last.getUsername();
+                case EMAIL -> last.getEmail();
+                case ID -> last.getUserId().toString();
+            };
+        }
+        return new UserPage(users, sort, nextCursor);
     }
 
+    /**
+     * Retrieves the directory rows of the given users.
+     *
+     * @param userIds the IDs of the users
+     * @return the users ordered by username, missing IDs are left out
+     */
+    public List<UserSummary> getUserSummaries(Collection<Long> userIds) {
+        return userIds.isEmpty() ? List.of() : userRepository.findSummariesByIds(userIds);
+    }
+
+    /**
+     * Parses the cursor of a directory page sorted by ID.
+     *
+     * @param cursor the cursor, empty for the first page
+     * @return the last ID of the previous page
+     * @throws IllegalArgumentException if the cursor is not a number
+     */
+    private Long parseIdCursor(String cursor) {
+        if (cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+    }
 
     /**
      * Creates a default admin user if one does not exist.
      */
     private void createDefaultAdmin() {
-        if (userRepository.findByRolesContaining("ADMIN").isEmpty()) {
-            User admin = new User(adminUsername, adminEmail, passwordEncoder.encode(adminPassword), Set.of("ADMIN", "USER"));
+        if (userRepository.findByRolesContaining(Role.ADMIN).isEmpty()) {
+            User admin = new User(adminUsername, adminEmail, passwordEncoder.encode(adminPassword), Set.of(Role.ADMIN, Role.USER));
             userRepository.save(admin);
         }
     }
@@ -122,13 +196,15 @@ public class UserService implements UserDetailsService {
      * @param currentUsername the username of the current user
      * @throws IllegalArgumentException if the user tries to delete themselves
      */
+    @Transactional
     public void deleteUser(Long userId, String currentUsername) {
         User user = getUserById(userId);
         if (user.getUsername().equals(currentUsername)) {
             throw new IllegalArgumentException("Cannot delete yourself"); // just in case something goes buck wild (confidence lvl 100)
         }
+        touchSchedulesOf(user);
         userRepository.delete(user);
-
+        eventPublisher.publishEvent(new UserChange(user.getUsername()));
     }
 
     /**
@@ -142,7 +218,7 @@ public class UserService implements UserDetailsService {
         UserUpdateRequest userUpdateRequest = new UserUpdateRequest();
         userUpdateRequest.setUsername(user.getUsername());
         userUpdateRequest.setEmail(user.getEmail());
-        userUpdateRequest.setTrainerRole(user.getRoles().contains("TRAINER") ? "on" : null);
+        userUpdateRequest.setTrainerRole(user.hasRole(Role.TRAINER) ? "on" : null);
         return userUpdateRequest;
     }
 
@@ -153,8 +229,10 @@ public class UserService implements UserDetailsService {
      * @param request the user update request
      * @throws UserAlreadyExistsException if the username or email already exists
      */
+    @Transactional
     public void updateUser(Long userId, UserUpdateRequest request) {
         User currentUser = getUserById(userId);
+        String previousUsername = currentUser.getUsername();
 
         // if the username is different and the new username already exists
         if (!currentUser.getUsername().equals(request.getUsername()) && userRepository.existsByUsername(request.getUsername())) {
@@ -167,20 +245,40 @@ public class UserService implements UserDetailsService {
 
         currentUser.setUsername(request.getUsername());
         currentUser.setEmail(request.getEmail());
-        Set<String> roles = currentUser.getRoles();
+        Set<Role> roles = currentUser.getRoles();
 
         // if the trainer box is checked, add the role, otherwise remove it
         if (request.getTrainerRole() != null) {
-            roles.add("TRAINER");
+            roles.add(Role.TRAINER);
         } else {
-            roles.remove("TRAINER");
+            roles.remove(Role.TRAINER);
         }
         currentUser.setRoles(roles);
         userRepository.save(currentUser);
+        if (!previousUsername.equals(currentUser.getUsername())) {
+            touchSchedulesOf(currentUser);
+        }
+
+        // roles or username may have changed, so the cached login details are stale
+        eventPublisher.publishEvent(new UserChange(previousUsername));
+        if (!previousUsername.equals(currentUser.getUsername())) {
+            eventPublisher.publishEvent(new UserChange(currentUser.getUsername()));
+        }
+    }
+
+    /**
+     * Bumps the version of every schedule a user trains or takes part in, since schedule pages show their username.
+     *
+     * @param user the user
+     */
+    private void touchSchedulesOf(User user) {
+        scheduleRepository.touchSchedulesTrainedBy(user.getUserId());
+        scheduleRepository.touchSchedulesAttendedBy(user.getUserId());
     }
 
     /**
      * Loads a user by their username for authentication.
+     * Served from the in-process cache when possible.
      *
      * @param username the username of the user
      * @return the user details
@@ -188,15 +286,25 @@ public class UserService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::buildUserDetails);
+    }
+
+    /**
+     * Builds the user details of a user straight from the database.
+     *
+     * @param username the username of the user
+     * @return the user details
+     */
+    private UserDetails buildUserDetails(String username) {
         User user = getUserByUsername(username); // creates a user details object
-        Set<String> roles = user.getRoles(); // get role
+        Set<Role> roles = user.getRoles(); // get role
 
         // Build and return the object with the users information
         // This is a spring security thing, don't worry about it too much
         return org.springframework.security.core.userdetails.User
                 .withUsername(user.getUsername())
                 .password(user.getPassword())
-                .roles(roles.toArray(new String[0]))
+                .roles(roles.stream().map(Role::name).toArray(String[]::new))
                 .build();
 
         // For authentication (spring security moment)
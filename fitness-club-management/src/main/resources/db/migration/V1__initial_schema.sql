@@ -0,0 +1,43 @@
+-- Schema as Hibernate's ddl-auto=update created it before migrations were introduced.
+-- Existing databases are baselined at this version, so this only runs on empty ones.
+
+CREATE TABLE users (
+    user_id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(20) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE roles (
+    user_id BIGINT NOT NULL,
+    role VARCHAR(255),
+    CONSTRAINT fk_roles_user FOREIGN KEY (user_id) REFERENCES users (user_id)
+);
+
+CREATE TABLE schedule (
+    schedule_id BIGINT NOT NULL AUTO_INCREMENT,
+    date DATE NOT NULL,
+    start_time TIME(6) NOT NULL,
+    end_time TIME(6) NOT NULL,
+    trainer_id BIGINT NOT NULL,
+    PRIMARY KEY (schedule_id)
+);
+
+CREATE TABLE schedule_participants (
+    schedule_schedule_id BIGINT NOT NULL,
+    participants_user_id BIGINT NOT NULL,
+    PRIMARY KEY (participants_user_id, schedule_schedule_id),
+    CONSTRAINT fk_participants_schedule FOREIGN KEY (schedule_schedule_id) REFERENCES schedule (schedule_id),
+    CONSTRAINT fk_participants_user FOREIGN KEY (participants_user_id) REFERENCES users (user_id)
+);
+
+CREATE TABLE schedule_absent_users (
+    schedule_schedule_id BIGINT NOT NULL,
+    absent_users_user_id BIGINT NOT NULL,
+    PRIMARY KEY (absent_users_user_id, schedule_schedule_id),
+    CONSTRAINT fk_absent_users_schedule FOREIGN KEY (schedule_schedule_id) REFERENCES schedule (schedule_id),
+    CONSTRAINT fk_absent_users_user FOREIGN KEY (absent_users_user_id) REFERENCES users (user_id)
+);
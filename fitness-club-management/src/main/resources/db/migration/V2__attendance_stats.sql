@@ -0,0 +1,16 @@
+-- Only sessions that had their attendance taken count towards the attendance stats
+ALTER TABLE schedule ADD COLUMN attendance_marked BIT NOT NULL DEFAULT FALSE;
+
+-- Per member, trainer and week read model kept up to date by AttendanceStatsService.
+-- Sessions marked before this migration are counted by POST /admin/attendance/stats/rebuild.
+CREATE TABLE attendance_stats (
+    user_id BIGINT NOT NULL,
+    trainer_id BIGINT NOT NULL,
+    week_start DATE NOT NULL,
+    attended INTEGER NOT NULL,
+    missed INTEGER NOT NULL,
+    PRIMARY KEY (user_id, trainer_id, week_start)
+);
+
+-- the dashboard reads a range of weeks
+CREATE INDEX idx_attendance_stats_week ON attendance_stats (week_start);
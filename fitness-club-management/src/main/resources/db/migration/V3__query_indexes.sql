@@ -0,0 +1,15 @@
+-- Indexes for the queries in ScheduleRepository and UserRepository, RepositoryQueryPlanTests checks they are used.
+
+-- Schedule pages: keyset on (date, start_time, schedule_id) and the date window of the export
+CREATE INDEX idx_schedule_date_start ON schedule (date, start_time, schedule_id);
+
+-- Trainer's own sessions and the double-booking check: seek by trainer and date, then range by start time
+CREATE INDEX idx_schedule_trainer_date_start ON schedule (trainer_id, date, start_time);
+
+-- The join tables' primary keys lead with the user, which serves "sessions of a member".
+-- These serve the other direction, "members of a session", used by the rosters and attendance writes.
+CREATE INDEX idx_participants_schedule_user ON schedule_participants (schedule_schedule_id, participants_user_id);
+CREATE INDEX idx_absent_users_schedule_user ON schedule_absent_users (schedule_schedule_id, absent_users_user_id);
+
+-- Users by role, e.g. the trainer pickers
+CREATE INDEX idx_roles_role_user ON roles (role, user_id);
@@ -0,0 +1,14 @@
+-- Roles move from their own table into a bitmask on users, one bit per role as in the Role enum:
+-- USER = 1, ADMIN = 2, TRAINER = 4. Loading a user no longer needs a second query for its roles.
+
+ALTER TABLE users ADD COLUMN role_mask INTEGER NOT NULL DEFAULT 0;
+
+UPDATE users SET role_mask =
+    CASE WHEN EXISTS (SELECT 1 FROM roles r WHERE r.user_id = users.user_id AND r.role = 'USER') THEN 1 ELSE 0 END
+  + CASE WHEN EXISTS (SELECT 1 FROM roles r WHERE r.user_id = users.user_id AND r.role = 'ADMIN') THEN 2 ELSE 0 END
+  + CASE WHEN EXISTS (SELECT 1 FROM roles r WHERE r.user_id = users.user_id AND r.role = 'TRAINER') THEN 4 ELSE 0 END;
+
+-- role filters list the masks containing a role, the username keeps the trainer list in order without a sort
+CREATE INDEX idx_users_role_mask_username ON users (role_mask, username);
+
+DROP TABLE roles;
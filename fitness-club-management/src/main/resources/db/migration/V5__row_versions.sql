@@ -0,0 +1,4 @@
+-- Row versions, bumped on every change to a row. For a schedule this includes its participants and attendance,
+-- and the usernames its page shows. The schedule and user pages build their ETags from them.
+ALTER TABLE schedule ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,13 @@
+-- Logins shared by every application node instead of each node's in-memory HttpSession.
+-- session_id is a SHA-256 of the SESSION cookie, never the cookie itself, and the security context is kept as
+-- the username and the role mask (see V4). expires_at is in epoch milliseconds and slides while the login is used.
+CREATE TABLE login_sessions (
+    session_id CHAR(64) NOT NULL,
+    username VARCHAR(20) NOT NULL,
+    role_mask INTEGER NOT NULL,
+    expires_at BIGINT NOT NULL,
+    PRIMARY KEY (session_id)
+);
+
+-- the periodic cleanup deletes expired logins by range
+CREATE INDEX idx_login_sessions_expires_at ON login_sessions (expires_at);
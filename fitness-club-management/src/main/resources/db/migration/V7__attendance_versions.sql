@@ -0,0 +1,3 @@
+-- Attendance changes bump their own counter instead of the schedule's version, so taking attendance doesn't make the
+-- edit forms open on the session fail as stale. The schedule page's ETags and row cache go by the sum of both.
+ALTER TABLE schedule ADD COLUMN attendance_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,3 @@
+-- Verifying and rebuilding the attendance stats only read sessions whose attendance was taken.
+-- Covering the columns they group by keeps them to the index instead of every schedule row.
+CREATE INDEX idx_schedule_attendance_marked ON schedule (attendance_marked, schedule_id, trainer_id, date);
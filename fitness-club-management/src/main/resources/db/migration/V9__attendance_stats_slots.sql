@@ -0,0 +1,22 @@
+-- The attendance stats are also kept per time slot, the day of the week and start time of the sessions, so rates per
+-- slot are read from the stats too. Existing rows have no slot and are dropped, POST /admin/attendance/stats/rebuild
+-- counts the sessions again.
+DROP TABLE attendance_stats;
+
+CREATE TABLE attendance_stats (
+    user_id BIGINT NOT NULL,
+    trainer_id BIGINT NOT NULL,
+    week_start DATE NOT NULL,
+    day_of_week INTEGER NOT NULL, -- ISO, 1 is Monday
+    start_time TIME NOT NULL,
+    attended INTEGER NOT NULL,
+    missed INTEGER NOT NULL,
+    PRIMARY KEY (user_id, trainer_id, week_start, day_of_week, start_time)
+);
+
+-- the dashboard reads a range of weeks
+CREATE INDEX idx_attendance_stats_week ON attendance_stats (week_start);
+
+-- verifying and rebuilding now group by start time too, which the index has to cover
+DROP INDEX idx_schedule_attendance_marked ON schedule;
+CREATE INDEX idx_schedule_attendance_marked ON schedule (attendance_marked, schedule_id, trainer_id, date, start_time);
@@ -0,0 +1,68 @@
+package org.example.fitnessclubmanagement;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Users and sessions the tests set up, persisted in the test's transaction.
+ */
+public final class TestData {
+
+	private TestData() {
+	}
+
+	/**
+	 * Persists a user with the email username@example.com and the password "password".
+	 *
+	 * @param entityManager the test's entity manager
+	 * @param username the username
+	 * @param roles the roles
+	 * @return the user, with its id
+	 */
+	public static User persistUser(EntityManager entityManager, String username, Set<Role> roles) {
+		User user = new User(username, username + "@example.com", "password", new HashSet<>(roles));
+		entityManager.persist(user);
+		return user;
+	}
+
+	/**
+	 * Persists a session from 09:00 to 10:00.
+	 *
+	 * @param entityManager the test's entity manager
+	 * @param trainer the trainer
+	 * @param date the date
+	 * @param participants the members taking part
+	 * @param absentUsers the participants marked absent
+	 * @return the session, with its id
+	 */
+	public static Schedule persistSchedule(EntityManager entityManager, User trainer, LocalDate date,
+										   Set<User> participants, Set<User> absentUsers) {
+		Schedule schedule = new Schedule(trainer.getUserId(), date, LocalTime.of(9, 0), LocalTime.of(10, 0));
+		schedule.setParticipants(new HashSet<>(participants));
+		schedule.setAbsentUsers(new HashSet<>(absentUsers));
+		entityManager.persist(schedule);
+		return schedule;
+	}
+
+	/**
+	 * Loads the sessions an admin sees on the first schedule page, wide and long enough for anything a test sets up.
+	 *
+	 * @param entityManager the test's entity manager
+	 * @param scheduleService the schedule service
+	 * @return the sessions, in date and start time order
+	 */
+	public static List<Schedule> schedules(EntityManager entityManager, ScheduleService scheduleService) {
+		User admin = entityManager.createQuery("SELECT u FROM User u WHERE u.username = 'admin'", User.class).getSingleResult();
+		return scheduleService.getSchedulesForUser(admin, LocalDate.of(2000, 1, 1), LocalDate.of(2099, 12, 31), null,
+				ScheduleService.MAX_PAGE_SIZE).getSchedules();
+	}
+}
@@ -0,0 +1,26 @@
+package org.example.fitnessclubmanagement.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.NestedExceptionUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsConfigTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withUserConfiguration(VirtualThreadsConfig.class);
+
+	@Test
+	void virtualThreadsStartOnlyWhereTheJvmHasThem() {
+		boolean supported = JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+		contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+			assertEquals(!supported, context.getStartupFailure() != null);
+			if (!supported) {
+				assertTrue(NestedExceptionUtils.getMostSpecificCause(context.getStartupFailure()).getMessage().contains("needs Java 21"));
+			}
+		});
+		contextRunner.run(context -> assertNull(context.getStartupFailure()));
+	}
+}
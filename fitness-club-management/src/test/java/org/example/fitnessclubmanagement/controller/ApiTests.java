@@ -0,0 +1,121 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.schedules;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ApiTests {
+
+	private static final String WEEK = "/api/v1/schedules?from=2024-01-01&to=2024-01-07";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private User trainer;
+
+	private User zoe;
+
+	private Long scheduleId;
+
+	@BeforeEach
+	void setUp() {
+		trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		persistUser(entityManager, "mike", Set.of(Role.USER));
+		scheduleService.scheduleSession(trainer.getUserId(), List.of(zoe.getUserId()), LocalDate.of(2024, 1, 2),
+				LocalTime.of(9, 0), LocalTime.of(10, 0));
+		scheduleId = schedules(entityManager, scheduleService).get(0).getScheduleId();
+		scheduleService.markAttendance(scheduleId, List.of());
+	}
+
+	@Test
+	@WithMockUser(username = "zoe")
+	void schedulesAreFlatWithParticipantIdsAndTheTrainerName() throws Exception {
+		mockMvc.perform(get(WEEK))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].scheduleId").value(scheduleId))
+				.andExpect(jsonPath("$.items[0].date").value("2024-01-02"))
+				.andExpect(jsonPath("$.items[0].trainerName").value("trainer"))
+				.andExpect(jsonPath("$.items[0].participantIds", contains(zoe.getUserId().intValue())))
+				.andExpect(jsonPath("$.items[0].absentIds", contains(zoe.getUserId().intValue())))
+				.andExpect(jsonPath("$.items[0].participants").doesNotExist())
+				.andExpect(jsonPath("$.nextCursor").isEmpty());
+	}
+
+	@Test
+	@WithMockUser(username = "zoe")
+	void fieldsPicksThePropertiesOfEachItem() throws Exception {
+		mockMvc.perform(get(WEEK + "&fields=scheduleId,startTime"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].scheduleId").value(scheduleId))
+				.andExpect(jsonPath("$.items[0].startTime").value("09:00:00"))
+				.andExpect(jsonPath("$.items[0].trainerName").doesNotExist())
+				.andExpect(jsonPath("$.items[0].participantIds").doesNotExist());
+		mockMvc.perform(get(WEEK + "&fields=scheduleId,participants"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@WithMockUser(username = "zoe")
+	void rosterIsOnlySentToThoseInTheSession() throws Exception {
+		mockMvc.perform(get("/api/v1/schedules/" + scheduleId + "/roster"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].username").value("zoe"))
+				.andExpect(jsonPath("$[0].absent").value(true));
+		mockMvc.perform(get("/api/v1/schedules/" + scheduleId + "?fields=version"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.version").isNumber());
+	}
+
+	@Test
+	@WithMockUser(username = "mike")
+	void othersCantReadTheSessionOrTheDirectory() throws Exception {
+		mockMvc.perform(get("/api/v1/schedules/" + scheduleId + "/roster")).andExpect(status().isForbidden());
+		mockMvc.perform(get("/api/v1/schedules/" + scheduleId)).andExpect(status().isForbidden());
+		mockMvc.perform(get("/api/v1/users")).andExpect(status().isForbidden());
+	}
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void directoryIsPagedWithSelectableFields() throws Exception {
+		mockMvc.perform(get("/api/v1/users?fields=username"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[*].username", contains("admin", "mike", "trainer", "zoe")))
+				.andExpect(jsonPath("$.items[0].email").doesNotExist());
+	}
+
+	@Test
+	void apiAnswersUnauthorizedInsteadOfRedirectingToTheLoginPage() throws Exception {
+		mockMvc.perform(get(WEEK)).andExpect(status().isUnauthorized());
+	}
+}
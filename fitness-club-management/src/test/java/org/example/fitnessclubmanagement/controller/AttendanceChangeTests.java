@@ -0,0 +1,121 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.schedules;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// PATCH /schedule/mark-attendance/{id}, the JSON counterpart of the attendance form
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class AttendanceChangeTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private User anna;
+
+	private User zoe;
+
+	private User mike;
+
+	private Long scheduleId;
+
+	@BeforeEach
+	void setUp() {
+		User trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		anna = persistUser(entityManager, "anna", Set.of(Role.USER));
+		zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		mike = persistUser(entityManager, "mike", Set.of(Role.USER));
+		scheduleService.scheduleSession(trainer.getUserId(), List.of(anna.getUserId(), zoe.getUserId()),
+				LocalDate.of(2024, 1, 2), LocalTime.of(9, 0), LocalTime.of(10, 0));
+		scheduleId = schedules(entityManager, scheduleService).get(0).getScheduleId();
+	}
+
+	@Test
+	@WithMockUser(username = "trainer", roles = {"USER", "TRAINER"})
+	void answersTheMembersWhoseAttendanceChanged() throws Exception {
+		change(scheduleId, "{\"absent\": [" + zoe.getUserId() + "]}") // first marking, anna counts as present
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.markedPresent", empty()))
+				.andExpect(jsonPath("$.markedAbsent", contains(zoe.getUserId().intValue())));
+
+		// zoe is already absent, so only anna's change is reported
+		change(scheduleId, "{\"present\": [" + zoe.getUserId() + "], \"absent\": [" + anna.getUserId() + "]}")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.markedPresent", contains(zoe.getUserId().intValue())))
+				.andExpect(jsonPath("$.markedAbsent", contains(anna.getUserId().intValue())));
+		change(scheduleId, "{\"absent\": [" + anna.getUserId() + "]}")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.markedPresent", empty()))
+				.andExpect(jsonPath("$.markedAbsent", empty()));
+	}
+
+	@Test
+	@WithMockUser(username = "trainer", roles = {"USER", "TRAINER"})
+	void rejectsChangesThatDontFitTheSession() throws Exception {
+		change(scheduleId, "{\"present\": [" + anna.getUserId() + "], \"absent\": [" + anna.getUserId() + "]}")
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Users can't be both present and absent: [" + anna.getUserId() + "]"));
+		change(scheduleId, "{\"absent\": [" + mike.getUserId() + "]}")
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Users are not participants of this session: [" + mike.getUserId() + "]"));
+		change(scheduleId + 1000, "{\"absent\": [" + anna.getUserId() + "]}")
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Schedule not found"));
+		change(scheduleId, "{\"absent\": [\"anna\"]}")
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Malformed request body"));
+	}
+
+	@Test
+	void requiresALoginAndACsrfToken() throws Exception {
+		change(scheduleId, "{\"absent\": []}").andExpect(status().isUnauthorized());
+		mockMvc.perform(patch("/schedule/mark-attendance/" + scheduleId)
+						.with(user("trainer").roles("USER", "TRAINER"))
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"absent\": []}"))
+				.andExpect(status().isForbidden());
+	}
+
+	private ResultActions change(Long scheduleId, String body) throws Exception {
+		return mockMvc.perform(patch("/schedule/mark-attendance/" + scheduleId)
+				.with(csrf())
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(body));
+	}
+}
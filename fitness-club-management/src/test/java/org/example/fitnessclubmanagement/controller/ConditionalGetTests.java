@@ -0,0 +1,134 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.http.Cookie;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.UserUpdateRequest;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.example.fitnessclubmanagement.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.schedules;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ConditionalGetTests {
+
+	private static final String WEEK = "/schedule/view?from=2024-01-01&to=2024-01-07";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private final Cookie csrfCookie = new Cookie("XSRF-TOKEN", UUID.randomUUID().toString());
+
+	private Statistics statistics;
+
+	private User trainer;
+
+	private User zoe;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		scheduleService.scheduleSession(trainer.getUserId(), List.of(zoe.getUserId()), LocalDate.of(2024, 1, 2),
+				LocalTime.of(9, 0), LocalTime.of(10, 0));
+	}
+
+	@Test
+	@WithMockUser(username = "zoe")
+	void schedulePageIsNotModifiedUntilItsSessionsChange() throws Exception {
+		String etag = fetch(WEEK, null);
+
+		statistics.clear();
+		mockMvc.perform(get(WEEK).cookie(csrfCookie).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"));
+		assertEquals(2, statistics.getPrepareStatementCount()); // the viewer and the fingerprint, no rosters
+
+		Long scheduleId = schedules(entityManager, scheduleService).get(0).getScheduleId();
+		scheduleService.markAttendance(scheduleId, List.of()); // only the absent join table and the flag change
+		String afterAttendance = fetch(WEEK, etag);
+		assertNotEquals(etag, afterAttendance);
+
+		UserUpdateRequest rename = userService.getUserUpdateRequest(trainer.getUserId());
+		rename.setUsername("coach");
+		userService.updateUser(trainer.getUserId(), rename); // the page shows the trainer's name
+		assertNotEquals(afterAttendance, fetch(WEEK, afterAttendance));
+	}
+
+	@Test
+	@WithMockUser(username = "zoe")
+	void schedulePageOfAnotherBrowserOrWeekHasItsOwnTag() throws Exception {
+		String etag = fetch(WEEK, null);
+
+		assertNotEquals(etag, fetch("/schedule/view?from=2024-01-08&to=2024-01-14", etag));
+		mockMvc.perform(get(WEEK).cookie(new Cookie("XSRF-TOKEN", "another")).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk()); // pages embed the browser's CSRF token
+	}
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void userDirectoryIsNotModifiedUntilAUserOnThePageChanges() throws Exception {
+		String etag = fetch("/users", null);
+		mockMvc.perform(get("/users").cookie(csrfCookie).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		UserUpdateRequest request = userService.getUserUpdateRequest(zoe.getUserId());
+		request.setEmail("zoe@example.org");
+		userService.updateUser(zoe.getUserId(), request);
+		assertNotEquals(etag, fetch("/users", etag));
+	}
+
+	/**
+	 * Fetches a page that must be rendered in full.
+	 *
+	 * @param url the page
+	 * @param ifNoneMatch the ETag to send, or null
+	 * @return the ETag of the page
+	 */
+	private String fetch(String url, String ifNoneMatch) throws Exception {
+		var request = get(url).cookie(csrfCookie);
+		if (ifNoneMatch != null) {
+			request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		String etag = mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+		return etag;
+	}
+}
@@ -0,0 +1,144 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.RosterEntry;
+import org.example.fitnessclubmanagement.payload.UserSummary;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.schedules;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+// two users a page, so the members of a session end up on different pages of the picker
+@SpringBootTest(properties = "users.page-size=2")
+@AutoConfigureMockMvc
+@Transactional
+@WithMockUser(username = "admin", roles = {"USER", "ADMIN"})
+class ParticipantPickerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private User trainer;
+
+	private User anna;
+
+	private User bella;
+
+	private User zoe;
+
+	private Long scheduleId;
+
+	@BeforeEach
+	void setUp() {
+		// by username: admin, anna | bella, trainer | zoe
+		trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		anna = persistUser(entityManager, "anna", Set.of(Role.USER));
+		bella = persistUser(entityManager, "bella", Set.of(Role.USER));
+		zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		scheduleService.scheduleSession(trainer.getUserId(), List.of(anna.getUserId(), zoe.getUserId()), LocalDate.of(2024, 1, 2),
+				LocalTime.of(9, 0), LocalTime.of(10, 0));
+		scheduleId = schedules(entityManager, scheduleService).get(0).getScheduleId();
+	}
+
+	@Test
+	void editFormStartsWithTheCurrentParticipantsPicked() throws Exception {
+		MvcResult result = mockMvc.perform(get("/schedule/edit/" + scheduleId + "/participants"))
+				.andExpect(status().isOk())
+				.andExpect(model().attribute("pickedUserIds", Set.of(anna.getUserId(), zoe.getUserId())))
+				.andExpect(content().string(containsString("<option value=\"" + anna.getUserId() + "\" selected=\"selected\">anna</option>")))
+				.andReturn();
+		// zoe isn't on the first page, she is posted from a checkbox instead
+		assertEquals(List.of("zoe"), pickedElsewhere(result));
+	}
+
+	@Test
+	void pagingKeepsWhatWasPickedAndSavingKeepsEveryone() throws Exception {
+		MvcResult result = mockMvc.perform(post("/schedule/edit/" + scheduleId + "/participants")
+						.with(csrf())
+						.param("after", "anna")
+						.param("userIds", anna.getUserId().toString(), zoe.getUserId().toString()))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/editsessionparticipants"))
+				.andExpect(content().string(containsString(">First users</button>")))
+				.andExpect(content().string(containsString("value=\"trainer\"")))
+				.andReturn();
+		assertEquals(List.of("anna", "zoe"), pickedElsewhere(result));
+		assertEquals(2, scheduleService.findById(scheduleId).getParticipantRoster().size()); // paging saves nothing
+
+		mockMvc.perform(post("/schedule/edit/" + scheduleId + "/participants")
+						.with(csrf())
+						.param("userIds", anna.getUserId().toString(), zoe.getUserId().toString(), bella.getUserId().toString()))
+				.andExpect(redirectedUrl("/schedule/view"));
+		entityManager.clear();
+		assertEquals(List.of("anna", "bella", "zoe"),
+				scheduleService.findById(scheduleId).getParticipantRoster().stream().map(RosterEntry::getUsername).toList());
+	}
+
+	@Test
+	void newSessionFormsKeepWhatWasEnteredWhilePaging() throws Exception {
+		MvcResult result = mockMvc.perform(post("/schedule")
+						.with(csrf())
+						.param("after", "anna")
+						.param("date", "2024-01-03")
+						.param("trainerId", trainer.getUserId().toString())
+						.param("userIds", anna.getUserId().toString())
+						.param("startTime", "")
+						.param("endTime", ""))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/newsession"))
+				.andExpect(content().string(containsString("value=\"2024-01-03\"")))
+				.andReturn();
+		assertEquals(List.of("anna"), pickedElsewhere(result));
+
+		result = mockMvc.perform(post("/schedule/edit/recurring")
+						.with(csrf())
+						.param("after", "")
+						.param("startDate", "2024-01-01")
+						.param("skipDates", "2024-01-08")
+						.param("userIds", zoe.getUserId().toString()))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/newrecurringsession"))
+				.andExpect(content().string(containsString("value=\"2024-01-08\"")))
+				.andReturn();
+		assertEquals(List.of("zoe"), pickedElsewhere(result));
+		assertEquals(1, schedules(entityManager, scheduleService).size());
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<String> pickedElsewhere(MvcResult result) {
+		return ((List<UserSummary>) result.getModelAndView().getModel().get("pickedElsewhere")).stream()
+				.map(UserSummary::getUsername).toList();
+	}
+}
@@ -0,0 +1,198 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.exceptions.ScheduleConflictException;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.ScheduleConflict;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.schedules;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@WithMockUser(username = "admin", roles = {"USER", "ADMIN"})
+class ScheduleConflictTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private User trainer;
+
+	private User zoe;
+
+	private Long booked;
+
+	@BeforeEach
+	void setUp() {
+		trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		scheduleService.scheduleSession(trainer.getUserId(), List.of(zoe.getUserId()), LocalDate.of(2024, 1, 2),
+				LocalTime.of(9, 0), LocalTime.of(10, 0));
+		booked = schedules(entityManager, scheduleService).get(0).getScheduleId();
+	}
+
+	@Test
+	void doubleBookingAnswers409WithTheClashingSessions() throws Exception {
+		mockMvc.perform(post("/schedule")
+						.with(csrf())
+						.accept(MediaType.APPLICATION_JSON)
+						.param("date", "2024-01-02")
+						.param("trainerId", trainer.getUserId().toString())
+						.param("userIds", zoe.getUserId().toString())
+						.param("startTime", "09:30")
+						.param("endTime", "10:30"))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.message").value("Trainer " + trainer.getUserId() + " is already booked"))
+				.andExpect(jsonPath("$.conflicts", hasSize(1)))
+				.andExpect(jsonPath("$.conflicts[0].userId").value(trainer.getUserId()))
+				.andExpect(jsonPath("$.conflicts[0].scheduleId").value(booked))
+				.andExpect(jsonPath("$.conflicts[0].date").value("2024-01-02"))
+				.andExpect(jsonPath("$.conflicts[0].startTime").value("09:00:00"))
+				.andExpect(jsonPath("$.conflicts[0].endTime").value("10:00:00"));
+	}
+
+	@Test
+	void formGetsTheClashesBackInsteadOfA409() throws Exception {
+		mockMvc.perform(post("/schedule")
+						.with(csrf())
+						.accept(MediaType.TEXT_HTML)
+						.param("date", "2024-01-02")
+						.param("trainerId", trainer.getUserId().toString())
+						.param("userIds", zoe.getUserId().toString())
+						.param("startTime", "09:30")
+						.param("endTime", "10:30"))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/newsession"))
+				.andExpect(model().attribute("errorMessage", "Trainer " + trainer.getUserId() + " is already booked"))
+				.andExpect(content().string(containsString("Session " + booked + " on 2024-01-02, 09:00-10:00")))
+				.andExpect(content().string(containsString("value=\"09:30\""))); // what was entered stays
+		assertEquals(1, schedules(entityManager, scheduleService).size());
+	}
+
+	@Test
+	void editFormsGetTheClashesBackInsteadOfA409() throws Exception {
+		User other = persistUser(entityManager, "other", Set.of(Role.USER, Role.TRAINER));
+		scheduleService.scheduleSession(other.getUserId(), List.of(), LocalDate.of(2024, 1, 2), LocalTime.of(9, 30), LocalTime.of(10, 30));
+		Long later = schedules(entityManager, scheduleService).get(1).getScheduleId();
+
+		mockMvc.perform(post("/schedule/edit/" + later + "/trainer")
+						.with(csrf())
+						.accept(MediaType.TEXT_HTML)
+						.param("trainerId", trainer.getUserId().toString()))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/editsessiontrainer"))
+				.andExpect(model().attribute("conflicts", hasSize(1)));
+		mockMvc.perform(post("/schedule/edit/" + later + "/participants")
+						.with(csrf())
+						.accept(MediaType.TEXT_HTML)
+						.param("userIds", zoe.getUserId().toString()))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/editsessionparticipants"))
+				.andExpect(content().string(containsString("Session " + booked + " on 2024-01-02, 09:00-10:00")));
+		scheduleService.scheduleSession(trainer.getUserId(), List.of(), LocalDate.of(2024, 1, 2), LocalTime.of(11, 0), LocalTime.of(12, 0));
+		mockMvc.perform(post("/schedule/edit/" + booked + "/time")
+						.with(csrf())
+						.accept(MediaType.TEXT_HTML)
+						.param("startTime", "10:30")
+						.param("endTime", "11:30"))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/editsessiontimes"))
+				.andExpect(model().attribute("conflicts", hasSize(1)));
+	}
+
+	@Test
+	void staleEditFormsAskForAReloadInsteadOfA409() throws Exception {
+		String stale = String.valueOf(scheduleService.findById(booked).getVersion() - 1);
+		String message = "Session " + booked + " was changed by someone else, reload it and try again";
+
+		mockMvc.perform(post("/schedule/edit/" + booked + "/time")
+						.with(csrf())
+						.accept(MediaType.TEXT_HTML)
+						.param("version", stale)
+						.param("startTime", "11:00")
+						.param("endTime", "12:00"))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/editsessiontimes"))
+				.andExpect(content().string(containsString(message)));
+		mockMvc.perform(post("/schedule/edit/" + booked + "/trainer")
+						.with(csrf())
+						.accept(MediaType.TEXT_HTML)
+						.param("version", stale)
+						.param("trainerId", trainer.getUserId().toString()))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/editsessiontrainer"))
+				.andExpect(model().attribute("errorMessage", message));
+		mockMvc.perform(post("/schedule/edit/" + booked + "/participants")
+						.with(csrf())
+						.accept(MediaType.TEXT_HTML)
+						.param("version", stale)
+						.param("userIds", trainer.getUserId().toString()))
+				.andExpect(status().isOk())
+				.andExpect(view().name("schedule/editsessionparticipants"))
+				.andExpect(model().attribute("errorMessage", message))
+				.andExpect(model().attribute("pickedUserIds", Set.of(zoe.getUserId()))) // the participants as they are now
+				.andExpect(model().attribute("version", scheduleService.findById(booked).getVersion()));
+
+		mockMvc.perform(post("/schedule/edit/" + booked + "/trainer")
+						.with(csrf())
+						.accept(MediaType.APPLICATION_JSON)
+						.param("version", stale)
+						.param("trainerId", trainer.getUserId().toString()))
+				.andExpect(status().isConflict())
+				.andExpect(content().string(message));
+	}
+
+	@Test
+	void trainersAndMembersClashWhicheverRoleTheyHaveInTheOtherSession() {
+		User coach = persistUser(entityManager, "coach", Set.of(Role.USER, Role.TRAINER));
+		LocalDate date = LocalDate.of(2024, 1, 2);
+
+		// the trainer of the booked session is proposed as a member
+		ScheduleConflictException trainerAsMember = assertThrows(ScheduleConflictException.class, () ->
+				scheduleService.scheduleSession(coach.getUserId(), List.of(trainer.getUserId()), date, LocalTime.of(9, 30), LocalTime.of(10, 30)));
+		assertEquals(List.of(new ScheduleConflict(trainer.getUserId(), booked, date, LocalTime.of(9, 0), LocalTime.of(10, 0))),
+				trainerAsMember.getConflicts());
+
+		// a member of the booked session is proposed as the trainer
+		scheduleService.updateSchedule(booked, null, null, null, null, List.of(zoe.getUserId(), coach.getUserId()));
+		ScheduleConflictException memberAsTrainer = assertThrows(ScheduleConflictException.class, () ->
+				scheduleService.scheduleSession(coach.getUserId(), List.of(), date, LocalTime.of(9, 30), LocalTime.of(10, 30)));
+		assertEquals(List.of(new ScheduleConflict(coach.getUserId(), booked, date, LocalTime.of(9, 0), LocalTime.of(10, 0))),
+				memberAsTrainer.getConflicts());
+		assertEquals(1, schedules(entityManager, scheduleService).size());
+	}
+}
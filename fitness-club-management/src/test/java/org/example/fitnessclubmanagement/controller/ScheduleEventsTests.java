@@ -0,0 +1,229 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.service.ScheduleEventBroadcaster;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.example.fitnessclubmanagement.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// not @Transactional, events are only sent once a change commits, and every committed session is deleted again
+@SpringBootTest(properties = "schedule.events.send-timeout=PT0.5S")
+@AutoConfigureMockMvc
+class ScheduleEventsTests {
+
+	private static final LocalDate DATE = LocalDate.of(2031, 3, 4);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ScheduleEventBroadcaster broadcaster;
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void committedChangesReachTheSubscribersOfTheirWeekAndTrainer() throws Exception {
+		User admin = userService.getUserByUsername("admin");
+		MockHttpServletResponse week = subscribe("/schedule/events?from=2031-03-03&to=2031-03-09");
+		MockHttpServletResponse trainer = subscribe("/schedule/events?trainerId=" + admin.getUserId());
+		MockHttpServletResponse otherWeek = subscribe("/schedule/events?from=2031-03-10&to=2031-03-16");
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+		transaction.executeWithoutResult(status -> {
+			scheduleService.scheduleSession(admin.getUserId(), List.of(), DATE, LocalTime.of(9, 0), LocalTime.of(10, 0));
+			status.setRollbackOnly(); // never committed, never sent
+		});
+		transaction.executeWithoutResult(status ->
+				scheduleService.scheduleSession(admin.getUserId(), List.of(), DATE, LocalTime.of(11, 0), LocalTime.of(12, 0)));
+		Long scheduleId = scheduleService.getSchedulesForUser(admin, DATE, DATE, null, 10).getSchedules().get(0).getScheduleId();
+		transaction.executeWithoutResult(status -> scheduleService.deleteSchedule(scheduleId));
+
+		for (MockHttpServletResponse response : List.of(week, trainer)) {
+			String events = awaitEvent(response, "event:DELETED");
+			assertEquals(1, events.split("event:CREATED", -1).length - 1, events);
+			assertTrue(events.contains("\"scheduleId\":" + scheduleId + ",\"date\":\"2031-03-04\""), events);
+		}
+		assertFalse(otherWeek.getContentAsString().contains("event:"));
+	}
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void clientThatStopsReadingIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+		User admin = userService.getUserByUsername("admin");
+		AtomicBoolean stalled = new AtomicBoolean();
+		CountDownLatch release = new CountDownLatch(1);
+		// every write to this client blocks once it is stalled, like a socket nobody reads from
+		Filter stallingClient = (request, response, chain) -> chain.doFilter(request,
+				new StallingResponse((HttpServletResponse) response, stalled, release));
+		MockMvc stallingMockMvc = MockMvcBuilders.webAppContextSetup(context)
+				.addFilters(stallingClient)
+				.apply(springSecurity())
+				.build();
+		MockHttpServletResponse stuck = stallingMockMvc.perform(get("/schedule/events?from=2031-03-03&to=2031-03-09"))
+				.andExpect(request().asyncStarted())
+				.andReturn().getResponse();
+		MockHttpServletResponse week = subscribe("/schedule/events?from=2031-03-03&to=2031-03-09");
+		int subscribers = broadcaster.getSubscriberCount();
+		stalled.set(true);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		try {
+			transaction.executeWithoutResult(status ->
+					scheduleService.scheduleSession(admin.getUserId(), List.of(), DATE, LocalTime.of(13, 0), LocalTime.of(14, 0)));
+			Long scheduleId = scheduleService.getSchedulesForUser(admin, DATE, DATE, null, 10).getSchedules().get(0).getScheduleId();
+			transaction.executeWithoutResult(status -> scheduleService.deleteSchedule(scheduleId));
+
+			awaitEvent(week, "event:DELETED");
+			long deadline = System.currentTimeMillis() + 5000;
+			while (broadcaster.getSubscriberCount() != subscribers - 1) {
+				assertTrue(System.currentTimeMillis() < deadline, "The stalled client is still subscribed");
+				Thread.sleep(10);
+			}
+			assertFalse(stuck.getContentAsString().contains("event:"));
+		} finally {
+			release.countDown();
+		}
+	}
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void subscriptionNeedsARangeOrATrainer() throws Exception {
+		mockMvc.perform(get("/schedule/events")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/schedule/events?from=2031-03-03")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void streamThatTimesOutEndsCleanly() throws Exception {
+		MvcResult subscription = mockMvc.perform(get("/schedule/events?from=2031-03-03&to=2031-03-09"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		MockAsyncContext asyncContext = (MockAsyncContext) subscription.getRequest().getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(null);
+		}
+		mockMvc.perform(asyncDispatch(subscription)).andExpect(status().isOk()); // not the 503 of a timed out request
+	}
+
+	private MockHttpServletResponse subscribe(String url) throws Exception {
+		return mockMvc.perform(get(url))
+				.andExpect(request().asyncStarted())
+				.andReturn().getResponse();
+	}
+
+	/**
+	 * Waits for an event, they are sent on the broadcaster's own thread after the commit.
+	 *
+	 * @param response the response of a subscription
+	 * @param event the event line to wait for
+	 * @return everything sent on the subscription so far
+	 */
+	private String awaitEvent(MockHttpServletResponse response, String event) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!response.getContentAsString().contains(event)) {
+			assertTrue(System.currentTimeMillis() < deadline, "No " + event + " in " + response.getContentAsString());
+			Thread.sleep(10);
+		}
+		return response.getContentAsString();
+	}
+
+	/**
+	 * A response whose writes block while it is stalled, until they are released or the writing thread is interrupted.
+	 */
+	private static class StallingResponse extends HttpServletResponseWrapper {
+
+		private final AtomicBoolean stalled;
+
+		private final CountDownLatch release;
+
+		StallingResponse(HttpServletResponse response, AtomicBoolean stalled, CountDownLatch release) {
+			super(response);
+			this.stalled = stalled;
+			this.release = release;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			ServletOutputStream out = super.getOutputStream();
+			return new ServletOutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					stall();
+					out.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					stall();
+					out.write(b, off, len);
+				}
+
+				@Override
+				public boolean isReady() {
+					return out.isReady();
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+					out.setWriteListener(writeListener);
+				}
+			};
+		}
+
+		private void stall() throws IOException {
+			if (!stalled.get()) {
+				return;
+			}
+			try {
+				release.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Write interrupted");
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package org.example.fitnessclubmanagement.controller;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.CacheStats;
+import org.example.fitnessclubmanagement.service.ScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.schedules;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ScheduleRowCacheTests {
+
+	private static final String WEEK = "/schedule/view?from=2024-01-01&to=2024-01-07";
+
+	private static final RequestPostProcessor ADMIN = user("admin").roles("ADMIN", "USER");
+
+	private static final RequestPostProcessor ZOE = user("zoe").roles("USER");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private ScheduleRowCache scheduleRowCache;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@BeforeEach
+	void setUp() {
+		User trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		User zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		for (int day = 1; day <= 3; day++) {
+			scheduleService.scheduleSession(trainer.getUserId(), List.of(zoe.getUserId()), LocalDate.of(2024, 1, day),
+					LocalTime.of(9, 0), LocalTime.of(10, 0));
+		}
+	}
+
+	@Test
+	void onlyChangedRowsAreRenderedAgain() throws Exception {
+		CacheStats before = scheduleRowCache.getStats();
+		String page = fetch(ADMIN);
+		assertEquals(3, page.split("formaction=\"/schedule/delete/", -1).length - 1);
+		assertEquals(3, scheduleRowCache.getStats().getMisses() - before.getMisses());
+
+		fetch(ADMIN);
+		assertEquals(3, scheduleRowCache.getStats().getHits() - before.getHits());
+		assertEquals(3, scheduleRowCache.getStats().getMisses() - before.getMisses());
+
+		Schedule first = schedules(entityManager, scheduleService).get(0);
+		scheduleService.updateSchedule(first.getScheduleId(), first.getVersion(), LocalTime.of(7, 0), LocalTime.of(8, 0), null, null);
+		assertTrue(fetch(ADMIN).contains("07:00"));
+		assertEquals(5, scheduleRowCache.getStats().getHits() - before.getHits());
+		assertEquals(4, scheduleRowCache.getStats().getMisses() - before.getMisses());
+	}
+
+	@Test
+	void membersGetTheirOwnRendering() throws Exception {
+		fetch(ADMIN);
+		CacheStats before = scheduleRowCache.getStats();
+
+		String page = fetch(ZOE);
+		assertFalse(page.contains("Edit Times"));
+		assertFalse(page.contains("deleteSession"));
+		assertEquals(3, scheduleRowCache.getStats().getMisses() - before.getMisses());
+		assertEquals(0, scheduleRowCache.getStats().getHits() - before.getHits());
+		// the admin's page has one more CSRF token, in its delete form, the cached rows have none
+		assertEquals(csrfTokens(page) + 1, csrfTokens(fetch(ADMIN)));
+	}
+
+	private String fetch(RequestPostProcessor viewer) throws Exception {
+		return mockMvc.perform(get(WEEK).with(viewer))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+	}
+
+	private int csrfTokens(String page) {
+		return page.split("name=\"_csrf\"", -1).length - 1;
+	}
+}
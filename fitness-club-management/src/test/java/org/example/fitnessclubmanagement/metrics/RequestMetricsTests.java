@@ -0,0 +1,53 @@
+package org.example.fitnessclubmanagement.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class RequestMetricsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void prometheusExportsRouteSqlCountsAndPoolMetrics() throws Exception {
+		mockMvc.perform(get("/schedule/view")).andExpect(status().isOk());
+
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "admin123")))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("http_server_requests_sql_statements_count{method=\"GET\",uri=\"/schedule/view\"")))
+				.andExpect(content().string(containsString("hikaricp_connections_acquire_seconds")))
+				.andExpect(content().string(containsString("hibernate_statements_total")))
+				.andExpect(content().string(containsString("auth_cache_requests_total")));
+	}
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"ADMIN", "USER"})
+	void jdbcTemplateStatementsAreCountedToo() throws Exception {
+		mockMvc.perform(get("/admin/attendance/stats/verify")).andExpect(status().isOk());
+
+		// the raw attendance and the stats, both read through JdbcTemplate
+		mockMvc.perform(get("/actuator/prometheus").with(httpBasic("admin", "admin123")))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("http_server_requests_sql_statements_max{method=\"GET\",uri=\"/admin/attendance/stats/verify\"} 2.0")));
+	}
+
+	@Test
+	void actuatorRejectsAnonymousUsers() throws Exception {
+		mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+	}
+}
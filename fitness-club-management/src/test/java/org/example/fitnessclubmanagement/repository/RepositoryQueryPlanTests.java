@@ -0,0 +1,259 @@
+package org.example.fitnessclubmanagement.repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.security.LoginSession;
+import org.example.fitnessclubmanagement.security.LoginSessionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistSchedule;
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every repository query against the migrated schema and checks its EXPLAIN plan,
+ * so a query that stops using its index fails here instead of getting slow in production.
+ */
+@SpringBootTest
+@Transactional
+class RepositoryQueryPlanTests {
+
+	private static final LocalDate DATE = LocalDate.of(2024, 1, 1);
+
+	private static final LocalTime TIME = LocalTime.of(9, 0);
+
+	private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+	@Autowired
+	private ScheduleRepository scheduleRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private AttendanceStatRepository attendanceStatRepository;
+
+	@Autowired
+	private LoginSessionStore loginSessionStore;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User user;
+
+	private Long scheduleId;
+
+	@BeforeEach
+	void setUp() {
+		user = persistUser(entityManager, "member", Set.of(Role.USER));
+		scheduleId = persistSchedule(entityManager, user, DATE, Set.of(), Set.of()).getScheduleId();
+		entityManager.flush();
+	}
+
+	@Test
+	void scheduleQueriesUseIndexes() {
+		List<Long> ids = List.of(user.getUserId());
+		assertIndexed("findByParticipantsContaining", () -> scheduleRepository.findByParticipantsContaining(user));
+		assertIndexed("findByTrainerId", () -> scheduleRepository.findByTrainerId(1L));
+		assertIndexed("findPageAfter", () -> scheduleRepository.findPageAfter(DATE, TIME, 0L, DATE.plusDays(6), Limit.of(50)));
+		assertIndexed("findParticipantPageAfter", () -> scheduleRepository.findParticipantPageAfter(1L, DATE, TIME, 0L, DATE.plusDays(6), Limit.of(50)));
+		assertIndexed("findTrainerPageAfter", () -> scheduleRepository.findTrainerPageAfter(1L, DATE, TIME, 0L, DATE.plusDays(6), Limit.of(50)));
+		assertIndexed("removeParticipantsNotIn", () -> scheduleRepository.removeParticipantsNotIn(scheduleId, ids));
+		assertIndexed("removeParticipants", () -> scheduleRepository.removeParticipants(scheduleId, ids));
+		assertIndexed("removeAllParticipants", () -> scheduleRepository.removeAllParticipants(scheduleId));
+		assertIndexed("addParticipants", () -> scheduleRepository.addParticipants(scheduleId, ids));
+		assertIndexed("findParticipantIds", () -> scheduleRepository.findParticipantIds(scheduleId));
+		assertIndexed("findAbsentIds", () -> scheduleRepository.findAbsentIds(scheduleId));
+		assertIndexed("addAbsentUsers", () -> scheduleRepository.addAbsentUsers(scheduleId, ids));
+		assertIndexed("removeAbsentUsers", () -> scheduleRepository.removeAbsentUsers(scheduleId, ids));
+		assertIndexed("findTrainerConflicts", () -> scheduleRepository.findTrainerConflicts(ids, List.of(DATE), TIME, TIME.plusHours(1), null));
+		assertIndexed("findParticipantConflicts", () -> scheduleRepository.findParticipantConflicts(ids, List.of(DATE), TIME, TIME.plusHours(1), 1L));
+		assertIndexed("findWindowFingerprint", () -> scheduleRepository.findWindowFingerprint(DATE, TIME, 0L, DATE.plusDays(6)));
+		assertIndexed("findViewerWindowFingerprint", () -> scheduleRepository.findViewerWindowFingerprint(1L, DATE, TIME, 0L, DATE.plusDays(6)));
+		assertIndexed("updateTimes", () -> scheduleRepository.updateTimes(scheduleId, 0L, TIME, TIME.plusHours(1)));
+		assertIndexed("updateTrainer", () -> scheduleRepository.updateTrainer(scheduleId, 0L, 1L));
+		assertIndexed("updateVersion", () -> scheduleRepository.updateVersion(scheduleId, 0L));
+		assertIndexed("lockRow", () -> scheduleRepository.lockRow(scheduleId));
+		assertIndexed("markAttendanceTaken", () -> scheduleRepository.markAttendanceTaken(scheduleId));
+		assertIndexed("touchAttendance", () -> scheduleRepository.touchAttendance(scheduleId));
+		assertIndexed("touchSchedulesTrainedBy", () -> scheduleRepository.touchSchedulesTrainedBy(1L));
+		assertIndexed("touchSchedulesAttendedBy", () -> scheduleRepository.touchSchedulesAttendedBy(1L));
+	}
+
+	@Test
+	void userQueriesUseIndexes() {
+		List<Long> ids = List.of(1L, 2L, 3L);
+		assertIndexed("existsByUsernameOrEmail", () -> userRepository.existsByUsernameOrEmail("member", "member@example.com"));
+		assertIndexed("existsByUsername", () -> userRepository.existsByUsername("member"));
+		assertIndexed("existsByEmail", () -> userRepository.existsByEmail("member@example.com"));
+		assertIndexed("findExistingIds", () -> userRepository.findExistingIds(ids));
+		assertIndexed("findExistingUsernames", () -> userRepository.findExistingUsernames(List.of("member", "other")));
+		assertIndexed("findExistingEmails", () -> userRepository.findExistingEmails(List.of("member@example.com")));
+		assertIndexed("findByUsername", () -> userRepository.findByUsername("member"));
+		assertIndexed("findByRolesContaining", () -> userRepository.findByRolesContaining(Role.ADMIN));
+		assertIndexed("findSummariesByUsernameAfter", () -> userRepository.findSummariesByUsernameAfter("", Limit.of(100)));
+		assertIndexed("findSummariesByEmailAfter", () -> userRepository.findSummariesByEmailAfter("", Limit.of(100)));
+		assertIndexed("findSummariesByIds", () -> userRepository.findSummariesByIds(ids));
+		assertIndexed("findSummariesByIdAfter", () -> userRepository.findSummariesByIdAfter(0L, Limit.of(100)));
+		assertIndexed("findUserByRoleOrderedByUsername", () -> userRepository.findUserByRoleOrderedByUsername(Role.TRAINER));
+		assertIndexed("findParticipantRosterByScheduleIds", () -> userRepository.findParticipantRosterByScheduleIds(ids));
+		assertIndexed("findAbsentRosterByScheduleIds", () -> userRepository.findAbsentRosterByScheduleIds(ids));
+		assertIndexed("findTrainerRosterByScheduleIds", () -> userRepository.findTrainerRosterByScheduleIds(ids));
+	}
+
+	@Test
+	void attendanceStatQueriesUseIndexes() {
+		assertIndexed("findSummaries", () -> attendanceStatRepository.findSummaries(DATE, DATE.plusWeeks(4), Limit.of(500)));
+		assertIndexed("findSlotSummaries", () -> attendanceStatRepository.findSlotSummaries(DATE, DATE.plusWeeks(4), Limit.of(500)));
+	}
+
+	@Test
+	void jdbcStatementsUseIndexes() {
+		Schedule schedule = entityManager.find(Schedule.class, scheduleId);
+		List<Long> ids = List.of(user.getUserId());
+		scheduleRepository.addParticipants(scheduleId, ids);
+		assertIndexed("streamAttendance", () -> scheduleRepository.streamAttendance(DATE, DATE.plusDays(6), null, row -> { }));
+		assertIndexed("streamAttendance by trainer", () -> scheduleRepository.streamAttendance(DATE, DATE.plusDays(6), 1L, row -> { }));
+		assertIndexed("applySession", () -> attendanceStatRepository.applySession(schedule, 1));
+		assertIndexed("applyAttendanceChanges", () -> attendanceStatRepository.applyAttendanceChanges(schedule, ids, List.of()));
+		assertIndexed("verify", () -> attendanceStatRepository.verify());
+		assertIndexed("rebuild", () -> attendanceStatRepository.rebuild());
+		List<Long> inserted = new ArrayList<>();
+		assertIndexed("insertAllInBatch schedules", () -> inserted.addAll(scheduleRepository.insertAllInBatch(List.of(new Schedule(1L, DATE, TIME, TIME.plusHours(1))))));
+		assertIndexed("insertParticipantsInBatch", () -> scheduleRepository.insertParticipantsInBatch(inserted, ids));
+		assertIndexed("insertAllInBatch users", () -> userRepository.insertAllInBatch(List.of(new User("other", "other@example.com", "password", new HashSet<>(Set.of(Role.USER))))));
+		long expiresAt = Instant.now().plusSeconds(60).toEpochMilli();
+		assertIndexed("save login", () -> loginSessionStore.save("session", new LoginSession("member", 1, expiresAt)));
+		assertIndexed("find login", () -> loginSessionStore.find("session"));
+		assertIndexed("extend login", () -> loginSessionStore.extend("session", expiresAt));
+		assertIndexed("delete login", () -> loginSessionStore.delete("session"));
+		assertIndexed("deleteExpired logins", () -> loginSessionStore.deleteExpired(expiresAt));
+	}
+
+	/**
+	 * Runs a repository call and fails if any statement it sent scans a whole table.
+	 *
+	 * @param query the name of the query, for the failure message
+	 * @param call the repository call
+	 */
+	private void assertIndexed(String query, Runnable call) {
+		STATEMENTS.clear();
+		call.run();
+		List<String> statements = new ArrayList<>(STATEMENTS);
+		assertFalse(statements.isEmpty(), query + " sent no SQL");
+		for (String sql : statements) {
+			String plan = explain(sql);
+			assertFalse(plan.contains(".tableScan"), query + " scans a whole table:\n" + plan);
+		}
+	}
+
+	private String explain(String sql) {
+		// H2 plans statements with unbound parameters, so the SQL is explained exactly as it was sent
+		return jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql), (ResultSet resultSet) -> {
+			StringBuilder plan = new StringBuilder();
+			while (resultSet.next()) {
+				plan.append(resultSet.getString(1)).append('\n');
+			}
+			return plan.toString();
+		});
+	}
+
+	/**
+	 * Records every statement sent through the DataSource, so the JdbcTemplate SQL is checked as well as Hibernate's.
+	 */
+	@TestConfiguration
+	static class RecordingConfig {
+
+		@Bean
+		static BeanPostProcessor recordingDataSource() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource dataSource ? new RecordingDataSource(dataSource) : bean;
+				}
+			};
+		}
+	}
+
+	private static class RecordingDataSource extends DelegatingDataSource {
+
+		RecordingDataSource(DataSource target) {
+			super(target);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return recording(super.getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return recording(super.getConnection(username, password));
+		}
+
+		private Connection recording(Connection connection) {
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+				if (method.getName().startsWith("prepare")) {
+					record((String) args[0]);
+				}
+				Object result = invoke(connection, method, args);
+				return result instanceof Statement statement && method.getName().equals("createStatement") ? recording(statement) : result;
+			});
+		}
+
+		private Statement recording(Statement statement) {
+			return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+				if ((method.getName().startsWith("execute") || method.getName().equals("addBatch")) && args != null && args[0] instanceof String sql) {
+					record(sql);
+				}
+				return invoke(statement, method, args);
+			});
+		}
+
+		private static void record(String sql) {
+			if (!sql.startsWith("EXPLAIN ")) { // the plans this test asks for
+				STATEMENTS.add(sql);
+			}
+		}
+
+		private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.example.fitnessclubmanagement.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.fitnessclubmanagement.exceptions.HashingCapacityExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTests {
+
+	@Test
+	void rejectsWhenExecutorAndQueueAreFull() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(started, release), 1, 1, 5000, 3, registry);
+
+		try {
+			CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+			waitForQueue(encoder, registry);
+
+			HashingCapacityExceededException e = assertThrows(HashingCapacityExceededException.class, () -> encoder.encode("third"));
+			assertEquals(3, e.getRetryAfterSeconds());
+			assertEquals(1.0, registry.get("auth.hashing.rejected").counter().count());
+
+			release.countDown();
+			assertEquals("hash:first", running.get(5, TimeUnit.SECONDS));
+			assertEquals("hash:second", queued.get(5, TimeUnit.SECONDS));
+			assertEquals(2, registry.get("auth.hashing.time").timer().count());
+		} finally {
+			release.countDown();
+			encoder.destroy();
+		}
+	}
+
+	@Test
+	void givesUpWhenHashTakesTooLong() {
+		CountDownLatch release = new CountDownLatch(1);
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(new CountDownLatch(1), release), 1, 1, 50, 1, new SimpleMeterRegistry());
+		try {
+			assertThrows(HashingCapacityExceededException.class, () -> encoder.matches("password", "hash:password"));
+		} finally {
+			release.countDown();
+			encoder.destroy();
+		}
+	}
+
+	@Test
+	void encodeAllKeepsOrderWithoutOverflowingQueue() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		// far more passwords than threads plus queue, submitting them all at once would be rejected
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new SlowEncoder(), 2, 1, 5000, 1, registry);
+		try {
+			List<String> passwords = IntStream.range(0, 20).mapToObj(i -> "password" + i).toList();
+
+			assertEquals(passwords.stream().map(password -> "hash:" + password).toList(), encoder.encodeAll(passwords));
+			assertEquals(0.0, registry.get("auth.hashing.rejected").counter().count());
+			assertEquals(20, registry.get("auth.hashing.time").timer().count());
+		} finally {
+			encoder.destroy();
+		}
+	}
+
+	private void waitForQueue(BoundedPasswordEncoder encoder, SimpleMeterRegistry registry) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (registry.get("auth.hashing.queue.size").gauge().value() < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Encoder that takes a moment per hash.
+	 */
+	private static class SlowEncoder implements PasswordEncoder {
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "hash:" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	}
+
+	/**
+	 * Encoder that blocks until released, so the executor can be filled up on purpose.
+	 */
+	private record BlockingEncoder(CountDownLatch started, CountDownLatch release) implements PasswordEncoder {
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return "hash:" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package org.example.fitnessclubmanagement.security;
+
+import org.example.fitnessclubmanagement.ResponsiveUserRegistrationApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A browser for instances of the app started on a real Tomcat, for what MockMvc doesn't run, such as error
+ * dispatches and cookies going from one node to another. Keeps cookies and doesn't follow redirects.
+ */
+class Browser {
+
+	private static final Pattern CSRF_FIELD = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+	private final HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+
+	private final Map<String, String> cookies = new ConcurrentHashMap<>();
+
+	/**
+	 * Starts an instance of the app on a random port.
+	 *
+	 * @param database the name of its in-memory H2 database, instances given the same name share it
+	 * @param properties more properties, e.g. "auth.session.cache-ttl=PT0S"
+	 * @return the running instance
+	 */
+	static ConfigurableApplicationContext startNode(String database, String... properties) {
+		List<String> args = new ArrayList<>(List.of("--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+		Stream.of(properties).map(property -> "--" + property).forEach(args::add);
+		// arguments rather than default properties, which application.properties would override
+		return new SpringApplicationBuilder(ResponsiveUserRegistrationApplication.class).run(args.toArray(String[]::new));
+	}
+
+	/**
+	 * Gets a page.
+	 *
+	 * @param node the instance to ask
+	 * @param path the path, e.g. "/users"
+	 * @param headers more headers, as name and value pairs
+	 * @return the response
+	 */
+	HttpResponse<String> get(ConfigurableApplicationContext node, String path, String... headers) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder().uri(uri(node, path)).header("Accept", "text/html").GET();
+		if (headers.length > 0) {
+			request.headers(headers);
+		}
+		return send(request);
+	}
+
+	HttpResponse<String> post(ConfigurableApplicationContext node, String path, String form) throws Exception {
+		return postAsync(node, path, form).get();
+	}
+
+	/**
+	 * Posts a form without waiting for the answer, the cookies it sets are collected once it arrives.
+	 *
+	 * @param node the instance to post to
+	 * @param path the path, e.g. "/login"
+	 * @param form the URL encoded form
+	 * @return the response, once it arrives
+	 */
+	CompletableFuture<HttpResponse<String>> postAsync(ConfigurableApplicationContext node, String path, String form) {
+		return sendAsync(HttpRequest.newBuilder().uri(uri(node, path))
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form)));
+	}
+
+	/**
+	 * Builds the login form of a user, with the CSRF token of the node's login page.
+	 *
+	 * @param node the instance to log in to
+	 * @param username the username
+	 * @param password the password
+	 * @return the URL encoded form
+	 */
+	String loginForm(ConfigurableApplicationContext node, String username, String password) throws Exception {
+		return "username=" + encode(username) + "&password=" + encode(password)
+				+ "&_csrf=" + encode(csrfField(get(node, "/login").body()));
+	}
+
+	String csrfField(String page) {
+		Matcher matcher = CSRF_FIELD.matcher(page);
+		assertTrue(matcher.find(), page);
+		return matcher.group(1);
+	}
+
+	String cookie(String name) {
+		return cookies.get(name);
+	}
+
+	void setCookie(String name, String value) {
+		cookies.put(name, value);
+	}
+
+	static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private URI uri(ConfigurableApplicationContext node, String path) {
+		return URI.create("http://localhost:" + ((ServletWebServerApplicationContext) node).getWebServer().getPort() + path);
+	}
+
+	private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+		return sendAsync(request).get();
+	}
+
+	/**
+	 * Sends a request with the cookies collected so far, and collects the ones it sets.
+	 *
+	 * @param request the request
+	 * @return the response, once it arrives
+	 */
+	private CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest.Builder request) {
+		if (!cookies.isEmpty()) {
+			StringBuilder header = new StringBuilder();
+			cookies.forEach((name, value) -> header.append(header.isEmpty() ? "" : "; ").append(name).append('=').append(value));
+			request.header("Cookie", header.toString());
+		}
+		return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+			for (String setCookie : response.headers().allValues("Set-Cookie")) {
+				String pair = setCookie.split(";", 2)[0];
+				String name = pair.substring(0, pair.indexOf('='));
+				String value = pair.substring(pair.indexOf('=') + 1);
+				if (value.isEmpty() || setCookie.contains("Max-Age=0")) {
+					cookies.remove(name);
+				} else {
+					cookies.put(name, value);
+				}
+			}
+			return response;
+		});
+	}
+}
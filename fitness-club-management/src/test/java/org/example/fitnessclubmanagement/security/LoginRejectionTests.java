@@ -0,0 +1,79 @@
+package org.example.fitnessclubmanagement.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// on a real Tomcat, since MockMvc never runs the error dispatch a refused login used to go through
+class LoginRejectionTests {
+
+	private static ConfigurableApplicationContext node;
+
+	private final Browser browser = new Browser();
+
+	@BeforeAll
+	static void startNode() {
+		// a single hashing thread and one queued hash, so a handful of simultaneous logins fills the executor
+		node = Browser.startNode("login_rejections", "auth.hashing.threads=1", "auth.hashing.queue-capacity=1");
+	}
+
+	@AfterAll
+	static void stopNode() {
+		node.close();
+	}
+
+	@Test
+	void fullHashingExecutorAnswers503WithRetryAfter() throws Exception {
+		String form = browser.loginForm(node, "nobody", "guess");
+		List<CompletableFuture<HttpResponse<String>>> attempts = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			attempts.add(browser.postAsync(node, "/login", form.replace("nobody", "nobody" + i)));
+		}
+
+		int rejected = 0;
+		for (CompletableFuture<HttpResponse<String>> attempt : attempts) {
+			HttpResponse<String> response = attempt.get();
+			if (response.statusCode() == 503) {
+				rejected++;
+				assertTrue(response.headers().firstValue("Retry-After").isPresent());
+				assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("text/plain"));
+				assertEquals("Too many sign-in requests, please try again shortly", response.body());
+			} else {
+				assertLoginFailed(response);
+			}
+		}
+		assertTrue(rejected > 0, "one thread and one queued hash can't take eight logins at once");
+	}
+
+	@Test
+	void attemptsOverTheUsernameLimitAnswer429WithRetryAfter() throws Exception {
+		for (int i = 0; i < 5; i++) { // auth.throttle.username.capacity
+			assertLoginFailed(browser.post(node, "/login", browser.loginForm(node, "mallory", "guess")));
+		}
+
+		MeterRegistry meterRegistry = node.getBean(MeterRegistry.class);
+		long hashes = meterRegistry.get("auth.hashing.time").timer().count();
+		HttpResponse<String> throttled = browser.post(node, "/login", browser.loginForm(node, "Mallory", "guess"));
+		assertEquals(429, throttled.statusCode());
+		assertTrue(throttled.headers().firstValue("Retry-After").isPresent());
+		assertEquals("Too many login attempts, try again later", throttled.body());
+		assertEquals(hashes, meterRegistry.get("auth.hashing.time").timer().count());
+
+		// the address itself is still under its limit
+		assertLoginFailed(browser.post(node, "/login", browser.loginForm(node, "trudy", "guess")));
+	}
+
+	private void assertLoginFailed(HttpResponse<String> response) {
+		assertEquals(302, response.statusCode());
+		assertTrue(response.headers().firstValue("Location").orElseThrow().endsWith("/login?error=true"));
+	}
+}
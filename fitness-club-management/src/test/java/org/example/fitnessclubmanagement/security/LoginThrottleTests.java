@@ -0,0 +1,84 @@
+package org.example.fitnessclubmanagement.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class LoginThrottleTests {
+
+	private static final String ADDRESS = "203.0.113.7";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void attemptsOverTheUsernameLimitAreRejectedWithoutHashing() throws Exception {
+		for (int i = 0; i < 5; i++) { // auth.throttle.username.capacity
+			attempt("mallory").andExpect(redirectedUrl("/login?error=true"));
+		}
+
+		long hashes = meterRegistry.get("auth.hashing.time").timer().count();
+		attempt("Mallory")
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+		assertEquals(hashes, meterRegistry.get("auth.hashing.time").timer().count());
+
+		attempt("trudy").andExpect(redirectedUrl("/login?error=true")); // the address itself is still under its limit
+	}
+
+	@Test
+	void failedBasicLoginsOnTheActuatorAreThrottledToo() throws Exception {
+		for (int i = 0; i < 10; i++) { // scrapes with the right password don't use up attempts
+			scrape("admin", "admin123").andExpect(status().isOk());
+		}
+		for (int i = 0; i < 5; i++) { // auth.throttle.username.capacity
+			scrape("admin", "guess").andExpect(status().isUnauthorized());
+		}
+
+		long hashes = meterRegistry.get("auth.hashing.time").timer().count();
+		scrape("ADMIN", "guess")
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+		scrape("admin", "admin123").andExpect(status().isTooManyRequests());
+		assertEquals(hashes, meterRegistry.get("auth.hashing.time").timer().count());
+	}
+
+	private ResultActions scrape(String username, String password) throws Exception {
+		return mockMvc.perform(get("/actuator/metrics")
+				.with(httpBasic(username, password))
+				.with(request -> {
+					request.setRemoteAddr("203.0.113.8");
+					return request;
+				}));
+	}
+
+	private ResultActions attempt(String username) throws Exception {
+		return mockMvc.perform(post("/login")
+				.param("username", username)
+				.param("password", "guess")
+				.with(csrf())
+				.with(request -> {
+					request.setRemoteAddr(ADDRESS);
+					return request;
+				}));
+	}
+}
@@ -0,0 +1,77 @@
+package org.example.fitnessclubmanagement.security;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// two instances of the app in one JVM on one H2 database, like two nodes behind a load balancer without sticky sessions
+class SharedLoginSessionTests {
+
+	private static ConfigurableApplicationContext first;
+
+	private static ConfigurableApplicationContext second;
+
+	private final Browser browser = new Browser();
+
+	@BeforeAll
+	static void startNodes() {
+		first = startNode();
+		second = startNode();
+	}
+
+	@AfterAll
+	static void stopNodes() {
+		second.close();
+		first.close();
+	}
+
+	@Test
+	void loginOnOneNodeIsValidOnTheOtherUntilLogout() throws Exception {
+		JdbcTemplate jdbcTemplate = first.getBean(JdbcTemplate.class);
+		int adminLogins = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM login_sessions WHERE username = 'admin'",
+				Integer.class);
+		HttpResponse<String> login = browser.post(first, "/login", browser.loginForm(first, "admin", "admin123"));
+		assertEquals(302, login.statusCode());
+		assertTrue(login.headers().firstValue("Location").orElseThrow().endsWith("/"));
+		String sessionId = browser.cookie(StoredSecurityContextRepository.COOKIE);
+		assertNotNull(sessionId);
+
+		// the store only has a hash of the cookie, next to the username and role mask
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM login_sessions WHERE session_id = ?",
+				Integer.class, sessionId));
+		assertEquals(adminLogins + 1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM login_sessions WHERE username = 'admin'",
+				Integer.class));
+
+		HttpResponse<String> users = browser.get(second, "/users"); // admin only, so the roles came along too
+		assertEquals(200, users.statusCode());
+
+		assertEquals(302, browser.post(second, "/logout", "_csrf=" + Browser.encode(browser.csrfField(users.body()))).statusCode());
+		assertNull(browser.cookie(StoredSecurityContextRepository.COOKIE));
+		browser.setCookie(StoredSecurityContextRepository.COOKIE, sessionId); // a copy of the cookie taken before logout
+		HttpResponse<String> afterLogout = browser.get(first, "/users");
+		assertEquals(302, afterLogout.statusCode());
+		assertTrue(afterLogout.headers().firstValue("Location").orElseThrow().endsWith("/login"));
+	}
+
+	@Test
+	void pageCachedFromOneNodeIsNotModifiedOnTheOther() throws Exception {
+		browser.post(first, "/login", browser.loginForm(first, "admin", "admin123"));
+		browser.get(first, "/"); // logging in dropped the CSRF cookie, this page hands out the one the next pages embed
+		HttpResponse<String> users = browser.get(first, "/users");
+		assertEquals(200, users.statusCode());
+		String etag = users.headers().firstValue("ETag").orElseThrow();
+
+		assertEquals(304, browser.get(second, "/users", "If-None-Match", etag).statusCode());
+	}
+
+	private static ConfigurableApplicationContext startNode() {
+		// no caching, so a logout is seen by the other node straight away
+		return Browser.startNode("shared_logins", "auth.session.cache-ttl=PT0S");
+	}
+}
@@ -0,0 +1,73 @@
+package org.example.fitnessclubmanagement.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTableTests {
+
+	@Test
+	void burstIsAllowedThenOneTokenPerInterval() {
+		TokenBucketTable table = new TokenBucketTable(3, Duration.ofSeconds(1), 64);
+		long start = System.currentTimeMillis();
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, table.tryAcquire("zoe", start));
+		}
+		assertEquals(1000, table.tryAcquire("zoe", start));
+		assertEquals(500, table.tryAcquire("zoe", start + 500));
+		assertEquals(0, table.tryAcquire("mike", start + 500)); // every key has its own bucket
+
+		assertEquals(0, table.tryAcquire("zoe", start + 1000));
+		assertEquals(1000, table.tryAcquire("zoe", start + 1000));
+		// three intervals later the bucket is full again, and no more than that
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, table.tryAcquire("zoe", start + 5000));
+		}
+		assertTrue(table.tryAcquire("zoe", start + 5000) > 0);
+	}
+
+	@Test
+	void madeUpKeysTakeOverIdleBucketsBeforeEmptyOnes() {
+		TokenBucketTable table = new TokenBucketTable(2, Duration.ofSeconds(10), 8); // a single stripe of 8 slots
+		long start = System.currentTimeMillis();
+		assertEquals(0, table.tryAcquire("zoe", start));
+		assertEquals(0, table.tryAcquire("zoe", start));
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0, table.tryAcquire("sprayed" + i, start));
+		}
+		assertTrue(table.getEvictions() > 0);
+		assertTrue(table.tryAcquire("zoe", start) > 0); // the emptiest bucket is the last to go
+
+		// a minute later every bucket has filled up again, so new keys take slots without evicting anything
+		long evictions = table.getEvictions();
+		for (int i = 0; i < 8; i++) {
+			assertEquals(0, table.tryAcquire("later" + i, start + 60_000));
+		}
+		assertEquals(evictions, table.getEvictions());
+		assertEquals(0, table.tryAcquire("zoe", start + 60_000)); // zoe's bucket was taken over and starts full
+	}
+
+	@Test
+	void waitTimeLooksWithoutTakingAToken() {
+		TokenBucketTable table = new TokenBucketTable(1, Duration.ofSeconds(1), 64);
+		long start = System.currentTimeMillis();
+
+		assertEquals(0, table.waitTime("zoe", start)); // no bucket yet
+		assertEquals(0, table.waitTime("zoe", start));
+		assertEquals(0, table.tryAcquire("zoe", start));
+		assertEquals(1000, table.waitTime("zoe", start));
+		assertEquals(250, table.waitTime("zoe", start + 750));
+		assertEquals(0, table.waitTime("zoe", start + 1000));
+	}
+
+	@Test
+	void limitsAreChecked() {
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucketTable(0, Duration.ofSeconds(1), 64));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucketTable(256, Duration.ofSeconds(1), 64));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucketTable(5, Duration.ZERO, 64));
+	}
+}
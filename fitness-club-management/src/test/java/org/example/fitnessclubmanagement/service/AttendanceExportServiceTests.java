@@ -0,0 +1,157 @@
+package org.example.fitnessclubmanagement.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.ExportFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.persistSchedule;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class AttendanceExportServiceTests {
+
+	private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+	@Autowired
+	private AttendanceExportService attendanceExportService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private User trainer;
+
+	private User otherTrainer;
+
+	private User anna;
+
+	private User zoe;
+
+	private final List<Schedule> schedules = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		otherTrainer = persistUser(entityManager, "coach", Set.of(Role.USER, Role.TRAINER));
+		zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		anna = persistUser(entityManager, "anna", Set.of(Role.USER));
+
+		schedules.add(persistSchedule(entityManager, trainer, START, Set.of(zoe, anna), Set.of(zoe)));
+		schedules.add(persistSchedule(entityManager, otherTrainer, START.plusDays(1), Set.of(anna), Set.of()));
+		schedules.add(persistSchedule(entityManager, trainer, START.plusDays(30), Set.of(anna), Set.of())); // outside the range
+		schedules.forEach(schedule -> schedule.setAttendanceMarked(true));
+		schedules.add(persistSchedule(entityManager, trainer, START.plusDays(2), Set.of(zoe), Set.of())); // not taken yet
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void exportsCsvForDateRangeInOrder() throws Exception {
+		String csv = export(START, START.plusDays(7), null, ExportFormat.CSV);
+
+		Long first = schedules.get(0).getScheduleId();
+		Long second = schedules.get(1).getScheduleId();
+		Long notTaken = schedules.get(3).getScheduleId();
+		assertEquals(String.join("\n",
+				"schedule_id,date,start_time,end_time,trainer_id,trainer,user_id,username,present",
+				first + ",2024-01-01,09:00,10:00," + trainer.getUserId() + ",trainer," + anna.getUserId() + ",anna,true",
+				first + ",2024-01-01,09:00,10:00," + trainer.getUserId() + ",trainer," + zoe.getUserId() + ",zoe,false",
+				second + ",2024-01-02,09:00,10:00," + otherTrainer.getUserId() + ",coach," + anna.getUserId() + ",anna,true",
+				notTaken + ",2024-01-03,09:00,10:00," + trainer.getUserId() + ",trainer," + zoe.getUserId() + ",zoe,",
+				""), csv);
+	}
+
+	@Test
+	void exportsNdjsonForOneTrainer() throws Exception {
+		String ndjson = export(START, START.plusDays(60), trainer.getUserId(), ExportFormat.NDJSON);
+
+		List<String> lines = ndjson.lines().toList();
+		assertEquals(4, lines.size());
+		for (String line : lines) {
+			JsonNode row = objectMapper.readTree(line);
+			assertEquals("trainer", row.get("trainer").asText());
+		}
+		JsonNode zoeRow = objectMapper.readTree(lines.get(1));
+		assertEquals("zoe", zoeRow.get("username").asText());
+		assertFalse(zoeRow.get("present").asBoolean());
+		JsonNode notTakenRow = objectMapper.readTree(lines.get(2));
+		assertEquals("2024-01-03", notTakenRow.get("date").asText());
+		assertTrue(notTakenRow.get("present").isNull());
+		assertEquals("2024-01-31", objectMapper.readTree(lines.get(3)).get("date").asText());
+	}
+
+	@Test
+	void csvQuotesCarriageReturnsAndDefusesFormulas() throws Exception {
+		User coach = persistUser(entityManager, "coach2", Set.of(Role.USER, Role.TRAINER));
+		User formula = persistUser(entityManager, "formula", Set.of(Role.USER));
+		User link = persistUser(entityManager, "link", Set.of(Role.USER));
+		User twoLines = persistUser(entityManager, "twolines", Set.of(Role.USER));
+		// renamed after persisting, their emails are made from the username and wouldn't be valid
+		coach.setUsername("-coach");
+		formula.setUsername("=SUM(A1,A2)");
+		link.setUsername("@link");
+		twoLines.setUsername("two\rlines");
+		Schedule schedule = persistSchedule(entityManager, coach, START, Set.of(formula, link, twoLines), Set.of());
+		schedule.setAttendanceMarked(true);
+		Long scheduleId = schedule.getScheduleId();
+		entityManager.flush();
+
+		String prefix = scheduleId + ",2024-01-01,09:00,10:00," + coach.getUserId() + ",'-coach,";
+		assertEquals(String.join("\n",
+				"schedule_id,date,start_time,end_time,trainer_id,trainer,user_id,username,present",
+				prefix + formula.getUserId() + ",\"'=SUM(A1,A2)\",true",
+				prefix + link.getUserId() + ",'@link,true",
+				prefix + twoLines.getUserId() + ",\"two\rlines\",true",
+				""), export(START, START, coach.getUserId(), ExportFormat.CSV));
+	}
+
+	@Test
+	@WithMockUser(username = "admin", roles = {"USER", "ADMIN"})
+	void exportHasItsOwnAsyncTimeout() throws Exception {
+		MvcResult result = mockMvc.perform(get("/admin/attendance/export").param("from", "2024-01-01").param("to", "2024-01-07"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		assertEquals(30 * 60 * 1000, result.getRequest().getAsyncContext().getTimeout()); // attendance.export.timeout
+	}
+
+	@Test
+	void rejectsInvertedDateRange() {
+		assertThrows(IllegalArgumentException.class, () -> export(START.plusDays(1), START, null, ExportFormat.CSV));
+	}
+
+	private String export(LocalDate from, LocalDate to, Long trainerId, ExportFormat format) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		attendanceExportService.export(from, to, trainerId, format, output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,204 @@
+package org.example.fitnessclubmanagement.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.AttendanceChangeRequest;
+import org.example.fitnessclubmanagement.payload.AttendanceChangeResult;
+import org.example.fitnessclubmanagement.payload.AttendanceStatsCheck;
+import org.example.fitnessclubmanagement.payload.AttendanceSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.example.fitnessclubmanagement.TestData.persistSchedule;
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class AttendanceStatsServiceTests {
+
+	private static final LocalDate MONDAY = LocalDate.of(2024, 1, 1);
+
+	@Autowired
+	private AttendanceStatsService attendanceStatsService;
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User trainer;
+
+	private User anna;
+
+	private User zoe;
+
+	private Long monday;
+
+	private Long wednesday;
+
+	@BeforeEach
+	void setUp() {
+		trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		anna = persistUser(entityManager, "anna", Set.of(Role.USER));
+		zoe = persistUser(entityManager, "zoe", Set.of(Role.USER));
+		monday = persistSchedule(entityManager, trainer, MONDAY, Set.of(anna, zoe), Set.of()).getScheduleId();
+		wednesday = persistSchedule(entityManager, trainer, MONDAY.plusDays(2), Set.of(anna, zoe), Set.of()).getScheduleId();
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void markAttendanceUpdatesStatsIncrementally() {
+		scheduleService.markAttendance(monday, List.of(anna.getUserId())); // zoe missed it
+		scheduleService.markAttendance(wednesday, List.of(anna.getUserId(), zoe.getUserId()));
+
+		assertEquals(List.of("anna 2/0", "zoe 1/1"), summaries());
+		assertNoMismatches();
+
+		// marking again replaces the session's earlier attendance instead of adding to it
+		scheduleService.markAttendance(monday, List.of(zoe.getUserId()));
+		assertEquals(List.of("anna 1/1", "zoe 2/0"), summaries());
+		assertNoMismatches();
+	}
+
+	@Test
+	void markingThatLostTheRaceToFirstMarkingIsNotCountedAgain() {
+		Schedule loaded = entityManager.find(Schedule.class, monday); // read before the other marking committed
+		// the other first marking: flag taken and the whole class counted, everyone present
+		jdbcTemplate.update("UPDATE schedule SET attendance_marked = TRUE, version = version + 1 WHERE schedule_id = ?", monday);
+		attendanceStatsService.addSession(loaded);
+
+		scheduleService.markAttendance(monday, List.of(anna.getUserId(), zoe.getUserId()));
+
+		assertEquals(List.of("anna 1/0", "zoe 1/0"), summaries());
+		assertNoMismatches();
+	}
+
+	@Test
+	void participantChangesAndDeletesKeepStatsInStep() {
+		scheduleService.markAttendance(monday, List.of(anna.getUserId()));
+		User newcomer = persistUser(entityManager, "newcomer", Set.of(Role.USER));
+		entityManager.flush();
+
+		scheduleService.updateSchedule(monday, null, null, null, null, List.of(anna.getUserId(), newcomer.getUserId()));
+		assertEquals(List.of("anna 1/0", "newcomer 1/0"), summaries());
+		assertNoMismatches();
+
+		scheduleService.deleteSchedule(monday);
+		assertEquals(List.of(), summaries());
+		assertNoMismatches();
+	}
+
+	@Test
+	void unmarkedSessionsDontCount() {
+		scheduleService.markAttendance(monday, List.of(anna.getUserId(), zoe.getUserId()));
+		scheduleService.updateSchedule(wednesday, null, null, null, null, List.of(anna.getUserId()));
+
+		assertEquals(List.of("anna 1/0", "zoe 1/0"), summaries());
+		assertNoMismatches();
+	}
+
+	@Test
+	void updateAttendanceWritesOnlyChangedMembers() {
+		scheduleService.markAttendance(monday, List.of(anna.getUserId())); // zoe missed it
+
+		AttendanceChangeRequest request = new AttendanceChangeRequest();
+		request.setPresent(Set.of(anna.getUserId(), zoe.getUserId())); // anna was already present
+		AttendanceChangeResult result = scheduleService.updateAttendance(monday, request);
+
+		assertEquals(List.of(zoe.getUserId()), result.getMarkedPresent());
+		assertEquals(List.of(), result.getMarkedAbsent());
+		assertEquals(List.of("anna 1/0", "zoe 1/0"), summaries());
+		assertNoMismatches();
+
+		request = new AttendanceChangeRequest();
+		request.setAbsent(Set.of(anna.getUserId()));
+		result = scheduleService.updateAttendance(wednesday, request); // first marking, zoe counts as present
+
+		assertEquals(List.of(anna.getUserId()), result.getMarkedAbsent());
+		assertEquals(List.of("anna 1/1", "zoe 2/0"), summaries());
+		assertNoMismatches();
+	}
+
+	@Test
+	void updateAttendanceRejectsUnknownAndConflictingMembers() {
+		AttendanceChangeRequest conflicting = new AttendanceChangeRequest();
+		conflicting.setPresent(Set.of(anna.getUserId()));
+		conflicting.setAbsent(Set.of(anna.getUserId()));
+		assertThrows(IllegalArgumentException.class, () -> scheduleService.updateAttendance(monday, conflicting));
+
+		AttendanceChangeRequest outsider = new AttendanceChangeRequest();
+		outsider.setAbsent(Set.of(trainer.getUserId()));
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> scheduleService.updateAttendance(monday, outsider));
+		assertTrue(e.getMessage().contains(String.valueOf(trainer.getUserId())));
+		assertEquals(List.of(), summaries());
+	}
+
+	@Test
+	void slotsAreCountedAndFollowTheSessionWhenItMoves() {
+		scheduleService.markAttendance(monday, List.of(anna.getUserId())); // zoe missed it
+		scheduleService.markAttendance(wednesday, List.of(anna.getUserId(), zoe.getUserId()));
+		assertEquals(List.of("MONDAY 09:00 1/1", "WEDNESDAY 09:00 2/0"), slots());
+
+		scheduleService.updateSchedule(monday, null, LocalTime.of(18, 0), LocalTime.of(19, 0), null, null);
+		assertEquals(List.of("MONDAY 18:00 1/1", "WEDNESDAY 09:00 2/0"), slots());
+		assertEquals(List.of("anna 2/0", "zoe 1/1"), summaries()); // the week is still one row per member
+		assertNoMismatches();
+	}
+
+	@Test
+	void rebuildRepairsDriftedStats() {
+		scheduleService.markAttendance(monday, List.of(anna.getUserId()));
+		scheduleService.markAttendance(wednesday, List.of(zoe.getUserId()));
+		jdbcTemplate.update("UPDATE attendance_stats SET attended = 7 WHERE user_id = ? AND day_of_week = 1", anna.getUserId());
+		jdbcTemplate.update("INSERT INTO attendance_stats (user_id, trainer_id, week_start, day_of_week, start_time, attended, missed) " +
+				"VALUES (?, ?, ?, 1, ?, 1, 0)", anna.getUserId(), trainer.getUserId(), MONDAY.minusWeeks(1), LocalTime.of(9, 0));
+
+		assertEquals(2, attendanceStatsService.verify().getMismatches());
+
+		AttendanceStatsCheck rebuilt = attendanceStatsService.rebuild();
+		assertEquals(2, rebuilt.getMismatches());
+		assertEquals(4, rebuilt.getRowsWritten()); // each member in the Monday and the Wednesday slot
+		assertEquals(List.of("anna 1/1", "zoe 1/1"), summaries());
+		assertNoMismatches();
+	}
+
+	private List<String> summaries() {
+		return attendanceStatsService.getSummaries(MONDAY.minusWeeks(4), MONDAY.plusDays(6)).stream()
+				.peek(summary -> assertEquals(MONDAY, summary.getWeekStart()))
+				.peek(summary -> assertEquals("trainer", summary.getTrainerName()))
+				.map(AttendanceStatsServiceTests::describe)
+				.toList();
+	}
+
+	private List<String> slots() {
+		return attendanceStatsService.getSlotSummaries(MONDAY.minusWeeks(4), MONDAY.plusDays(6)).stream()
+				.map(slot -> slot.getDay() + " " + slot.getStartTime() + " " + slot.getAttended() + "/" + slot.getMissed())
+				.toList();
+	}
+
+	private static String describe(AttendanceSummary summary) {
+		return summary.getUsername() + " " + summary.getAttended() + "/" + summary.getMissed();
+	}
+
+	private void assertNoMismatches() {
+		entityManager.flush(); // verify reads the tables directly, e.g. a delete is still pending until the commit
+		assertEquals(0, attendanceStatsService.verify().getMismatches());
+	}
+}
@@ -0,0 +1,73 @@
+package org.example.fitnessclubmanagement.service;
+
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.ImportReport;
+import org.example.fitnessclubmanagement.payload.ImportRowError;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "users.import.batch-size=2")
+@Transactional
+class MemberImportServiceTests {
+
+	@Autowired
+	private MemberImportService memberImportService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Test
+	void importsValidRowsAndReportsTheRest() throws Exception {
+		String csv = String.join("\n",
+				"Email,Username,Password",
+				"Alice@Example.com, Alice ,password1",
+				"bob@nowhere,bob,password1",
+				"alice2@example.com,alice,password1", // same username as line 2
+				"admin2@example.com,admin,password1", // taken by the default admin
+				"",
+				"\"carol@example.com\",\"carol\",\"pass,word\"\"1\"",
+				"dave@example.com,dave",
+				"alice@example.com,erin,password1"); // same email as line 2, but a later batch
+
+		ImportReport report = memberImportService.importMembers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(7, report.getRows());
+		assertEquals(2, report.getImported());
+		assertEquals(5, report.getFailed());
+		assertEquals(List.of(
+				new ImportRowError(3, "Email must be valid"),
+				new ImportRowError(4, "Username already exists"),
+				new ImportRowError(5, "Username already exists"),
+				new ImportRowError(8, "Expected at least 3 columns but found 2"),
+				new ImportRowError(9, "Email already exists")), report.getErrors());
+
+		User alice = userService.getUserByUsername("alice");
+		assertEquals("alice@example.com", alice.getEmail());
+		assertEquals(Set.of(Role.USER), alice.getRoles());
+		assertTrue(passwordEncoder.matches("password1", alice.getPassword()));
+		assertTrue(passwordEncoder.matches("pass,word\"1", userService.getUserByUsername("carol").getPassword()));
+	}
+
+	@Test
+	void rejectsFileWithoutRequiredColumns() {
+		byte[] csv = "username,email\nalice,alice@example.com".getBytes(StandardCharsets.UTF_8);
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> memberImportService.importMembers(new ByteArrayInputStream(csv)));
+		assertEquals("CSV header must contain username, email and password", e.getMessage());
+	}
+}
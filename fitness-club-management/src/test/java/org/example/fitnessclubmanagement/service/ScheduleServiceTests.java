@@ -0,0 +1,333 @@
+package org.example.fitnessclubmanagement.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.exceptions.ScheduleConflictException;
+import org.example.fitnessclubmanagement.exceptions.StaleScheduleException;
+import org.example.fitnessclubmanagement.exceptions.UserNotFoundException;
+import org.example.fitnessclubmanagement.model.Schedule;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.Recurrence;
+import org.example.fitnessclubmanagement.payload.RecurringSessionRequest;
+import org.example.fitnessclubmanagement.payload.RosterEntry;
+import org.example.fitnessclubmanagement.payload.ScheduleConflict;
+import org.example.fitnessclubmanagement.payload.ScheduleCursor;
+import org.example.fitnessclubmanagement.payload.SchedulePage;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.example.fitnessclubmanagement.TestData.persistSchedule;
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.example.fitnessclubmanagement.TestData.schedules;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class ScheduleServiceTests {
+
+	private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+	@Autowired
+	private ScheduleService scheduleService;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	private User trainer;
+
+	private final List<User> members = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		trainer = persistUser(entityManager, "trainer", Set.of(Role.USER, Role.TRAINER));
+		// persisted out of order on purpose so the roster sort is actually tested
+		for (String name : List.of("zoe", "mike", "anna", "liam", "bella")) {
+			members.add(persistUser(entityManager, name, Set.of(Role.USER)));
+		}
+	}
+
+	@Test
+	void getSchedulesForUserRunsConstantNumberOfStatements() {
+		persistSchedules(10);
+		User admin = userService.getUserByUsername("admin");
+		User member = members.get(0);
+
+		assertEquals(4, countStatements(() -> scheduleService.getSchedulesForUser(admin, START, START.plusDays(30), null, 5)));
+		// participant query + trainer query + the three roster queries
+		assertEquals(5, countStatements(() -> scheduleService.getSchedulesForUser(member, START, START.plusDays(30), null, 5)));
+	}
+
+	@Test
+	void getSchedulesForUserPagesThroughWindowInOrder() {
+		persistSchedules(12);
+		User admin = userService.getUserByUsername("admin");
+		LocalDate to = START.plusDays(9); // first ten sessions only
+
+		List<Long> seen = new ArrayList<>();
+		ScheduleCursor cursor = null;
+		int pages = 0;
+		do {
+			SchedulePage page = scheduleService.getSchedulesForUser(admin, START, to, cursor, 4);
+			page.getSchedules().forEach(schedule -> seen.add(schedule.getScheduleId()));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(3, pages);
+		assertEquals(10, seen.size());
+		assertEquals(10, new HashSet<>(seen).size());
+
+		// members and trainers page the same way through their own queries
+		SchedulePage trainerPage = scheduleService.getSchedulesForUser(trainer, START, to, null, 4);
+		assertEquals(4, trainerPage.getSchedules().size());
+		assertEquals(START.plusDays(3), trainerPage.getNextCursor().getDate());
+		SchedulePage lastMemberPage = scheduleService.getSchedulesForUser(members.get(1), START, to,
+				ScheduleCursor.decode(trainerPage.getNextCursor().encode()), 6);
+		assertEquals(6, lastMemberPage.getSchedules().size());
+		assertFalse(lastMemberPage.hasNext());
+	}
+
+	@Test
+	void rostersAreSortedByUsername() {
+		persistSchedules(3);
+		List<Schedule> schedules = schedules(entityManager, scheduleService);
+
+		assertEquals(3, schedules.size());
+		for (Schedule schedule : schedules) {
+			assertEquals("trainer", schedule.getTrainerName());
+			assertEquals(List.of("anna", "bella", "liam", "mike", "zoe"), usernames(schedule.getParticipantRoster()));
+			assertEquals(List.of("anna", "zoe"), usernames(schedule.getAbsentRoster()));
+		}
+	}
+
+	@Test
+	void scheduleSessionResolvesParticipantsInConstantStatements() {
+		List<User> bigClass = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			bigClass.add(persistUser(entityManager, "member" + i, Set.of(Role.USER)));
+		}
+		entityManager.flush();
+		List<Long> userIds = new ArrayList<>(bigClass.stream().map(User::getUserId).toList());
+		userIds.add(trainer.getUserId()); // trainer is never a participant
+
+		// trainer and member conflict checks, each as trainer and as participant + existence check + schedule insert
+		// + one INSERT ... SELECT for all join rows
+		assertEquals(7, countStatements(() -> scheduleService.scheduleSession(trainer.getUserId(), userIds, START, LocalTime.of(6, 0), LocalTime.of(7, 0))));
+
+		Schedule schedule = schedules(entityManager, scheduleService).get(0);
+		assertEquals(40, schedule.getParticipantRoster().size());
+	}
+
+	@Test
+	void scheduleRecurringSessionCreatesWholeTermInBatches() {
+		List<User> bigClass = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			bigClass.add(persistUser(entityManager, "member" + i, Set.of(Role.USER)));
+		}
+		entityManager.flush();
+
+		RecurringSessionRequest request = new RecurringSessionRequest();
+		request.setTrainerId(trainer.getUserId());
+		request.setUserIds(new ArrayList<>(bigClass.stream().map(User::getUserId).toList()));
+		request.getUserIds().add(trainer.getUserId());
+		request.setStartDate(START);
+		request.setEndDate(START.plusWeeks(16).minusDays(1)); // a 16 week term
+		request.setStartTime(LocalTime.of(18, 0));
+		request.setEndTime(LocalTime.of(19, 0));
+		request.setSkipDates(List.of(START.plusWeeks(8))); // reading week
+
+		// only the four conflict queries and the existence check go through Hibernate, the inserts are two JDBC batches
+		assertEquals(5, countStatements(() -> assertEquals(15, scheduleService.scheduleRecurringSession(request))));
+
+		List<Schedule> schedules = schedules(entityManager, scheduleService);
+		assertEquals(15, schedules.size());
+		assertFalse(schedules.stream().anyMatch(schedule -> schedule.getDate().equals(START.plusWeeks(8))));
+		for (Schedule schedule : schedules) {
+			assertEquals(START.getDayOfWeek(), schedule.getDate().getDayOfWeek());
+			assertEquals("trainer", schedule.getTrainerName());
+			assertEquals(30, schedule.getParticipantRoster().size());
+		}
+	}
+
+	@Test
+	void scheduleRecurringSessionRejectsOversizedRange() {
+		RecurringSessionRequest request = new RecurringSessionRequest();
+		request.setTrainerId(trainer.getUserId());
+		request.setUserIds(List.of(members.get(0).getUserId()));
+		request.setStartDate(START);
+		request.setEndDate(START.plusYears(2));
+		request.setStartTime(LocalTime.of(18, 0));
+		request.setEndTime(LocalTime.of(19, 0));
+		request.setRecurrence(Recurrence.DAILY);
+
+		assertThrows(IllegalArgumentException.class, () -> scheduleService.scheduleRecurringSession(request));
+		assertTrue(schedules(entityManager, scheduleService).isEmpty());
+	}
+
+	@Test
+	void missingParticipantsAreReportedTogether() {
+		List<Long> userIds = new ArrayList<>(List.of(members.get(0).getUserId(), 9001L, 9002L));
+
+		UserNotFoundException e = assertThrows(UserNotFoundException.class,
+				() -> scheduleService.scheduleSession(trainer.getUserId(), userIds, START, LocalTime.of(6, 0), LocalTime.of(7, 0)));
+		assertEquals("Users not found: 9001, 9002", e.getMessage());
+	}
+
+	@Test
+	void updateScheduleParticipantsOnlyWritesChangedRows() {
+		persistSchedules(1);
+		Long scheduleId = schedules(entityManager, scheduleService).get(0).getScheduleId();
+		User newcomer = persistUser(entityManager, "newcomer", Set.of(Role.USER));
+		entityManager.flush();
+
+		// drop zoe and mike, keep the rest, add newcomer
+		List<Long> userIds = List.of(members.get(2).getUserId(), members.get(3).getUserId(), members.get(4).getUserId(), newcomer.getUserId());
+		scheduleService.updateSchedule(scheduleId, null, null, null, null, userIds);
+		assertEquals(List.of("anna", "bella", "liam", "newcomer"), usernames(scheduleService.findById(scheduleId).getParticipantRoster()));
+
+		// changing the trainer to a participant removes them from the class
+		scheduleService.updateSchedule(scheduleId, null, null, null, members.get(2).getUserId(), null);
+		Schedule schedule = scheduleService.findById(scheduleId);
+		assertEquals("anna", schedule.getTrainerName());
+		assertEquals(List.of("bella", "liam", "newcomer"), usernames(schedule.getParticipantRoster()));
+	}
+
+	@Test
+	void staleEditIsRejectedWithoutWritingAnything() {
+		persistSchedules(1);
+		Long scheduleId = schedules(entityManager, scheduleService).get(0).getScheduleId();
+		Long opened = scheduleService.findById(scheduleId).getVersion(); // both admins open the session
+
+		statistics.clear();
+		scheduleService.updateSchedule(scheduleId, opened, LocalTime.of(8, 0), LocalTime.of(9, 0), members.get(2).getUserId(), null);
+		assertEquals(0, statistics.getEntityUpdateCount()); // targeted updates only, the entity is never saved
+
+		List<Long> userIds = List.of(members.get(0).getUserId());
+		assertThrows(StaleScheduleException.class, () -> scheduleService.updateSchedule(scheduleId, opened, null, null, null, userIds));
+		Schedule schedule = scheduleService.findById(scheduleId);
+		assertEquals(LocalTime.of(8, 0), schedule.getStartTime());
+		assertEquals("anna", schedule.getTrainerName());
+		assertEquals(4, schedule.getParticipantRoster().size());
+
+		// after a reload the same edit goes through
+		Long reloaded = schedule.getVersion();
+		assertTrue(reloaded > opened);
+		scheduleService.updateSchedule(scheduleId, reloaded, null, null, null, userIds);
+		schedule = scheduleService.findById(scheduleId);
+		assertEquals(List.of("zoe"), usernames(schedule.getParticipantRoster()));
+		assertEquals(reloaded + 1, schedule.getVersion());
+	}
+
+	@Test
+	void takingAttendanceDoesntMakeOpenEditsStale() {
+		persistSchedules(1);
+		Long scheduleId = schedules(entityManager, scheduleService).get(0).getScheduleId();
+		Schedule opened = scheduleService.findById(scheduleId);
+
+		scheduleService.markAttendance(scheduleId, List.of(members.get(0).getUserId()));
+		Schedule marked = scheduleService.findById(scheduleId);
+		assertEquals(opened.getVersion(), marked.getVersion());
+		assertTrue(marked.getRowVersion() > opened.getRowVersion()); // the row still shows the change
+
+		scheduleService.updateSchedule(scheduleId, opened.getVersion(), LocalTime.of(8, 0), LocalTime.of(9, 0), null, null);
+		assertEquals(LocalTime.of(8, 0), scheduleService.findById(scheduleId).getStartTime());
+	}
+
+	@Test
+	void trainerDoubleBookingIsRejectedWithConflicts() {
+		persistSchedules(1); // 09:00-10:00 on START
+		Long booked = schedules(entityManager, scheduleService).get(0).getScheduleId();
+		List<Long> userIds = List.of(members.get(0).getUserId());
+
+		ScheduleConflictException e = assertThrows(ScheduleConflictException.class,
+				() -> scheduleService.scheduleSession(trainer.getUserId(), userIds, START, LocalTime.of(9, 30), LocalTime.of(10, 30)));
+		assertEquals(1, e.getConflicts().size());
+		assertEquals(booked, e.getConflicts().get(0).getScheduleId());
+
+		// back to back sessions don't overlap
+		scheduleService.scheduleSession(trainer.getUserId(), userIds, START, LocalTime.of(10, 0), LocalTime.of(11, 0));
+		Long next = schedules(entityManager, scheduleService).get(1).getScheduleId();
+		assertThrows(ScheduleConflictException.class, () -> scheduleService.updateSchedule(next, null, LocalTime.of(9, 45), LocalTime.of(11, 0), null, null));
+
+		// a session never clashes with itself
+		scheduleService.updateSchedule(booked, null, LocalTime.of(8, 30), LocalTime.of(10, 0), null, null);
+
+		RecurringSessionRequest request = new RecurringSessionRequest();
+		request.setTrainerId(trainer.getUserId());
+		request.setUserIds(userIds);
+		request.setStartDate(START.minusWeeks(2));
+		request.setEndDate(START.plusWeeks(2));
+		request.setStartTime(LocalTime.of(10, 30));
+		request.setEndTime(LocalTime.of(11, 30));
+		e = assertThrows(ScheduleConflictException.class, () -> scheduleService.scheduleRecurringSession(request));
+		assertEquals(List.of(next), e.getConflicts().stream().map(ScheduleConflict::getScheduleId).toList());
+		assertEquals(2, schedules(entityManager, scheduleService).size());
+	}
+
+	@Test
+	void memberClashesAreFoundForWholeClassInTwoQueries() {
+		persistSchedules(1); // every member booked 09:00-10:00 on START
+		User otherTrainer = persistUser(entityManager, "other", Set.of(Role.USER, Role.TRAINER));
+		List<Long> userIds = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			userIds.add(persistUser(entityManager, "member" + i, Set.of(Role.USER)).getUserId());
+		}
+		userIds.add(members.get(0).getUserId()); // zoe
+		userIds.add(members.get(2).getUserId()); // anna
+		entityManager.flush();
+
+		List<Long> clashing = new ArrayList<>();
+		assertEquals(2, countStatements(() -> scheduleService.findMemberConflicts(userIds, START, LocalTime.of(9, 30), LocalTime.of(10, 30), null)
+				.forEach(conflict -> clashing.add(conflict.getUserId()))));
+		assertEquals(new TreeSet<>(List.of(members.get(0).getUserId(), members.get(2).getUserId())), new TreeSet<>(clashing));
+
+		ScheduleConflictException e = assertThrows(ScheduleConflictException.class,
+				() -> scheduleService.scheduleSession(otherTrainer.getUserId(), userIds, START, LocalTime.of(9, 30), LocalTime.of(10, 30)));
+		assertEquals(2, e.getConflicts().size());
+		assertEquals(1, schedules(entityManager, scheduleService).size());
+
+		// moving the first session onto the new one's slot clashes too, adding members to it doesn't
+		scheduleService.scheduleSession(otherTrainer.getUserId(), List.of(members.get(0).getUserId()), START, LocalTime.of(11, 0), LocalTime.of(12, 0));
+		Long booked = schedules(entityManager, scheduleService).get(0).getScheduleId();
+		assertThrows(ScheduleConflictException.class, () -> scheduleService.updateSchedule(booked, null, LocalTime.of(10, 30), LocalTime.of(11, 30), null, null));
+		List<Long> biggerClass = new ArrayList<>(members.stream().map(User::getUserId).toList());
+		biggerClass.add(otherTrainer.getUserId());
+		scheduleService.updateSchedule(booked, null, null, null, null, biggerClass);
+		assertEquals(6, scheduleService.findById(booked).getParticipantRoster().size());
+	}
+
+	private void persistSchedules(int count) {
+		for (int i = 0; i < count; i++) {
+			persistSchedule(entityManager, trainer, START.plusDays(i), new HashSet<>(members),
+					Set.of(members.get(0), members.get(2))); // zoe and anna absent
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	private long countStatements(Runnable action) {
+		entityManager.clear(); // nothing cached from the previous call
+		statistics.clear();
+		action.run();
+		return statistics.getPrepareStatementCount();
+	}
+
+	private List<String> usernames(List<RosterEntry> roster) {
+		return roster.stream().map(RosterEntry::getUsername).toList();
+	}
+}
@@ -0,0 +1,136 @@
+package org.example.fitnessclubmanagement.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.fitnessclubmanagement.model.Role;
+import org.example.fitnessclubmanagement.model.User;
+import org.example.fitnessclubmanagement.payload.CacheStats;
+import org.example.fitnessclubmanagement.payload.UserPage;
+import org.example.fitnessclubmanagement.payload.UserSort;
+import org.example.fitnessclubmanagement.payload.UserSummary;
+import org.example.fitnessclubmanagement.payload.UserUpdateRequest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+import static org.example.fitnessclubmanagement.TestData.persistUser;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class UserServiceTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserDetailsCache userDetailsCache;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		for (String name : List.of("zoe", "mike", "anna", "liam", "bella", "omar")) {
+			Set<Role> roles = name.equals("mike") ? Set.of(Role.USER, Role.TRAINER) : Set.of(Role.USER);
+			persistUser(entityManager, name, roles);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void userPageIsSingleQueryWithRoles() {
+		statistics.clear();
+		UserPage page = userService.getUserPage(UserSort.USERNAME, null, 3);
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertEquals(List.of("admin", "anna", "bella"), usernames(page.getUsers()));
+		assertEquals(Set.of(Role.ADMIN, Role.USER), page.getUsers().get(0).getRoles());
+		assertEquals("bella", page.getNextCursor());
+	}
+
+	@Test
+	void userPagesCoverDirectoryWithoutGapsForEverySort() {
+		for (UserSort sort : UserSort.values()) {
+			List<String> seen = new ArrayList<>();
+			String cursor = null;
+			do {
+				UserPage page = userService.getUserPage(sort, cursor, 2);
+				seen.addAll(usernames(page.getUsers()));
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+
+			assertEquals(7, seen.size(), sort.name());
+			assertEquals(7, new HashSet<>(seen).size(), sort.name());
+		}
+	}
+
+	@Test
+	void userPageRejectsBadIdCursor() {
+		assertThrows(IllegalArgumentException.class, () -> userService.getUserPage(UserSort.ID, "abc", 10));
+	}
+
+	@Test
+	void rolesLoadWithTheUserRowAndFilterByMask() {
+		statistics.clear();
+		User mike = userService.getUserByUsername("mike");
+
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertEquals(EnumSet.of(Role.USER, Role.TRAINER), mike.getRoles());
+		assertEquals(List.of("mike"), userService.getUsersByRole(Role.TRAINER).stream().map(User::getUsername).toList());
+		assertEquals(List.of("admin"), userService.getUsersByRole(Role.ADMIN).stream().map(User::getUsername).toList());
+		assertEquals(7, userService.getUsersByRole(Role.USER).size());
+	}
+
+	@Test
+	void loadUserByUsernameIsCachedUntilTheChangeCommits() {
+		CacheStats before = userDetailsCache.getStats();
+		UserDetails first = userService.loadUserByUsername("mike");
+		statistics.clear();
+		((CredentialsContainer) first).eraseCredentials(); // what Spring Security does after a login
+		UserDetails second = userService.loadUserByUsername("mike");
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals("password", second.getPassword());
+		assertTrue(second.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_TRAINER")));
+
+		UserUpdateRequest request = userService.getUserUpdateRequest(userService.getUserByUsername("mike").getUserId());
+		request.setTrainerRole(null);
+		userService.updateUser(userService.getUserByUsername("mike").getUserId(), request);
+		assertEquals(0, userDetailsCache.getStats().getInvalidations() - before.getInvalidations()); // not committed yet
+
+		TestTransaction.flagForCommit();
+		TestTransaction.end();
+		try {
+			UserDetails third = userService.loadUserByUsername("mike");
+			assertTrue(third.getAuthorities().stream().noneMatch(a -> a.getAuthority().equals("ROLE_TRAINER")));
+
+			CacheStats after = userDetailsCache.getStats();
+			assertEquals(1, after.getHits() - before.getHits());
+			assertEquals(2, after.getMisses() - before.getMisses());
+			assertEquals(1, after.getInvalidations() - before.getInvalidations());
+		} finally {
+			TestTransaction.start();
+			entityManager.createQuery("delete from User u where u.username <> 'admin'").executeUpdate();
+			TestTransaction.flagForCommit();
+			TestTransaction.end();
+			userDetailsCache.invalidateAll();
+		}
+	}
+
+	private List<String> usernames(List<UserSummary> users) {
+		return users.stream().map(UserSummary::getUsername).toList();
+	}
+}